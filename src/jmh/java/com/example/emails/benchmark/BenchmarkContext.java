@@ -0,0 +1,42 @@
+package com.example.emails.benchmark;
+
+import com.example.emails.EmailApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+
+/**
+ * Boots the application against an in-memory H2 database with a no-op {@link MailSender}, so benchmarks measure
+ * the service and persistence code rather than the network.
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start() {
+
+        MailSender noopMailSender = new MailSender() {
+            @Override
+            public void send(SimpleMailMessage... simpleMessages) {
+            }
+        };
+
+        return new SpringApplicationBuilder(EmailApplication.class)
+                .web(WebApplicationType.NONE)
+                .initializers(context -> context.getBeanFactory().registerSingleton("mailSender", noopMailSender))
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MYSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "--spring.datasource.driverClassName=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.mail.pool.enabled=false",
+                        "--email.rate-limit.enabled=false",
+                        "--logging.level.root=WARN");
+    }
+}
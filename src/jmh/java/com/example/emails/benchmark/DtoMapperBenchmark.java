@@ -0,0 +1,58 @@
+package com.example.emails.benchmark;
+
+import com.example.emails.model.Email;
+import com.example.emails.model.EmailPreference;
+import com.example.emails.model.EmailStatus;
+import com.example.emails.web.dto.EmailResponse;
+import com.example.emails.web.dto.PreferenceResponse;
+import com.example.emails.web.mapper.DtoMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoMapperBenchmark {
+
+    private Email email;
+    private EmailPreference emailPreference;
+
+    @Setup
+    public void setUp() {
+        UUID userId = UUID.randomUUID();
+
+        email = Email.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .subject("Subject")
+                .body("Body")
+                .status(EmailStatus.SUCCEEDED)
+                .createdOn(LocalDateTime.now())
+                .build();
+
+        emailPreference = EmailPreference.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .contactEmail("user@example.com")
+                .isEnabled(true)
+                .createdOn(LocalDateTime.now())
+                .updatedOn(LocalDateTime.now())
+                .build();
+    }
+
+    @Benchmark
+    public EmailResponse fromEmail() {
+        return DtoMapper.fromEmail(email);
+    }
+
+    @Benchmark
+    public PreferenceResponse fromEmailPreference() {
+        return DtoMapper.fromEmailPreference(emailPreference);
+    }
+}
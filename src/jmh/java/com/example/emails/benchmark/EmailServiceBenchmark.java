@@ -0,0 +1,77 @@
+package com.example.emails.benchmark;
+
+import com.example.emails.model.Email;
+import com.example.emails.model.EmailPreference;
+import com.example.emails.service.EmailService;
+import com.example.emails.web.dto.EmailRequest;
+import com.example.emails.web.dto.UpsertPreference;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EmailServiceBenchmark {
+
+    private static final int USERS = 1_000;
+
+    private ConfigurableApplicationContext context;
+    private EmailService emailService;
+    private UUID[] userIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        emailService = context.getBean(EmailService.class);
+
+        userIds = new UUID[USERS];
+        for (int i = 0; i < USERS; i++) {
+            userIds[i] = UUID.randomUUID();
+            emailService.upsertPreference(upsertPreference(userIds[i]));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Email sendEmail() {
+        EmailRequest emailRequest = new EmailRequest();
+        emailRequest.setUserId(randomUser());
+        emailRequest.setSubject("Subject");
+        emailRequest.setBody("Body");
+
+        return emailService.sendEmail(emailRequest);
+    }
+
+    @Benchmark
+    public EmailPreference upsertPreference() {
+        return emailService.upsertPreference(upsertPreference(randomUser()));
+    }
+
+    @Benchmark
+    public EmailPreference getPreferenceByUserId() {
+        return emailService.getPreferenceByUserId(randomUser());
+    }
+
+    private UUID randomUser() {
+        return userIds[ThreadLocalRandom.current().nextInt(USERS)];
+    }
+
+    private static UpsertPreference upsertPreference(UUID userId) {
+        UpsertPreference upsertPreference = new UpsertPreference();
+        upsertPreference.setUserId(userId);
+        upsertPreference.setEnabled(true);
+        upsertPreference.setContactEmail(userId + "@example.com");
+        return upsertPreference;
+    }
+}
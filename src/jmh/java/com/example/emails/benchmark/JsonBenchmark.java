@@ -0,0 +1,61 @@
+package com.example.emails.benchmark;
+
+import com.example.emails.model.EmailStatus;
+import com.example.emails.web.dto.EmailRequest;
+import com.example.emails.web.dto.EmailResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+    private ObjectMapper objectMapper;
+    private EmailRequest emailRequest;
+    private String emailRequestJson;
+    private EmailResponse emailResponse;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        // Same defaults Spring MVC applies to the ObjectMapper used by EmailController.
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        emailRequest = new EmailRequest();
+        emailRequest.setUserId(UUID.randomUUID());
+        emailRequest.setSubject("Subject");
+        emailRequest.setBody("Body ".repeat(200));
+        emailRequestJson = objectMapper.writeValueAsString(emailRequest);
+
+        emailResponse = EmailResponse.builder()
+                .id(UUID.randomUUID())
+                .subject("Subject")
+                .status(EmailStatus.SUCCEEDED)
+                .createdOn(LocalDateTime.now())
+                .build();
+    }
+
+    @Benchmark
+    public EmailRequest readEmailRequest() throws JsonProcessingException {
+        return objectMapper.readValue(emailRequestJson, EmailRequest.class);
+    }
+
+    @Benchmark
+    public String writeEmailRequest() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(emailRequest);
+    }
+
+    @Benchmark
+    public String writeEmailResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(emailResponse);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.emails.benchmark;
+
+import com.example.emails.model.TimeOrderedUuidGenerator;
+import com.example.emails.model.UuidBytes;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Inserts batches of email-sized rows keyed by random (version 4) or time-ordered (version 7) binary(16) ids into
+ * a table preloaded with {@code preloadRows} rows of the same kind. Defaults to in-memory H2, which shows the
+ * generator cost only; the page splits this is about need InnoDB and a table larger than the buffer pool:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="UuidInsertBenchmark \
+ *     -p jdbcUrl=jdbc:mysql://localhost:3306/benchmark?rewriteBatchedStatements=true -p user=root \
+ *     -p preloadRows=5000000"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UuidInsertBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"RANDOM", "TIME_ORDERED"})
+    public IdStrategy strategy;
+
+    @Param("jdbc:h2:mem:uuid-insert;MODE=MYSQL;DB_CLOSE_DELAY=-1")
+    public String jdbcUrl;
+
+    @Param("sa")
+    public String user;
+
+    @Param("")
+    public String password;
+
+    @Param("100000")
+    public int preloadRows;
+
+    private Connection connection;
+    private PreparedStatement insert;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(jdbcUrl, user, password);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists uuid_insert_benchmark");
+            statement.execute("""
+                    create table uuid_insert_benchmark (
+                        id binary(16) not null primary key,
+                        subject varchar(255) not null,
+                        created_on timestamp not null
+                    )
+                    """);
+        }
+
+        connection.setAutoCommit(false);
+        insert = connection.prepareStatement(
+                "insert into uuid_insert_benchmark (id, subject, created_on) values (?, ?, ?)");
+
+        for (int i = 0; i < preloadRows; i += BATCH_SIZE) {
+            insertBatch();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        insert.close();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table uuid_insert_benchmark");
+        }
+        connection.commit();
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int[] insertBatch() throws SQLException {
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            insert.setBytes(1, UuidBytes.toBytes(strategy.ids.get()));
+            insert.setString(2, "Subject");
+            insert.setTimestamp(3, now);
+            insert.addBatch();
+        }
+
+        int[] counts = insert.executeBatch();
+        connection.commit();
+        return counts;
+    }
+
+    public enum IdStrategy {
+        RANDOM(UUID::randomUUID),
+        TIME_ORDERED(TimeOrderedUuidGenerator::next);
+
+        private final Supplier<UUID> ids;
+
+        IdStrategy(Supplier<UUID> ids) {
+            this.ids = ids;
+        }
+    }
+}
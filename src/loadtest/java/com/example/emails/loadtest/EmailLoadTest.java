@@ -0,0 +1,202 @@
+package com.example.emails.loadtest;
+
+import com.example.emails.mail.FakeSmtpServer;
+import com.example.emails.web.dto.BatchEmailRequest;
+import com.example.emails.web.dto.EmailRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Drives {@code EmailController} over HTTP against a {@link FakeSmtpServer} and prints throughput and latency
+ * percentiles per scenario. Runs only with {@code mvn -Pload-test test}; every setting is a system property, and
+ * any application property can be overridden the same way:
+ * <pre>
+ * mvn -Pload-test test -Dloadtest.requests=5000 -Dloadtest.concurrency=64 \
+ *     -Dloadtest.smtp.latency=PT0.02S -Dloadtest.smtp.failure-rate=0.01 -Dspring.mail.pool.size=8
+ * </pre>
+ * Add {@code -Dspring.mail.nio.enabled=true} to run the same scenarios on {@code PipeliningMailSender}.
+ */
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.show-sql=false",
+        "email.rate-limit.enabled=false",
+        "spring.mail.properties.mail.smtp.auth=false",
+        "spring.mail.properties.mail.smtp.starttls.enable=false"
+})
+public class EmailLoadTest {
+
+    private static final int REQUESTS = Integer.getInteger("loadtest.requests", 2_000);
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 32);
+    private static final int WARMUP_REQUESTS = Integer.getInteger("loadtest.warmup-requests", 200);
+    private static final int USERS = Integer.getInteger("loadtest.users", 1_000);
+    private static final int BATCH_SIZE = Integer.getInteger("loadtest.batch-size", 50);
+    private static final Duration SMTP_LATENCY =
+            Duration.parse(System.getProperty("loadtest.smtp.latency", "PT0.005S"));
+    private static final double SMTP_FAILURE_RATE =
+            Double.parseDouble(System.getProperty("loadtest.smtp.failure-rate", "0"));
+    private static final int SMTP_MAX_CONNECTIONS = Integer.getInteger("loadtest.smtp.max-connections", 16);
+
+    private static FakeSmtpServer smtpServer;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+
+    private final List<UUID> userIds = new ArrayList<>(USERS);
+
+    @BeforeAll
+    static void startSmtpServer() throws IOException {
+        smtpServer = FakeSmtpServer.start(SMTP_LATENCY, SMTP_FAILURE_RATE, SMTP_MAX_CONNECTIONS);
+    }
+
+    @AfterAll
+    static void stopSmtpServer() throws IOException {
+        smtpServer.close();
+    }
+
+    @DynamicPropertySource
+    static void mailProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.mail.host", () -> smtpServer.getHost());
+        registry.add("spring.mail.port", () -> smtpServer.getPort());
+    }
+
+    @BeforeEach
+    void importUsers() throws Exception {
+
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < USERS; i++) {
+            UUID userId = UUID.randomUUID();
+            userIds.add(userId);
+            csv.append(userId).append(",user").append(i).append("@example.com,true\n");
+        }
+
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(uri("/preferences/import"))
+                        .header("Content-Type", "text/csv")
+                        .POST(HttpRequest.BodyPublishers.ofString(csv.toString()))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode(), response.body());
+    }
+
+    @Test
+    void sendEmail_inline() throws Exception {
+        report(run("inline", REQUESTS, () -> post("", emailRequest(), null) == 201));
+    }
+
+    @Test
+    void sendEmail_respondAsync() throws Exception {
+
+        int expected = REQUESTS + Math.min(WARMUP_REQUESTS, REQUESTS);
+        long delivered = smtpServer.getAcceptedMessages() + smtpServer.getRejectedMessages();
+        long startNanos = System.nanoTime();
+
+        report(run("async", REQUESTS, () -> post("", emailRequest(), "respond-async") == 202));
+
+        // Requests only enqueue, so also time how long the relay and dispatcher take to drain what was accepted.
+        await().atMost(Duration.ofMinutes(10)).pollInterval(Duration.ofMillis(50)).until(() ->
+                smtpServer.getAcceptedMessages() + smtpServer.getRejectedMessages() - delivered
+                        >= expected);
+
+        double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        System.out.printf("%-12s delivered=%-6d end-to-end throughput=%9.1f/s%n",
+                "async", expected, expected / seconds);
+    }
+
+    @Test
+    void sendBatch() throws Exception {
+        int batches = Math.max(1, REQUESTS / BATCH_SIZE);
+
+        LoadReport report = run("batch", batches, () -> post("/batch", batchRequest(), null) == 200);
+
+        report(report);
+        System.out.printf("%-12s messages=%-6d message throughput=%9.1f/s%n",
+                "batch", batches * BATCH_SIZE, report.throughput() * BATCH_SIZE);
+    }
+
+    private LoadReport run(String name, int requests, Callable<Boolean> call)
+            throws InterruptedException {
+        LoadGenerator.run(name + "-warmup", CONCURRENCY, Math.min(WARMUP_REQUESTS, requests), call);
+        return LoadGenerator.run(name, CONCURRENCY, requests, call);
+    }
+
+    private void report(LoadReport report) {
+        System.out.println(report);
+        System.out.printf("%-12s smtp: accepted=%d rejected=%d connections=%d peak=%d refused=%d%n",
+                report.name(), smtpServer.getAcceptedMessages(), smtpServer.getRejectedMessages(),
+                smtpServer.getOpenedConnections(), smtpServer.getPeakConnections(),
+                smtpServer.getRefusedConnections());
+    }
+
+    private int post(String path, Object body, String prefer) throws IOException, InterruptedException {
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+
+        if (prefer != null) {
+            request.header("Prefer", prefer);
+        }
+
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private EmailRequest emailRequest() {
+        EmailRequest emailRequest = new EmailRequest();
+        emailRequest.setUserId(randomUser());
+        emailRequest.setSubject("Load test");
+        emailRequest.setBody("Body ".repeat(200));
+        return emailRequest;
+    }
+
+    private BatchEmailRequest batchRequest() {
+        List<UUID> recipients = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            recipients.add(randomUser());
+        }
+
+        BatchEmailRequest batchEmailRequest = new BatchEmailRequest();
+        batchEmailRequest.setUserIds(recipients);
+        batchEmailRequest.setSubject("Load test");
+        batchEmailRequest.setBody("Body ".repeat(200));
+        return batchEmailRequest;
+    }
+
+    private UUID randomUser() {
+        return userIds.get(ThreadLocalRandom.current().nextInt(userIds.size()));
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + "/api/v1/emails" + path);
+    }
+}
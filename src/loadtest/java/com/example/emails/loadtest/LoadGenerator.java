@@ -0,0 +1,58 @@
+package com.example.emails.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs {@code requests} calls from {@code concurrency} closed-loop workers, each starting its next call as soon as
+ * the previous one returns, and records every call's latency.
+ */
+final class LoadGenerator {
+
+    private LoadGenerator() {
+    }
+
+    /**
+     * @param call returns false, or throws, when the call counts as an error
+     */
+    static LoadReport run(String name, int concurrency, int requests, Callable<Boolean> call)
+            throws InterruptedException {
+
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong errors = new AtomicLong();
+        List<Thread> workers = new ArrayList<>(concurrency);
+
+        long startNanos = System.nanoTime();
+
+        for (int i = 0; i < concurrency; i++) {
+            workers.add(Thread.ofPlatform().name("load-" + i).start(() -> {
+                int index;
+                while ((index = next.getAndIncrement()) < requests) {
+                    long callStart = System.nanoTime();
+                    try {
+                        if (!call.call()) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[index] = System.nanoTime() - callStart;
+                }
+            }));
+        }
+
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        Arrays.sort(latencies);
+
+        return new LoadReport(name, concurrency, requests, errors.get(), elapsedNanos, latencies);
+    }
+}
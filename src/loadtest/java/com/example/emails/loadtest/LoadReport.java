@@ -0,0 +1,29 @@
+package com.example.emails.loadtest;
+
+import java.util.Locale;
+
+/**
+ * Outcome of one {@link LoadGenerator} run; {@code sortedLatencies} are in nanoseconds, ascending.
+ */
+record LoadReport(String name, int concurrency, int requests, long errors, long elapsedNanos,
+                  long[] sortedLatencies) {
+
+    double throughput() {
+        return requests / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    double percentileMillis(double percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.clamp(index, 0, sortedLatencies.length - 1)] / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%-12s concurrency=%-4d requests=%-6d errors=%-5d throughput=%9.1f/s "
+                        + "p50=%7.2fms p90=%7.2fms p99=%7.2fms p99.9=%7.2fms max=%7.2fms",
+                name, concurrency, requests, errors, throughput(),
+                percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(99.9),
+                percentileMillis(100));
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.emails.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "email.body-store")
+public class EmailBodyStoreProperties {
+
+    /**
+     * Decompressed bodies kept in memory; a campaign body is then stored and decompressed once per instance.
+     */
+    private long cacheSize = 1_000;
+
+    /**
+     * How long a stored body is trusted to still exist before it is stored again, which also refreshes its
+     * {@code createdOn}; retention only deletes unreferenced bodies older than {@code email.retention.orphan-body-grace},
+     * which must be longer than this.
+     */
+    private Duration storedHashTtl = Duration.ofMinutes(10);
+
+}
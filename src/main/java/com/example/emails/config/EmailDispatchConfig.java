@@ -0,0 +1,56 @@
+package com.example.emails.config;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(EmailDispatchProperties.class)
+public class EmailDispatchConfig {
+
+    /**
+     * With {@code spring.threads.virtual.enabled=true} every dispatched email gets its own virtual thread, capped at
+     * {@code virtual-concurrency-limit} in flight; over the cap, the submitting (virtual) thread waits for a free
+     * slot instead of a pool thread sitting idle in a queue.
+     */
+    @Bean
+    public AsyncTaskExecutor emailDispatchExecutor(EmailDispatchProperties properties, Environment environment) {
+
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("email-dispatch-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(properties.getVirtualConcurrencyLimit());
+            executor.setTaskTerminationTimeout(properties.getShutdownTimeout().toMillis());
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getCorePoolSize());
+        executor.setMaxPoolSize(properties.getMaxPoolSize());
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setThreadNamePrefix("email-dispatch-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationMillis(properties.getShutdownTimeout().toMillis());
+        return executor;
+    }
+
+    /**
+     * Runs what a delivery does before it takes a lane slot, i.e. claiming the email and waiting for its rate limit
+     * permit, so that work never queues behind slot tasks in {@link #emailDispatchExecutor}. Each gets its own
+     * virtual thread, as it mostly waits; how many there are at once is bounded by the lanes' {@code queue-capacity}.
+     */
+    @Bean
+    public AsyncTaskExecutor emailPrepareExecutor(EmailDispatchProperties properties) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("email-prepare-");
+        executor.setVirtualThreads(true);
+        executor.setTaskTerminationTimeout(properties.getShutdownTimeout().toMillis());
+        return executor;
+    }
+}
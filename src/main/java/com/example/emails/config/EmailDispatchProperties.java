@@ -0,0 +1,95 @@
+package com.example.emails.config;
+
+import com.example.emails.model.EmailPriority;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "email.dispatch")
+public class EmailDispatchProperties {
+
+    private int corePoolSize = 16;
+
+    private int maxPoolSize = 32;
+
+    private int queueCapacity = 1000;
+
+    /**
+     * Maximum emails in flight when dispatching on virtual threads.
+     */
+    private int virtualConcurrencyLimit = 1000;
+
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+
+    /**
+     * How long an email may stay QUEUED before the sweeper hands it to the dispatcher again,
+     * e.g. because the pool rejected it or the instance restarted before it was sent.
+     */
+    private Duration staleAfter = Duration.ofMinutes(1);
+
+    private int sweepBatchSize = 100;
+
+    /**
+     * How long an email may stay SENDING before the sweeper counts its attempt as failed, e.g. because the
+     * instance died mid-delivery. Keep it well above the longest rate limit wait plus SMTP timeout.
+     */
+    private Duration sendingLease = Duration.ofMinutes(5);
+
+    /**
+     * Emails being delivered at once across all lanes; keep it at or below {@code core-pool-size} on platform
+     * threads, so lanes rather than the pool's FIFO queue decide what runs next. On virtual threads raise it,
+     * and the lane limits with it, towards {@code virtual-concurrency-limit}.
+     */
+    private int maxInFlight = 16;
+
+    /**
+     * How long an inline send waits for a slot in its lane before it counts as a failed attempt.
+     */
+    private Duration laneWaitTimeout = Duration.ofSeconds(30);
+
+    /**
+     * How long lanes wait before handing a delivery to the dispatch executor again after it was rejected.
+     */
+    private Duration rejectedRetryDelay = Duration.ofMillis(200);
+
+    /**
+     * NORMAL and LOW together stay below {@code max-in-flight}, which keeps slots free for HIGH.
+     */
+    private Map<EmailPriority, Lane> lanes = new EnumMap<>(Map.of(
+            EmailPriority.HIGH, new Lane(8, 16, 1_000),
+            EmailPriority.NORMAL, new Lane(4, 10, 1_000),
+            EmailPriority.LOW, new Lane(1, 2, 10_000)));
+
+    @Data
+    public static class Lane {
+
+        /**
+         * Share of {@code max-in-flight} slots this lane gets while other lanes are waiting too.
+         */
+        private int weight;
+
+        /**
+         * Most emails from this lane delivered at once, even when other lanes are idle.
+         */
+        private int maxConcurrency;
+
+        /**
+         * Emails waiting in this lane beyond which dispatch is rejected; queued emails stay QUEUED for the sweeper.
+         */
+        private int queueCapacity;
+
+        public Lane() {
+        }
+
+        public Lane(int weight, int maxConcurrency, int queueCapacity) {
+            this.weight = weight;
+            this.maxConcurrency = maxConcurrency;
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+}
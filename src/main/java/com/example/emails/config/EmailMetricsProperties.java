@@ -0,0 +1,18 @@
+package com.example.emails.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Set;
+
+@Data
+@ConfigurationProperties(prefix = "email.metrics")
+public class EmailMetricsProperties {
+
+    /**
+     * Recipient domains that get their own {@code domain} tag, every other domain is reported as {@code other}
+     * to keep the number of time series bounded.
+     */
+    private Set<String> trackedDomains = Set.of("gmail.com", "yahoo.com", "outlook.com", "hotmail.com");
+
+}
@@ -0,0 +1,30 @@
+package com.example.emails.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "email.retry")
+public class EmailRetryProperties {
+
+    /**
+     * Total delivery attempts, including the first one, before an email is moved to DEAD_LETTER.
+     */
+    private int maxAttempts = 5;
+
+    private Duration initialBackoff = Duration.ofSeconds(30);
+
+    private double multiplier = 2.0;
+
+    private Duration maxBackoff = Duration.ofHours(1);
+
+    /**
+     * Fraction of the backoff that is randomised, so failures from the same outage do not retry in lockstep.
+     */
+    private double jitter = 0.2;
+
+    private int batchSize = 100;
+
+}
@@ -0,0 +1,23 @@
+package com.example.emails.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "email.template")
+public class EmailTemplateProperties {
+
+    /**
+     * Compiled template versions kept in memory; versions are immutable so they never need to expire.
+     */
+    private long maximumSize = 1_000;
+
+    /**
+     * How long an instance keeps serving the version it last saw as latest; new versions are picked up by other
+     * instances within this window without a restart.
+     */
+    private Duration latestVersionTtl = Duration.ofSeconds(30);
+
+}
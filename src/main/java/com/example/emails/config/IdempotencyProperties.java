@@ -0,0 +1,18 @@
+package com.example.emails.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "email.idempotency")
+public class IdempotencyProperties {
+
+    /**
+     * Keys remembered per bloom filter generation; once a generation is full it becomes the previous one and a
+     * fresh generation starts, so the filter always covers between one and two generations of recent keys.
+     */
+    private int expectedKeys = 1_000_000;
+
+    private double falsePositiveRate = 0.01;
+
+}
@@ -0,0 +1,54 @@
+package com.example.emails.config;
+
+import com.example.emails.mail.PipeliningMailSender;
+import jakarta.mail.Session;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Properties;
+
+@Configuration
+@EnableConfigurationProperties({MailProperties.class, MailNioProperties.class})
+@ConditionalOnProperty(prefix = "spring.mail.nio", name = "enabled", havingValue = "true")
+public class MailNioConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.mail.routing", name = "enabled", havingValue = "false",
+            matchIfMissing = true)
+    public PipeliningMailSender pipeliningMailSender(MailProperties mailProperties, MailNioProperties nioProperties) {
+        return createMailSender(mailProperties, nioProperties);
+    }
+
+    static PipeliningMailSender createMailSender(MailProperties mailProperties, MailNioProperties nioProperties) {
+
+        Map<String, String> properties = mailProperties.getProperties();
+
+        if ("smtps".equalsIgnoreCase(mailProperties.getProtocol())
+                || Boolean.parseBoolean(properties.get("mail.smtp.starttls.enable"))
+                || Boolean.parseBoolean(properties.get("mail.smtp.ssl.enable"))) {
+            throw new IllegalStateException("spring.mail.nio only speaks plain SMTP; disable "
+                    + "mail.smtp.starttls.enable and mail.smtp.ssl.enable or turn spring.mail.nio.enabled off.");
+        }
+
+        Properties sessionProperties = new Properties();
+        sessionProperties.putAll(properties);
+
+        String defaultEncoding = mailProperties.getDefaultEncoding() != null
+                ? mailProperties.getDefaultEncoding().name()
+                : StandardCharsets.UTF_8.name();
+
+        return new PipeliningMailSender(
+                Session.getInstance(sessionProperties),
+                mailProperties.getHost(),
+                mailProperties.getPort() != null ? mailProperties.getPort() : 25,
+                mailProperties.getUsername(),
+                mailProperties.getPassword(),
+                defaultEncoding,
+                nioProperties);
+    }
+}
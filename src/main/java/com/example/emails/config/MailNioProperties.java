@@ -0,0 +1,59 @@
+package com.example.emails.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "spring.mail.nio")
+public class MailNioProperties {
+
+    /**
+     * Sends through {@code PipeliningMailSender} instead of JavaMail. Plain SMTP only, no STARTTLS or SSL.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Selector threads; the connections are spread across them.
+     */
+    private int ioThreads = 1;
+
+    /**
+     * Maximum number of SMTP connections open at the same time.
+     */
+    private int connections = 4;
+
+    /**
+     * Messages one connection may have in flight when the server advertises PIPELINING.
+     */
+    private int pipelineDepth = 16;
+
+    private Duration connectTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Longest wait for any single server reply before the connection is dropped.
+     */
+    private Duration replyTimeout = Duration.ofSeconds(60);
+
+    /**
+     * Connections without work for this long are closed with QUIT.
+     */
+    private Duration idleTimeout = Duration.ofSeconds(60);
+
+    /**
+     * Wait before a connection that failed to open is tried again.
+     */
+    private Duration reconnectDelay = Duration.ofSeconds(1);
+
+    /**
+     * Longest time {@code send} waits for its messages to be accepted or rejected.
+     */
+    private Duration sendTimeout = Duration.ofMinutes(2);
+
+    /**
+     * Time given to queued and in-flight messages to finish on shutdown.
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+
+}
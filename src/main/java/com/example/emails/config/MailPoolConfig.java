@@ -0,0 +1,45 @@
+package com.example.emails.config;
+
+import com.example.emails.mail.PooledMailSender;
+import jakarta.mail.Session;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+@Configuration
+@EnableConfigurationProperties({MailProperties.class, MailPoolProperties.class})
+@ConditionalOnProperty(prefix = "spring.mail.pool", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class MailPoolConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.mail", name = {"nio.enabled", "routing.enabled"}, havingValue = "false",
+            matchIfMissing = true)
+    public PooledMailSender pooledMailSender(MailProperties mailProperties, MailPoolProperties poolProperties) {
+        return createMailSender(mailProperties, poolProperties);
+    }
+
+    static PooledMailSender createMailSender(MailProperties mailProperties, MailPoolProperties poolProperties) {
+
+        Properties sessionProperties = new Properties();
+        sessionProperties.putAll(mailProperties.getProperties());
+
+        String defaultEncoding = mailProperties.getDefaultEncoding() != null
+                ? mailProperties.getDefaultEncoding().name()
+                : StandardCharsets.UTF_8.name();
+
+        return new PooledMailSender(
+                Session.getInstance(sessionProperties),
+                mailProperties.getProtocol(),
+                mailProperties.getHost(),
+                mailProperties.getPort() != null ? mailProperties.getPort() : -1,
+                mailProperties.getUsername(),
+                mailProperties.getPassword(),
+                defaultEncoding,
+                poolProperties);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.emails.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "spring.mail.pool")
+public class MailPoolProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of SMTP connections kept open at the same time.
+     */
+    private int size = 4;
+
+    /**
+     * Idle connections older than this are closed instead of being reused.
+     */
+    private Duration idleTimeout = Duration.ofSeconds(60);
+
+    /**
+     * Connections idle for longer than this are probed with NOOP before they are reused.
+     */
+    private Duration validateAfter = Duration.ofSeconds(5);
+
+    private Duration borrowTimeout = Duration.ofSeconds(30);
+
+}
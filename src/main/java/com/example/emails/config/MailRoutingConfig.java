@@ -0,0 +1,134 @@
+package com.example.emails.config;
+
+import com.example.emails.mail.MailRelay;
+import com.example.emails.mail.RoutingMailSender;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Routes mail over {@code spring.mail.routing.relays}. Each relay gets its own sender of the configured kind,
+ * {@code PipeliningMailSender} with {@code spring.mail.nio.enabled}, otherwise {@code PooledMailSender} or, with
+ * {@code spring.mail.pool.enabled=false}, a plain {@link JavaMailSenderImpl}. Relays inherit every
+ * {@code spring.mail} setting they do not override.
+ */
+@Configuration
+@EnableConfigurationProperties({MailProperties.class, MailPoolProperties.class, MailNioProperties.class,
+        MailRoutingProperties.class})
+@ConditionalOnProperty(prefix = "spring.mail.routing", name = "enabled", havingValue = "true")
+public class MailRoutingConfig {
+
+    @Bean
+    public RoutingMailSender routingMailSender(MailProperties mailProperties,
+                                               MailPoolProperties poolProperties,
+                                               MailNioProperties nioProperties,
+                                               MailRoutingProperties routingProperties,
+                                               MeterRegistry registry) {
+
+        if (routingProperties.getRelays().isEmpty()) {
+            throw new IllegalStateException("spring.mail.routing is enabled but has no relays.");
+        }
+
+        List<MailRelay> relays = new ArrayList<>();
+
+        for (MailRoutingProperties.Relay relay : routingProperties.getRelays()) {
+            MailProperties relayProperties = relayMailProperties(mailProperties, relay);
+
+            MailSender sender;
+            if (nioProperties.isEnabled()) {
+                sender = MailNioConfig.createMailSender(relayProperties, nioProperties);
+            } else if (poolProperties.isEnabled()) {
+                sender = MailPoolConfig.createMailSender(relayProperties, poolProperties);
+            } else {
+                sender = javaMailSender(relayProperties);
+            }
+
+            String name = StringUtils.hasText(relay.getName())
+                    ? relay.getName()
+                    : relay.getHost() + ":" + (relay.getPort() != null ? relay.getPort() : "default");
+
+            relays.add(new MailRelay(name, sender, relay.getWeight(),
+                    healthCheck(relayProperties, routingProperties.getHealthCheck().getTimeout())));
+        }
+
+        return new RoutingMailSender(relays, routingProperties, registry);
+    }
+
+    private static MailProperties relayMailProperties(MailProperties defaults, MailRoutingProperties.Relay relay) {
+
+        if (!StringUtils.hasText(relay.getHost())) {
+            throw new IllegalStateException("Every entry of spring.mail.routing.relays needs a host.");
+        }
+
+        MailProperties properties = new MailProperties();
+        properties.setHost(relay.getHost());
+        properties.setPort(relay.getPort() != null ? relay.getPort() : defaults.getPort());
+        properties.setUsername(relay.getUsername() != null ? relay.getUsername() : defaults.getUsername());
+        properties.setPassword(relay.getPassword() != null ? relay.getPassword() : defaults.getPassword());
+        properties.setProtocol(defaults.getProtocol());
+        properties.setDefaultEncoding(defaults.getDefaultEncoding());
+        properties.getProperties().putAll(defaults.getProperties());
+        properties.getProperties().putAll(relay.getProperties());
+        return properties;
+    }
+
+    private static JavaMailSenderImpl javaMailSender(MailProperties mailProperties) {
+
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost(mailProperties.getHost());
+        if (mailProperties.getPort() != null) {
+            sender.setPort(mailProperties.getPort());
+        }
+        sender.setUsername(mailProperties.getUsername());
+        sender.setPassword(mailProperties.getPassword());
+        sender.setProtocol(mailProperties.getProtocol());
+        sender.setDefaultEncoding(mailProperties.getDefaultEncoding() != null
+                ? mailProperties.getDefaultEncoding().name()
+                : StandardCharsets.UTF_8.name());
+
+        Properties sessionProperties = new Properties();
+        sessionProperties.putAll(mailProperties.getProperties());
+        sender.setJavaMailProperties(sessionProperties);
+        return sender;
+    }
+
+    /**
+     * Connects and authenticates the way a sender would, over its own JavaMail session with bounded timeouts.
+     */
+    private static MailRelay.HealthCheck healthCheck(MailProperties mailProperties, Duration timeout) {
+
+        String protocol = mailProperties.getProtocol();
+        String timeoutMillis = Long.toString(timeout.toMillis());
+
+        Properties sessionProperties = new Properties();
+        sessionProperties.putAll(mailProperties.getProperties());
+        sessionProperties.setProperty("mail." + protocol + ".connectiontimeout", timeoutMillis);
+        sessionProperties.setProperty("mail." + protocol + ".timeout", timeoutMillis);
+        Session session = Session.getInstance(sessionProperties);
+
+        String host = mailProperties.getHost();
+        int port = mailProperties.getPort() != null ? mailProperties.getPort() : -1;
+        String username = StringUtils.hasLength(mailProperties.getUsername()) ? mailProperties.getUsername() : null;
+        String password = StringUtils.hasLength(mailProperties.getPassword()) ? mailProperties.getPassword() : null;
+
+        return () -> {
+            try (Transport transport = session.getTransport(protocol)) {
+                transport.connect(host, port, username, password);
+            }
+        };
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.emails.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "spring.mail.routing")
+public class MailRoutingProperties {
+
+    /**
+     * Spreads mail over {@code relays} instead of the single {@code spring.mail.host}.
+     */
+    private boolean enabled = false;
+
+    private List<Relay> relays = new ArrayList<>();
+
+    /**
+     * Relays one send may try before its messages fail; a message is never offered to the same relay twice.
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * Weight of the newest sample in each relay's moving latency average.
+     */
+    private double latencySmoothing = 0.2;
+
+    private Circuit circuit = new Circuit();
+
+    private HealthCheck healthCheck = new HealthCheck();
+
+    @Data
+    public static class Relay {
+
+        /**
+         * Tag on the relay's meters; defaults to {@code host:port}.
+         */
+        private String name;
+
+        private String host;
+
+        private Integer port;
+
+        private String username;
+
+        private String password;
+
+        /**
+         * Share of traffic at equal latency; a relay twice as slow as another gets half its weight's share.
+         */
+        private int weight = 1;
+
+        /**
+         * JavaMail session properties, on top of {@code spring.mail.properties}.
+         */
+        private Map<String, String> properties = new HashMap<>();
+
+    }
+
+    @Data
+    public static class Circuit {
+
+        /**
+         * Latest sends per relay the failure rate is computed over.
+         */
+        private int windowSize = 20;
+
+        /**
+         * Sends a relay needs in its window before its circuit can open.
+         */
+        private int minimumCalls = 10;
+
+        /**
+         * Share of failed sends in the window that opens the circuit; rejected recipients do not count.
+         */
+        private double failureRateThreshold = 0.5;
+
+        /**
+         * Time an open circuit stays open before a passing health check lets one trial send through.
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+
+    }
+
+    @Data
+    public static class HealthCheck {
+
+        /**
+         * Delay between health checks, which connect and authenticate to every relay.
+         */
+        private Duration interval = Duration.ofSeconds(10);
+
+        /**
+         * Connect and read timeout of one health check.
+         */
+        private Duration timeout = Duration.ofSeconds(5);
+
+    }
+}
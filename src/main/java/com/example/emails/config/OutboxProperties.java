@@ -0,0 +1,23 @@
+package com.example.emails.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "email.outbox")
+public class OutboxProperties {
+
+    private int batchSize = 200;
+
+    /**
+     * Also publish every relayed email to {@code topic} before its outbox row is deleted.
+     */
+    private boolean publishToKafka = false;
+
+    private String topic = "email.events";
+
+    private Duration publishTimeout = Duration.ofSeconds(10);
+
+}
@@ -0,0 +1,20 @@
+package com.example.emails.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "email.preference-bulk")
+public class PreferenceBulkProperties {
+
+    /**
+     * Rows per upsert batch and transaction on import.
+     */
+    private int importChunkSize = 1_000;
+
+    /**
+     * Rows read per keyset page on export.
+     */
+    private int exportPageSize = 1_000;
+
+}
@@ -0,0 +1,16 @@
+package com.example.emails.config;
+
+import com.example.emails.service.EmailPreferenceCache;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(PreferenceCacheProperties.class)
+public class PreferenceCacheConfig {
+
+    @Bean
+    public EmailPreferenceCache emailPreferenceCache(PreferenceCacheProperties properties) {
+        return new EmailPreferenceCache(properties);
+    }
+}
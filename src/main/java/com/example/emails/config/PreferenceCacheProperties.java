@@ -0,0 +1,19 @@
+package com.example.emails.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "email.preference-cache")
+public class PreferenceCacheProperties {
+
+    private long maximumSize = 10_000;
+
+    /**
+     * Upper bound on how stale a preference can be on instances that did not handle the write themselves.
+     */
+    private Duration expireAfterWrite = Duration.ofSeconds(30);
+
+}
@@ -0,0 +1,51 @@
+package com.example.emails.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "email.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Longest a send may be delayed to stay within its limits; beyond this it is rejected and retried later.
+     */
+    private Duration maxWait = Duration.ofSeconds(5);
+
+    private Limit global = new Limit(100, 100);
+
+    private Limit defaultDomain = new Limit(20, 20);
+
+    /**
+     * Per-domain overrides, e.g. {@code email.rate-limit.domains[gmail.com].rate=10}.
+     */
+    private Map<String, Limit> domains = new HashMap<>();
+
+    @Data
+    public static class Limit {
+
+        /**
+         * Sustained messages per second, zero or less disables the limit.
+         */
+        private double rate;
+
+        /**
+         * Messages that may be sent back to back before the rate applies.
+         */
+        private int burst;
+
+        public Limit() {
+        }
+
+        public Limit(double rate, int burst) {
+            this.rate = rate;
+            this.burst = burst;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.emails.config;
+
+import com.example.emails.model.EmailStatus;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "email.retention")
+public class RetentionProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Delay between the end of one run and the start of the next, for both retention and partition maintenance.
+     */
+    private Duration interval = Duration.ofHours(1);
+
+    private Duration initialDelay = Duration.ofMinutes(5);
+
+    /**
+     * How long emails are kept per status, measured from {@code createdOn}; statuses without a TTL, such as
+     * QUEUED and SENDING, are never purged.
+     */
+    private Map<EmailStatus, Duration> ttl = new EnumMap<>(Map.of(
+            EmailStatus.SUCCEEDED, Duration.ofDays(90),
+            EmailStatus.FAILED, Duration.ofDays(180),
+            EmailStatus.DEAD_LETTER, Duration.ofDays(180)));
+
+    /**
+     * Rows deleted per transaction, which bounds how long row locks are held.
+     */
+    private int batchSize = 500;
+
+    /**
+     * Pause between batches, leaving room for regular traffic and replication.
+     */
+    private Duration pauseBetweenBatches = Duration.ofMillis(100);
+
+    /**
+     * When set, purged emails are first appended to gzipped NDJSON files in this directory.
+     */
+    private Path archiveDirectory;
+
+    /**
+     * Bodies no email references any more are deleted once they were last stored longer ago than this.
+     */
+    private Duration orphanBodyGrace = Duration.ofDays(1);
+
+    private Partitioning partitioning = new Partitioning();
+
+    @Data
+    public static class Partitioning {
+
+        /**
+         * Only for an {@code email} table converted with {@code db/mysql/email-partitioning.sql}.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Monthly partitions kept created ahead of the current month.
+         */
+        private int monthsAhead = 3;
+
+    }
+}
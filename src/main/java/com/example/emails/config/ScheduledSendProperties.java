@@ -0,0 +1,34 @@
+package com.example.emails.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "email.scheduled")
+public class ScheduledSendProperties {
+
+    /**
+     * Timer wheel resolution; scheduled emails are dispatched at most this late.
+     */
+    private Duration tick = Duration.ofMillis(100);
+
+    private int wheelSize = 64;
+
+    private Duration loadInterval = Duration.ofSeconds(10);
+
+    /**
+     * How far ahead emails are claimed into memory; must exceed {@code load-interval} so no email is loaded late.
+     */
+    private Duration lookahead = Duration.ofSeconds(30);
+
+    private int batchSize = 500;
+
+    /**
+     * Most emails handed to the dispatcher per tick; a burst due at the same moment, such as on the hour, is spread
+     * over the following ticks instead.
+     */
+    private int dispatchPerTick = 50;
+
+}
@@ -0,0 +1,37 @@
+package com.example.emails.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "email.write-behind")
+public class WriteBehindProperties {
+
+    /**
+     * When disabled, every delivery outcome is written to the database right away.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Buffered outcomes that trigger a flush without waiting for {@code flush-interval}.
+     */
+    private int maxBatchSize = 200;
+
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    /**
+     * Local directory for the journal of outcomes not yet flushed; it is replayed on startup, so it must survive
+     * restarts.
+     */
+    private Path journalDirectory = Path.of("write-behind");
+
+    /**
+     * Waits until every journal append is forced to disk, with one force shared by the outcomes written meanwhile.
+     * Without it the journal survives a process crash but not a power loss.
+     */
+    private boolean fsync = false;
+
+}
@@ -0,0 +1,84 @@
+package com.example.emails.kafka;
+
+import com.example.emails.service.EmailService;
+import com.example.emails.web.dto.EmailRequest;
+import com.example.emails.web.dto.UpsertPreference;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Consumes email commands in batches. The container commits a batch's offsets only after this listener returns,
+ * i.e. after every {@code Email} row of the batch has been persisted. When a record fails for an infrastructure
+ * reason, {@link BatchListenerFailedException} makes the error handler commit the records before it and redeliver
+ * from the failed one, so already persisted emails are not queued twice.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "email.kafka", name = "enabled", havingValue = "true")
+public class EmailCommandListener {
+
+    private final EmailService emailService;
+
+    public EmailCommandListener(EmailService emailService) {
+        this.emailService = emailService;
+    }
+
+    @KafkaListener(
+            id = "email-send-commands",
+            topics = "${email.kafka.send-topic}",
+            concurrency = "${email.kafka.concurrency}",
+            batch = "true",
+            properties = "spring.json.value.default.type=com.example.emails.web.dto.EmailRequest")
+    public void onSendCommands(List<ConsumerRecord<String, EmailRequest>> records) {
+
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, EmailRequest> record = records.get(i);
+
+            if (record.value() == null) {
+                log.warn("Skipping undeserializable send command at {}-{}@{}",
+                        record.topic(), record.partition(), record.offset());
+                continue;
+            }
+
+            try {
+                emailService.queueEmail(record.value());
+            } catch (IllegalArgumentException | NullPointerException e) {
+                log.warn("Rejected send command at {}-{}@{}: {}",
+                        record.topic(), record.partition(), record.offset(), e.getMessage());
+            } catch (RuntimeException e) {
+                throw new BatchListenerFailedException("Failed to queue send command.", e, i);
+            }
+        }
+    }
+
+    @KafkaListener(
+            id = "email-preference-upserts",
+            topics = "${email.kafka.preference-topic}",
+            concurrency = "${email.kafka.concurrency}",
+            batch = "true",
+            properties = "spring.json.value.default.type=com.example.emails.web.dto.UpsertPreference")
+    public void onPreferenceUpserts(List<ConsumerRecord<String, UpsertPreference>> records) {
+
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, UpsertPreference> record = records.get(i);
+
+            if (record.value() == null) {
+                log.warn("Skipping undeserializable preference upsert at {}-{}@{}",
+                        record.topic(), record.partition(), record.offset());
+                continue;
+            }
+
+            try {
+                emailService.upsertPreference(record.value());
+            } catch (RuntimeException e) {
+                throw new BatchListenerFailedException("Failed to upsert preference.", e, i);
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.emails.kafka;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record EmailQueuedEvent(UUID emailId, UUID userId, String subject, LocalDateTime createdOn) {
+}
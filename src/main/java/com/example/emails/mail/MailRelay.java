@@ -0,0 +1,20 @@
+package com.example.emails.mail;
+
+import org.springframework.mail.MailSender;
+
+/**
+ * One SMTP relay {@link RoutingMailSender} can send through.
+ *
+ * @param name        tag on the relay's meters
+ * @param sender      sends to this relay only
+ * @param weight      share of traffic at equal latency
+ * @param healthCheck throws when the relay cannot take mail, e.g. it refuses connections or authentication
+ */
+public record MailRelay(String name, MailSender sender, int weight, HealthCheck healthCheck) {
+
+    @FunctionalInterface
+    public interface HealthCheck {
+
+        void check() throws Exception;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.emails.mail;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.MimeMailMessage;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.util.Date;
+
+final class MimeMessages {
+
+    private MimeMessages() {
+    }
+
+    /**
+     * Same conversion {@code JavaMailSenderImpl} applies, so every engine sends identical messages.
+     */
+    static MimeMessage toMimeMessage(Session session, String defaultEncoding, SimpleMailMessage simpleMessage)
+            throws MessagingException {
+
+        MimeMessage mimeMessage = new MimeMessage(session);
+        MimeMailMessage mimeMailMessage = new MimeMailMessage(new MimeMessageHelper(mimeMessage, defaultEncoding));
+        simpleMessage.copyTo(mimeMailMessage);
+
+        if (mimeMessage.getSentDate() == null) {
+            mimeMessage.setSentDate(new Date());
+        }
+        mimeMessage.saveChanges();
+
+        return mimeMessage;
+    }
+}
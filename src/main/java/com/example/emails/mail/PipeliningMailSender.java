@@ -0,0 +1,377 @@
+package com.example.emails.mail;
+
+import com.example.emails.config.MailNioProperties;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.util.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link MailSender} on non-blocking sockets: {@code io-threads} selector threads drive up to {@code connections}
+ * SMTP sessions, and each session pipelines up to {@code pipeline-depth} messages when the server supports it
+ * (see {@link SmtpConnection}). Callers only wait for their own messages; no thread is held per connection, so
+ * throughput is bounded by the server and the network rather than by threads blocked in socket reads.
+ * <p>
+ * Messages from all callers share one queue. Connections open when messages are waiting and close with QUIT once
+ * idle. When no connection can be opened at all, waiting messages fail right away rather than at
+ * {@code send-timeout}. Only plain SMTP and AUTH PLAIN are supported, for relays on a trusted network.
+ */
+public class PipeliningMailSender implements MailSender, DisposableBean {
+
+    private static final long SELECT_TIMEOUT_MILLIS = 100;
+    private static final String[] IGNORED_HEADERS = {"Bcc", "Content-Length"};
+
+    private final Session session;
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final String defaultEncoding;
+    private final MailNioProperties properties;
+    private final String heloName;
+
+    private final Queue<SmtpTransaction> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicInteger unfinished = new AtomicInteger();
+    private final AtomicInteger readyConnections = new AtomicInteger();
+    private final List<EventLoop> eventLoops = new ArrayList<>();
+    private volatile boolean shuttingDown;
+
+    public PipeliningMailSender(Session session,
+                                String host,
+                                int port,
+                                String username,
+                                String password,
+                                String defaultEncoding,
+                                MailNioProperties properties) {
+        this.session = session;
+        this.host = host;
+        this.port = port;
+        this.username = StringUtils.hasLength(username) ? username : null;
+        this.password = StringUtils.hasLength(password) ? password : null;
+        this.defaultEncoding = defaultEncoding;
+        this.properties = properties;
+        this.heloName = heloName(session);
+
+        int ioThreads = Math.max(1, Math.min(properties.getIoThreads(), properties.getConnections()));
+        for (int i = 0; i < ioThreads; i++) {
+            // Connections are dealt out round-robin, so the loops differ by at most one.
+            int connections = properties.getConnections() / ioThreads
+                    + (i < properties.getConnections() % ioThreads ? 1 : 0);
+            eventLoops.add(new EventLoop(i, connections));
+        }
+    }
+
+    @Override
+    public void send(SimpleMailMessage simpleMessage) throws MailException {
+        send(new SimpleMailMessage[]{simpleMessage});
+    }
+
+    /**
+     * Queues all messages and waits until each is accepted or rejected. Failures are reported together through
+     * {@link MailSendException#getFailedMessages()}, keyed by the original message.
+     */
+    @Override
+    public void send(SimpleMailMessage... simpleMessages) throws MailException {
+
+        if (shuttingDown) {
+            throw new MailSendException("Mail sender is shutting down.");
+        }
+
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        List<SmtpTransaction> transactions = new ArrayList<>(simpleMessages.length);
+
+        for (SimpleMailMessage simpleMessage : simpleMessages) {
+            try {
+                transactions.add(toTransaction(simpleMessage));
+            } catch (MessagingException | IOException e) {
+                failedMessages.put(simpleMessage, e);
+            }
+        }
+
+        for (SmtpTransaction transaction : transactions) {
+            unfinished.incrementAndGet();
+            transaction.result().whenComplete((ignored, failure) -> unfinished.decrementAndGet());
+            pendingCount.incrementAndGet();
+            pending.add(transaction);
+        }
+        eventLoops.forEach(EventLoop::wakeup);
+
+        long deadline = System.nanoTime() + properties.getSendTimeout().toNanos();
+
+        for (SmtpTransaction transaction : transactions) {
+            try {
+                transaction.result().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                failedMessages.put(transaction.message(),
+                        e.getCause() instanceof Exception cause ? cause : new MailSendException("Send failed.", e));
+            } catch (TimeoutException e) {
+                // Still queued means never sent; once on a connection it may yet be delivered.
+                if (pending.remove(transaction)) {
+                    pendingCount.decrementAndGet();
+                }
+                transaction.result().cancel(false);
+                failedMessages.put(transaction.message(), new MailSendException("Timed out sending message.", e));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MailSendException("Interrupted while sending messages.", e);
+            }
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    /**
+     * Stops taking messages, gives queued and in-flight ones up to {@code shutdown-timeout} to finish, then closes
+     * every connection, failing whatever is left.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+
+        shuttingDown = true;
+        long deadline = System.nanoTime() + properties.getShutdownTimeout().toNanos();
+
+        while (unfinished.get() > 0 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+
+        for (EventLoop eventLoop : eventLoops) {
+            eventLoop.stop();
+        }
+
+        MailSendException shutdown = new MailSendException("Mail sender was shut down.");
+        SmtpTransaction transaction;
+        while ((transaction = poll()) != null) {
+            transaction.result().completeExceptionally(shutdown);
+        }
+    }
+
+    String host() {
+        return host;
+    }
+
+    int port() {
+        return port;
+    }
+
+    String username() {
+        return username;
+    }
+
+    String password() {
+        return password;
+    }
+
+    String heloName() {
+        return heloName;
+    }
+
+    MailNioProperties properties() {
+        return properties;
+    }
+
+    boolean hasPending() {
+        return pendingCount.get() > 0;
+    }
+
+    /**
+     * Next queued message, skipping ones whose sender stopped waiting.
+     */
+    SmtpTransaction poll() {
+
+        SmtpTransaction transaction;
+
+        while ((transaction = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            if (!transaction.result().isDone()) {
+                return transaction;
+            }
+        }
+
+        return null;
+    }
+
+    void connectionReady() {
+        readyConnections.incrementAndGet();
+    }
+
+    void connectionClosed(boolean wasReady, Exception cause) {
+
+        if (wasReady) {
+            readyConnections.decrementAndGet();
+        } else if (readyConnections.get() == 0) {
+            // Nothing else can send what is queued, so fail it now instead of at send-timeout.
+            MailSendException failure = new MailSendException(
+                    "Cannot open an SMTP connection to [%s:%d].".formatted(host, port), cause);
+            SmtpTransaction transaction;
+            while ((transaction = poll()) != null) {
+                transaction.result().completeExceptionally(failure);
+            }
+        }
+    }
+
+    private SmtpTransaction toTransaction(SimpleMailMessage simpleMessage) throws MessagingException, IOException {
+
+        MimeMessage mimeMessage = MimeMessages.toMimeMessage(session, defaultEncoding, simpleMessage);
+
+        Address[] allRecipients = mimeMessage.getAllRecipients();
+        if (allRecipients == null || allRecipients.length == 0) {
+            throw new MessagingException("Message has no recipients.");
+        }
+
+        List<String> recipients = new ArrayList<>(allRecipients.length);
+        for (Address recipient : allRecipients) {
+            recipients.add(((InternetAddress) recipient).getAddress());
+        }
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream(1024);
+        try (SmtpDataOutputStream data = new SmtpDataOutputStream(content)) {
+            mimeMessage.writeTo(data, IGNORED_HEADERS);
+        }
+
+        return new SmtpTransaction(simpleMessage, envelopeSender(mimeMessage), recipients, content.toByteArray());
+    }
+
+    /**
+     * Same precedence as JavaMail: {@code mail.smtp.from}, then the From header, then the local address.
+     */
+    private String envelopeSender(MimeMessage mimeMessage) throws MessagingException {
+
+        String configured = session.getProperty("mail.smtp.from");
+        if (StringUtils.hasLength(configured)) {
+            return configured;
+        }
+
+        Address[] from = mimeMessage.getFrom();
+        if (from != null && from.length > 0) {
+            return ((InternetAddress) from[0]).getAddress();
+        }
+
+        InternetAddress local = InternetAddress.getLocalAddress(session);
+        return local != null ? local.getAddress() : "";
+    }
+
+    private static String heloName(Session session) {
+
+        String configured = session.getProperty("mail.smtp.localhost");
+        if (StringUtils.hasLength(configured)) {
+            return configured;
+        }
+
+        try {
+            return InetAddress.getLocalHost().getCanonicalHostName();
+        } catch (IOException e) {
+            return "localhost";
+        }
+    }
+
+    /**
+     * One selector thread and the connections it owns. Connection state is only touched on this thread.
+     */
+    private final class EventLoop implements Runnable {
+
+        private final Selector selector;
+        private final List<SmtpConnection> connections = new ArrayList<>();
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        private EventLoop(int index, int connectionCount) {
+            try {
+                this.selector = Selector.open();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            for (int i = 0; i < connectionCount; i++) {
+                connections.add(new SmtpConnection(PipeliningMailSender.this, selector));
+            }
+
+            this.thread = Thread.ofPlatform().daemon().name("smtp-io-" + index).start(this);
+        }
+
+        private void wakeup() {
+            selector.wakeup();
+        }
+
+        private void stop() throws InterruptedException {
+            running = false;
+            selector.wakeup();
+            thread.join(properties.getShutdownTimeout().toMillis() + 1_000);
+        }
+
+        @Override
+        public void run() {
+
+            while (running) {
+                try {
+                    selector.select(SELECT_TIMEOUT_MILLIS);
+                } catch (IOException e) {
+                    break;
+                }
+
+                long now = System.nanoTime();
+
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+                    ((SmtpConnection) key.attachment()).handle(key, now);
+                }
+
+                for (SmtpConnection connection : connections) {
+                    connection.tick(now);
+                }
+
+                // Work left after every ready connection took its share: open one more per round.
+                if (hasPending()) {
+                    for (SmtpConnection connection : connections) {
+                        if (connection.canOpen(now)) {
+                            connection.open(now);
+                            break;
+                        }
+                    }
+                }
+            }
+
+            MailSendException shutdown = new MailSendException("Mail sender was shut down.");
+            for (SmtpConnection connection : connections) {
+                if (!connection.isClosed()) {
+                    connection.fail(shutdown, System.nanoTime());
+                }
+            }
+
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // Shutting down anyway.
+            }
+        }
+    }
+}
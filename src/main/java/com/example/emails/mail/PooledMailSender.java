@@ -0,0 +1,228 @@
+package com.example.emails.mail;
+
+import com.example.emails.config.MailPoolProperties;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.util.StringUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MailSender} that keeps up to {@code size} authenticated SMTP connections open and reuses them
+ * across sends, so the TCP/TLS handshake and AUTH are paid once per connection instead of once per message.
+ * <p>
+ * The pool itself only uses {@link Semaphore} and a lock-based deque, so waiting for a connection does not pin
+ * a virtual thread. JavaMail's {@code SMTPTransport} does synchronize around socket I/O, so at most {@code size}
+ * carrier threads can be pinned by SMTP at a time; keep {@code size} below the virtual thread scheduler's
+ * parallelism.
+ */
+public class PooledMailSender implements MailSender, DisposableBean {
+
+    private final Session session;
+    private final String protocol;
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final String defaultEncoding;
+    private final MailPoolProperties poolProperties;
+
+    private final Semaphore permits;
+    private final BlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+
+    public PooledMailSender(Session session,
+                            String protocol,
+                            String host,
+                            int port,
+                            String username,
+                            String password,
+                            String defaultEncoding,
+                            MailPoolProperties poolProperties) {
+        this.session = session;
+        this.protocol = protocol;
+        this.host = host;
+        this.port = port;
+        this.username = StringUtils.hasLength(username) ? username : null;
+        this.password = StringUtils.hasLength(password) ? password : null;
+        this.defaultEncoding = defaultEncoding;
+        this.poolProperties = poolProperties;
+        this.permits = new Semaphore(poolProperties.getSize(), true);
+    }
+
+    @Override
+    public void send(SimpleMailMessage simpleMessage) throws MailException {
+        send(new SimpleMailMessage[]{simpleMessage});
+    }
+
+    /**
+     * Sends all messages over one pooled connection. A rejected recipient only fails its own message; if the
+     * connection itself breaks, it is replaced and the remaining messages continue on the new one. Failures are
+     * reported together through {@link MailSendException#getFailedMessages()}, keyed by the original message.
+     */
+    @Override
+    public void send(SimpleMailMessage... simpleMessages) throws MailException {
+
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        PooledTransport transport = borrow();
+        boolean healthy = true;
+        int next = 0;
+
+        try {
+            for (; next < simpleMessages.length; next++) {
+                SimpleMailMessage simpleMessage = simpleMessages[next];
+
+                if (!healthy) {
+                    close(transport);
+                    transport = new PooledTransport(connect(), System.nanoTime());
+                    healthy = true;
+                }
+
+                MimeMessage mimeMessage;
+                try {
+                    mimeMessage = MimeMessages.toMimeMessage(session, defaultEncoding, simpleMessage);
+                } catch (MessagingException e) {
+                    failedMessages.put(simpleMessage, e);
+                    continue;
+                }
+
+                try {
+                    transport.transport().sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+                } catch (SendFailedException e) {
+                    failedMessages.put(simpleMessage, e);
+                } catch (MessagingException e) {
+                    failedMessages.put(simpleMessage, e);
+                    healthy = false;
+                }
+            }
+        } catch (MessagingException e) {
+            // Reconnecting failed, nothing from here on can be sent.
+            healthy = false;
+            for (; next < simpleMessages.length; next++) {
+                failedMessages.put(simpleMessages[next], e);
+            }
+        } finally {
+            release(transport, healthy);
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    @Override
+    public void destroy() {
+        PooledTransport transport;
+        while ((transport = idle.pollFirst()) != null) {
+            close(transport);
+        }
+    }
+
+    protected Transport connect() throws MessagingException {
+        Transport transport = session.getTransport(protocol);
+        transport.connect(host, port, username, password);
+        return transport;
+    }
+
+    private PooledTransport borrow() {
+
+        try {
+            if (!permits.tryAcquire(poolProperties.getBorrowTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new MailSendException("Timed out waiting for a pooled SMTP connection.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while waiting for a pooled SMTP connection.", e);
+        }
+
+        try {
+            PooledTransport transport;
+            while ((transport = idle.pollFirst()) != null) {
+                if (isReusable(transport)) {
+                    return transport;
+                }
+                close(transport);
+            }
+
+            return new PooledTransport(connect(), System.nanoTime());
+        } catch (jakarta.mail.AuthenticationFailedException e) {
+            permits.release();
+            throw new MailAuthenticationException(e);
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw new MailSendException("Failed to open SMTP connection to [%s:%d].".formatted(host, port), e);
+        }
+    }
+
+    private void release(PooledTransport transport, boolean healthy) {
+
+        try {
+            if (healthy) {
+                // Most recently used connections go to the head, so the tail ages out under low load.
+                idle.offerFirst(new PooledTransport(transport.transport(), System.nanoTime()));
+            } else {
+                close(transport);
+            }
+            evictExpired();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean isReusable(PooledTransport transport) {
+
+        long idleNanos = System.nanoTime() - transport.lastUsedNanos();
+
+        if (idleNanos > poolProperties.getIdleTimeout().toNanos()) {
+            return false;
+        }
+
+        if (idleNanos > poolProperties.getValidateAfter().toNanos()) {
+            // For SMTP, isConnected() issues a NOOP and reports false if the server dropped us.
+            return transport.transport().isConnected();
+        }
+
+        return true;
+    }
+
+    private void evictExpired() {
+
+        long timeoutNanos = poolProperties.getIdleTimeout().toNanos();
+        PooledTransport oldest;
+
+        while ((oldest = idle.peekLast()) != null
+                && System.nanoTime() - oldest.lastUsedNanos() > timeoutNanos) {
+            if (idle.removeLastOccurrence(oldest)) {
+                close(oldest);
+            }
+        }
+    }
+
+    private void close(PooledTransport transport) {
+        try {
+            transport.transport().close();
+        } catch (MessagingException e) {
+            // The connection is being discarded anyway.
+        }
+    }
+
+    private record PooledTransport(Transport transport, long lastUsedNanos) {
+    }
+}
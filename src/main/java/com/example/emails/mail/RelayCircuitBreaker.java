@@ -0,0 +1,143 @@
+package com.example.emails.mail;
+
+/**
+ * Circuit breaker of one relay. CLOSED takes every send and opens once at least {@code minimumCalls} of the last
+ * {@code windowSize} sends were recorded and {@code failureRateThreshold} of them failed. OPEN takes nothing until
+ * it has been open for {@code openDuration} and a health check passes, which makes it HALF_OPEN: one trial send
+ * at a time, whose success closes the circuit and whose failure opens it again. Not thread-safe, callers
+ * synchronize.
+ */
+final class RelayCircuitBreaker {
+
+    enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationNanos;
+
+    private State state = State.CLOSED;
+    private int calls;
+    private int failures;
+    private int next;
+    private long openedAtNanos;
+    private boolean trialInFlight;
+
+    RelayCircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long openDurationNanos) {
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDurationNanos;
+    }
+
+    State state() {
+        return state;
+    }
+
+    boolean isAvailable() {
+        return state == State.CLOSED || state == State.HALF_OPEN && !trialInFlight;
+    }
+
+    /**
+     * Called for the relay a send was routed to; in HALF_OPEN that send is the trial.
+     */
+    void acquire() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = true;
+        }
+    }
+
+    /**
+     * @return whether this result opened the circuit
+     */
+    boolean record(boolean success, long nowNanos) {
+
+        switch (state) {
+            case HALF_OPEN -> {
+                trialInFlight = false;
+                if (success) {
+                    close();
+                    return false;
+                }
+                open(nowNanos);
+                return true;
+            }
+            case OPEN -> {
+                // A send that started before the circuit opened.
+                return false;
+            }
+            default -> {
+                add(success);
+                if (calls >= minimumCalls && failures >= failureRateThreshold * calls) {
+                    open(nowNanos);
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Outcome of a health check. A failed check counts as a failed send; a passed one lets an open circuit that
+     * waited {@code openDuration} try a send again.
+     *
+     * @return whether this check opened the circuit
+     */
+    boolean probe(boolean healthy, long nowNanos) {
+
+        if (state == State.OPEN) {
+            if (healthy && nowNanos - openedAtNanos >= openDurationNanos) {
+                state = State.HALF_OPEN;
+                trialInFlight = false;
+            }
+            return false;
+        }
+
+        if (healthy) {
+            return false;
+        }
+
+        if (state == State.HALF_OPEN) {
+            open(nowNanos);
+            return true;
+        }
+
+        return record(false, nowNanos);
+    }
+
+    private void add(boolean success) {
+
+        if (calls == window.length) {
+            if (!window[next]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+
+        window[next] = success;
+        if (!success) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+    }
+
+    private void open(long nowNanos) {
+        state = State.OPEN;
+        openedAtNanos = nowNanos;
+        reset();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        reset();
+    }
+
+    private void reset() {
+        calls = 0;
+        failures = 0;
+        next = 0;
+    }
+}
@@ -0,0 +1,394 @@
+package com.example.emails.mail;
+
+import com.example.emails.config.MailRoutingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.ParseException;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSenderFailedException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MailSender} that spreads messages over several {@link MailRelay}s. Each send goes to one relay, picked by
+ * smooth weighted round-robin over the relays whose circuit takes traffic, with each relay's weight scaled down
+ * by how much slower it has been than the fastest one. Messages the relay fails for reasons of its own, such as a
+ * refused connection, a timeout or a transient 4xx reply, are retried on the next relay, up to
+ * {@code max-attempts} relays per send; permanent 5xx rejections are final, since another relay would only reject
+ * them again.
+ * <p>
+ * Each relay has a {@link RelayCircuitBreaker} fed by its sends and by a health check every
+ * {@code health-check.interval}, so a relay that starts failing stops getting traffic until it recovers. When no
+ * relay takes traffic, sends fail right away and are left to the retry scheduler.
+ * <p>
+ * Meters, tagged by relay: the {@code email.relay.send} timer tagged with the outcome ({@code success},
+ * {@code rejected} or {@code failure}), the {@code email.relay.latency} gauge with the moving per-message latency,
+ * the {@code email.relay.circuit.state} gauge (0 closed, 1 half-open, 2 open), the {@code email.relay.healthy}
+ * gauge with the last health check, and the {@code email.relay.circuit.opened} and {@code email.relay.failover}
+ * counters, the latter counting messages handed on to another relay.
+ */
+@Slf4j
+public class RoutingMailSender implements MailSender, DisposableBean {
+
+    private final List<Relay> relays = new ArrayList<>();
+    private final int maxAttempts;
+    private final double latencySmoothing;
+    private final ThreadPoolTaskScheduler healthChecker;
+
+    public RoutingMailSender(List<MailRelay> mailRelays, MailRoutingProperties properties, MeterRegistry registry) {
+        this.maxAttempts = Math.max(1, properties.getMaxAttempts());
+        this.latencySmoothing = properties.getLatencySmoothing();
+
+        MailRoutingProperties.Circuit circuit = properties.getCircuit();
+        for (MailRelay mailRelay : mailRelays) {
+            Relay relay = new Relay(mailRelay, new RelayCircuitBreaker(circuit.getWindowSize(),
+                    circuit.getMinimumCalls(), circuit.getFailureRateThreshold(),
+                    circuit.getOpenDuration().toNanos()), registry);
+            relays.add(relay);
+
+            TimeGauge.builder("email.relay.latency", this, TimeUnit.NANOSECONDS, self -> self.latencyNanos(relay))
+                    .description("Moving average of the time the relay takes per message")
+                    .tag("relay", relay.name)
+                    .register(registry);
+            Gauge.builder("email.relay.circuit.state", this, self -> self.circuitState(relay).ordinal())
+                    .description("Circuit of the relay: 0 closed, 1 half-open, 2 open")
+                    .tag("relay", relay.name)
+                    .register(registry);
+            Gauge.builder("email.relay.healthy", this, self -> self.isHealthy(relay) ? 1 : 0)
+                    .description("Whether the relay passed its last health check")
+                    .tag("relay", relay.name)
+                    .register(registry);
+        }
+
+        // Its own thread, so a relay that hangs until the timeout does not hold up other @Scheduled jobs.
+        this.healthChecker = new ThreadPoolTaskScheduler();
+        this.healthChecker.setThreadNamePrefix("email-relay-health-");
+        this.healthChecker.initialize();
+        this.healthChecker.scheduleWithFixedDelay(this::checkHealth,
+                Instant.now().plus(properties.getHealthCheck().getInterval()),
+                properties.getHealthCheck().getInterval());
+    }
+
+    @Override
+    public void send(SimpleMailMessage simpleMessage) throws MailException {
+        send(new SimpleMailMessage[]{simpleMessage});
+    }
+
+    /**
+     * Sends all messages through one relay and hands whatever it failed to the next one. Failures are reported
+     * together through {@link MailSendException#getFailedMessages()}, keyed by the original message, each with
+     * the error from the last relay that tried it.
+     */
+    @Override
+    public void send(SimpleMailMessage... simpleMessages) throws MailException {
+
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        Map<Object, Exception> lastFailures = new HashMap<>();
+        List<SimpleMailMessage> remaining = List.of(simpleMessages);
+        List<Relay> tried = new ArrayList<>(maxAttempts);
+
+        while (!remaining.isEmpty() && tried.size() < maxAttempts) {
+            Relay relay = select(tried);
+            if (relay == null) {
+                break;
+            }
+
+            if (!tried.isEmpty()) {
+                tried.getLast().failover.increment(remaining.size());
+            }
+            tried.add(relay);
+
+            remaining = sendVia(relay, remaining, failedMessages, lastFailures);
+        }
+
+        MailSendException noRelay = null;
+        for (SimpleMailMessage message : remaining) {
+            Exception failure = lastFailures.get(message);
+            if (failure == null) {
+                if (noRelay == null) {
+                    noRelay = new MailSendException("No SMTP relay is available.");
+                }
+                failure = noRelay;
+            }
+            failedMessages.put(message, failure);
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    /**
+     * Runs every relay's health check and feeds the results to the circuits.
+     */
+    void checkHealth() {
+
+        for (Relay relay : relays) {
+            boolean healthy;
+            try {
+                relay.healthCheck.check();
+                healthy = true;
+            } catch (Exception e) {
+                log.debug("Health check of SMTP relay [{}] failed.", relay.name, e);
+                healthy = false;
+            }
+
+            synchronized (this) {
+                relay.healthy = healthy;
+                RelayCircuitBreaker.State before = relay.circuit.state();
+                if (relay.circuit.probe(healthy, System.nanoTime())) {
+                    opened(relay);
+                } else if (before != relay.circuit.state()) {
+                    log.info("SMTP relay [{}] passed its health check, trying it again.", relay.name);
+                }
+            }
+        }
+    }
+
+    synchronized RelayCircuitBreaker.State circuitState(String name) {
+        return relays.stream()
+                .filter(relay -> relay.name.equals(name))
+                .findFirst()
+                .orElseThrow()
+                .circuit.state();
+    }
+
+    private synchronized RelayCircuitBreaker.State circuitState(Relay relay) {
+        return relay.circuit.state();
+    }
+
+    private synchronized double latencyNanos(Relay relay) {
+        return Double.isNaN(relay.latencyNanos) ? 0 : relay.latencyNanos;
+    }
+
+    private synchronized boolean isHealthy(Relay relay) {
+        return relay.healthy;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+
+        healthChecker.destroy();
+
+        for (Relay relay : relays) {
+            if (relay.sender instanceof DisposableBean disposable) {
+                disposable.destroy();
+            }
+        }
+    }
+
+    private List<SimpleMailMessage> sendVia(Relay relay,
+                                            List<SimpleMailMessage> messages,
+                                            Map<Object, Exception> failedMessages,
+                                            Map<Object, Exception> lastFailures) {
+
+        List<SimpleMailMessage> retry = new ArrayList<>();
+        boolean rejected = false;
+        long startNanos = System.nanoTime();
+
+        try {
+            relay.sender.send(messages.toArray(SimpleMailMessage[]::new));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                failAll(messages, e, retry, lastFailures);
+            } else {
+                for (SimpleMailMessage message : messages) {
+                    Exception failure = e.getFailedMessages().get(message);
+                    if (failure == null) {
+                        continue;
+                    }
+                    if (isPermanentRejection(failure)) {
+                        failedMessages.put(message, failure);
+                        rejected = true;
+                    } else {
+                        retry.add(message);
+                        lastFailures.put(message, failure);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            // Authentication or anything else that is not about one message.
+            failAll(messages, e, retry, lastFailures);
+        }
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        boolean success = retry.isEmpty();
+
+        (success ? rejected ? relay.rejectedTimer : relay.successTimer : relay.failureTimer)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        synchronized (this) {
+            RelayCircuitBreaker.State before = relay.circuit.state();
+            if (success) {
+                double sample = (double) elapsedNanos / messages.size();
+                relay.latencyNanos = Double.isNaN(relay.latencyNanos)
+                        ? sample
+                        : latencySmoothing * sample + (1 - latencySmoothing) * relay.latencyNanos;
+            }
+            if (relay.circuit.record(success, System.nanoTime())) {
+                opened(relay);
+            } else if (before != relay.circuit.state()) {
+                log.info("SMTP relay [{}] recovered.", relay.name);
+            }
+        }
+
+        return retry;
+    }
+
+    /**
+     * Smooth weighted round-robin over the relays that were not tried yet and whose circuit takes traffic, as in
+     * {@code PriorityLaneExecutor}. A relay's weight is its configured weight times the fastest relay's latency
+     * over its own, so a relay twice as slow gets half the share; relays without a latency yet count as fastest.
+     */
+    private synchronized Relay select(List<Relay> tried) {
+
+        double fastestNanos = Double.POSITIVE_INFINITY;
+        for (Relay relay : relays) {
+            if (isCandidate(relay, tried) && relay.latencyNanos > 0) {
+                fastestNanos = Math.min(fastestNanos, relay.latencyNanos);
+            }
+        }
+
+        Relay selected = null;
+        double totalWeight = 0;
+
+        for (Relay relay : relays) {
+            if (!isCandidate(relay, tried)) {
+                continue;
+            }
+
+            double weight = relay.weight;
+            if (relay.latencyNanos > 0) {
+                weight *= fastestNanos / relay.latencyNanos;
+            }
+
+            relay.currentWeight += weight;
+            totalWeight += weight;
+
+            if (selected == null || relay.currentWeight > selected.currentWeight) {
+                selected = relay;
+            }
+        }
+
+        if (selected != null) {
+            selected.currentWeight -= totalWeight;
+            selected.circuit.acquire();
+        }
+
+        return selected;
+    }
+
+    private static boolean isCandidate(Relay relay, List<Relay> tried) {
+        return relay.circuit.isAvailable() && !tried.contains(relay);
+    }
+
+    private void opened(Relay relay) {
+        relay.circuitOpened.increment();
+        log.warn("SMTP relay [{}] is failing, its circuit is open.", relay.name);
+    }
+
+    private static void failAll(List<SimpleMailMessage> messages,
+                                Exception failure,
+                                List<SimpleMailMessage> retry,
+                                Map<Object, Exception> lastFailures) {
+        for (SimpleMailMessage message : messages) {
+            retry.add(message);
+            lastFailures.put(message, failure);
+        }
+    }
+
+    /**
+     * Whether the failure is about the message rather than the relay: a 5xx reply to MAIL, RCPT or DATA, or an
+     * address that does not parse. Transient 4xx replies are the relay's, another one may well accept the message.
+     */
+    static boolean isPermanentRejection(Throwable failure) {
+
+        boolean sendFailed = false;
+
+        // MessagingException reports its next exception as the cause, so this also walks JavaMail's chains.
+        for (Throwable cause = failure; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            int replyCode = replyCode(cause);
+            if (replyCode > 0) {
+                return replyCode / 100 == 5;
+            }
+            if (cause instanceof AddressException || cause instanceof ParseException) {
+                return true;
+            }
+            sendFailed |= cause instanceof SendFailedException;
+        }
+
+        return sendFailed;
+    }
+
+    private static int replyCode(Throwable failure) {
+        return switch (failure) {
+            case SmtpRejectedException rejected -> rejected.getReplyCode();
+            case SMTPAddressFailedException addressFailed -> addressFailed.getReturnCode();
+            case SMTPSenderFailedException senderFailed -> senderFailed.getReturnCode();
+            case SMTPSendFailedException sendFailed -> sendFailed.getReturnCode();
+            default -> -1;
+        };
+    }
+
+    private static final class Relay {
+
+        private final String name;
+        private final MailSender sender;
+        private final int weight;
+        private final MailRelay.HealthCheck healthCheck;
+        private final RelayCircuitBreaker circuit;
+        private final Timer successTimer;
+        private final Timer rejectedTimer;
+        private final Timer failureTimer;
+        private final Counter circuitOpened;
+        private final Counter failover;
+        private double latencyNanos = Double.NaN;
+        private double currentWeight;
+        private boolean healthy = true;
+
+        private Relay(MailRelay mailRelay, RelayCircuitBreaker circuit, MeterRegistry registry) {
+            this.name = mailRelay.name();
+            this.sender = mailRelay.sender();
+            this.weight = Math.max(1, mailRelay.weight());
+            this.healthCheck = mailRelay.healthCheck();
+            this.circuit = circuit;
+            this.successTimer = sendTimer(registry, "success");
+            this.rejectedTimer = sendTimer(registry, "rejected");
+            this.failureTimer = sendTimer(registry, "failure");
+            this.circuitOpened = Counter.builder("email.relay.circuit.opened")
+                    .description("Times the relay's circuit opened")
+                    .tag("relay", name)
+                    .register(registry);
+            this.failover = Counter.builder("email.relay.failover")
+                    .description("Messages the relay failed that were handed on to another relay")
+                    .tag("relay", name)
+                    .register(registry);
+        }
+
+        private Timer sendTimer(MeterRegistry registry, String outcome) {
+            return Timer.builder("email.relay.send")
+                    .description("Sends through the relay")
+                    .tags("relay", name, "outcome", outcome)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,521 @@
+package com.example.emails.mail;
+
+import com.example.emails.mail.SmtpTransaction.Stage;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailSendException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One non-blocking SMTP session, driven entirely by its {@link PipeliningMailSender} selector thread.
+ * <p>
+ * When the server advertises PIPELINING (RFC 2920), a message's MAIL, RCPT and DATA go out together, and its
+ * content goes out together with the next message's envelope, so each message costs about one round trip
+ * instead of four. Up to {@code pipeline-depth} messages can be waiting on replies. DATA is only pipelined for
+ * single-recipient messages, where a rejected recipient makes the server reject DATA too. For several recipients
+ * the client first waits for every RCPT reply, so a partly rejected message is reset rather than sent to some of
+ * them, as JavaMail does. Servers without PIPELINING get one command at a time.
+ */
+final class SmtpConnection {
+
+    private static final int MAX_LINE_LENGTH = 8 * 1024;
+    private static final byte[] EMPTY_CONTENT = {'.', '\r', '\n'};
+
+    private enum State {
+        CLOSED, CONNECTING, GREETING, HELLO, AUTHENTICATING, READY, QUITTING
+    }
+
+    private enum Command {
+        GREETING, EHLO, HELO, AUTH, MAIL, RCPT, DATA, CONTENT, RSET, QUIT
+    }
+
+    private record Expected(Command command, SmtpTransaction transaction) {
+    }
+
+    private final PipeliningMailSender owner;
+    private final Selector selector;
+
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(16 * 1024);
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    private final List<String> replyLines = new ArrayList<>();
+    private final Deque<ByteBuffer> writeQueue = new ArrayDeque<>();
+    private final Deque<Expected> expected = new ArrayDeque<>();
+    private final List<SmtpTransaction> inFlight = new ArrayList<>();
+
+    private State state = State.CLOSED;
+    private SocketChannel channel;
+    private SelectionKey key;
+    private boolean pipelining;
+    private boolean authPlain;
+    private SmtpTransaction writing;
+
+    private long stateSinceNanos;
+    private long lastReplyNanos;
+    private long lastUsedNanos;
+    private long reconnectAtNanos;
+
+    SmtpConnection(PipeliningMailSender owner, Selector selector) {
+        this.owner = owner;
+        this.selector = selector;
+    }
+
+    boolean isClosed() {
+        return state == State.CLOSED;
+    }
+
+    boolean canOpen(long now) {
+        return state == State.CLOSED && now - reconnectAtNanos >= 0;
+    }
+
+    void open(long now) {
+
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+            boolean connected = channel.connect(new InetSocketAddress(owner.host(), owner.port()));
+            key = channel.register(selector, connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, this);
+
+            enter(connected ? State.GREETING : State.CONNECTING, now);
+            expect(Command.GREETING, null, now);
+        } catch (IOException | RuntimeException e) {
+            fail(e, now);
+        }
+    }
+
+    void handle(SelectionKey selectedKey, long now) {
+
+        try {
+            if (selectedKey.isConnectable()) {
+                if (!channel.finishConnect()) {
+                    return;
+                }
+                key.interestOps(SelectionKey.OP_READ);
+                enter(State.GREETING, now);
+            }
+            if (selectedKey.isValid() && selectedKey.isReadable()) {
+                read(now);
+            }
+            if (selectedKey.isValid() && selectedKey.isWritable()) {
+                flush();
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e, now);
+        }
+    }
+
+    /**
+     * Applies timeouts and, when ready, takes queued messages up to the pipeline depth.
+     */
+    void tick(long now) {
+
+        try {
+            if (state == State.CLOSED) {
+                return;
+            }
+
+            if (state == State.CONNECTING && now - stateSinceNanos > owner.properties().getConnectTimeout().toNanos()) {
+                throw new MailSendException("Timed out connecting to [%s:%d].".formatted(owner.host(), owner.port()));
+            }
+
+            if (!expected.isEmpty() && state != State.CONNECTING
+                    && now - lastReplyNanos > owner.properties().getReplyTimeout().toNanos()) {
+                throw new MailSendException("Timed out waiting for a reply from [%s:%d]."
+                        .formatted(owner.host(), owner.port()));
+            }
+
+            if (state == State.READY && inFlight.isEmpty() && !owner.hasPending()
+                    && now - lastUsedNanos > owner.properties().getIdleTimeout().toNanos()) {
+                write("QUIT");
+                expect(Command.QUIT, null, now);
+                enter(State.QUITTING, now);
+                flush();
+                return;
+            }
+
+            pump(now);
+        } catch (IOException | RuntimeException e) {
+            fail(e, now);
+        }
+    }
+
+    /**
+     * Fails every message this connection holds and closes it.
+     */
+    void fail(Exception cause, long now) {
+
+        boolean wasReady = state == State.READY || state == State.QUITTING;
+        MailSendException failure = cause instanceof MailSendException mailSendException
+                ? mailSendException
+                : new MailSendException("SMTP connection to [%s:%d] failed.".formatted(owner.host(), owner.port()),
+                cause);
+
+        closeChannel();
+
+        for (SmtpTransaction transaction : inFlight) {
+            transaction.stage = Stage.DONE;
+            transaction.result().completeExceptionally(failure);
+        }
+        inFlight.clear();
+
+        if (!wasReady) {
+            reconnectAtNanos = now + owner.properties().getReconnectDelay().toNanos();
+        }
+
+        owner.connectionClosed(wasReady, cause);
+    }
+
+    private void read(long now) throws IOException {
+
+        int read = channel.read(readBuffer);
+
+        if (read < 0) {
+            if (state == State.QUITTING) {
+                closeChannel();
+                owner.connectionClosed(true, null);
+                return;
+            }
+            throw new MailSendException("SMTP server [%s:%d] closed the connection."
+                    .formatted(owner.host(), owner.port()));
+        }
+
+        readBuffer.flip();
+
+        while (readBuffer.hasRemaining() && state != State.CLOSED) {
+            byte b = readBuffer.get();
+
+            if (b != '\n') {
+                if (line.size() >= MAX_LINE_LENGTH) {
+                    throw new MailSendException("SMTP reply line longer than %d bytes.".formatted(MAX_LINE_LENGTH));
+                }
+                line.write(b);
+                continue;
+            }
+
+            String text = line.toString(StandardCharsets.US_ASCII);
+            line.reset();
+            if (text.endsWith("\r")) {
+                text = text.substring(0, text.length() - 1);
+            }
+
+            replyLines.add(text);
+            if (text.length() < 4 || text.charAt(3) != '-') {
+                onReply(replyCode(text), now);
+                replyLines.clear();
+            }
+        }
+
+        readBuffer.clear();
+
+        if (state != State.CLOSED) {
+            pump(now);
+        }
+    }
+
+    private void onReply(int code, long now) throws IOException {
+
+        Expected next = expected.pollFirst();
+
+        if (next == null) {
+            throw new MailSendException("Unexpected SMTP reply [%s].".formatted(String.join(" ", replyLines)));
+        }
+
+        lastReplyNanos = now;
+        SmtpTransaction transaction = next.transaction();
+        if (transaction != null) {
+            transaction.outstandingReplies--;
+        }
+
+        switch (next.command()) {
+            case GREETING -> {
+                requireReply(code, 220, "greeting");
+                write("EHLO " + owner.heloName());
+                expect(Command.EHLO, null, now);
+                enter(State.HELLO, now);
+            }
+            case EHLO -> {
+                if (code == 250) {
+                    readExtensions();
+                    authenticateOrReady(now);
+                } else if (code / 100 == 5) {
+                    write("HELO " + owner.heloName());
+                    expect(Command.HELO, null, now);
+                } else {
+                    requireReply(code, 250, "EHLO");
+                }
+            }
+            case HELO -> {
+                requireReply(code, 250, "HELO");
+                authenticateOrReady(now);
+            }
+            case AUTH -> {
+                if (code != 235) {
+                    throw new MailAuthenticationException("SMTP server rejected AUTH PLAIN: "
+                            + String.join(" ", replyLines));
+                }
+                ready(now);
+            }
+            case MAIL, RCPT -> {
+                if (code / 100 != 2) {
+                    transaction.fail(rejected(next.command() == Command.MAIL ? "MAIL FROM" : "RCPT TO", code));
+                }
+            }
+            case DATA -> {
+                if (code == 354) {
+                    // A failed transaction whose DATA was accepted anyway is ended without content.
+                    writeQueue.add(ByteBuffer.wrap(transaction.failure == null ? transaction.content() : EMPTY_CONTENT));
+                    expect(Command.CONTENT, transaction, now);
+                    transaction.stage = Stage.CONTENT_SENT;
+                } else {
+                    transaction.fail(rejected("DATA", code));
+                }
+            }
+            case CONTENT -> {
+                if (code / 100 != 2) {
+                    transaction.fail(rejected("end of data", code));
+                }
+                finish(transaction);
+            }
+            case RSET -> {
+                // Only sent to clear a failed transaction, whose outcome is already reported.
+            }
+            case QUIT -> {
+                closeChannel();
+                owner.connectionClosed(true, null);
+            }
+        }
+    }
+
+    /**
+     * Writes what the current transaction allows, then starts further queued transactions while the pipeline has
+     * room.
+     */
+    private void pump(long now) throws IOException {
+
+        if (state == State.READY) {
+            int depth = pipelining ? owner.properties().getPipelineDepth() : 1;
+
+            while (true) {
+                if (writing == null) {
+                    if (inFlight.size() >= depth || (writing = owner.poll()) == null) {
+                        break;
+                    }
+                    inFlight.add(writing);
+                    lastUsedNanos = now;
+                }
+
+                writeSteps(writing, now);
+
+                if (writing.stage != Stage.CONTENT_SENT && writing.stage != Stage.DONE) {
+                    break;
+                }
+                writing = null;
+            }
+        }
+
+        flush();
+    }
+
+    private void writeSteps(SmtpTransaction transaction, long now) {
+
+        while (true) {
+            if (transaction.failure != null) {
+                if (transaction.outstandingReplies == 0 && transaction.stage != Stage.DONE) {
+                    write("RSET");
+                    expect(Command.RSET, null, now);
+                    finish(transaction);
+                }
+                return;
+            }
+
+            if (!pipelining && transaction.outstandingReplies > 0) {
+                return;
+            }
+
+            switch (transaction.stage) {
+                case MAIL -> {
+                    write("MAIL FROM:<" + transaction.sender() + ">");
+                    expect(Command.MAIL, transaction, now);
+                    transaction.stage = Stage.RCPT;
+                }
+                case RCPT -> {
+                    write("RCPT TO:<" + transaction.recipients().get(transaction.nextRecipient) + ">");
+                    expect(Command.RCPT, transaction, now);
+                    if (++transaction.nextRecipient == transaction.recipients().size()) {
+                        transaction.stage = Stage.DATA;
+                    }
+                }
+                case DATA -> {
+                    if (transaction.recipients().size() > 1 && transaction.outstandingReplies > 0) {
+                        return;
+                    }
+                    write("DATA");
+                    expect(Command.DATA, transaction, now);
+                    transaction.stage = Stage.AWAITING_DATA_REPLY;
+                }
+                default -> {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void finish(SmtpTransaction transaction) {
+
+        transaction.stage = Stage.DONE;
+        inFlight.remove(transaction);
+
+        if (transaction.failure != null) {
+            transaction.result().completeExceptionally(transaction.failure);
+        } else {
+            transaction.result().complete(null);
+        }
+    }
+
+    private void readExtensions() {
+
+        pipelining = false;
+        authPlain = false;
+
+        for (String extension : replyLines.subList(1, replyLines.size())) {
+            String keywords = extension.length() > 4 ? extension.substring(4).toUpperCase(Locale.ROOT) : "";
+
+            if (keywords.equals("PIPELINING")) {
+                pipelining = true;
+            } else if ((keywords.startsWith("AUTH ") || keywords.startsWith("AUTH="))
+                    && List.of(keywords.substring(5).split(" ")).contains("PLAIN")) {
+                authPlain = true;
+            }
+        }
+    }
+
+    private void authenticateOrReady(long now) {
+
+        if (owner.username() == null) {
+            ready(now);
+            return;
+        }
+
+        if (!authPlain) {
+            throw new MailAuthenticationException("SMTP server [%s:%d] does not offer AUTH PLAIN."
+                    .formatted(owner.host(), owner.port()));
+        }
+
+        String credentials = "\0" + owner.username() + "\0" + (owner.password() != null ? owner.password() : "");
+        write("AUTH PLAIN " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+        expect(Command.AUTH, null, now);
+        enter(State.AUTHENTICATING, now);
+    }
+
+    private void ready(long now) {
+        enter(State.READY, now);
+        lastUsedNanos = now;
+        owner.connectionReady();
+    }
+
+    private void enter(State next, long now) {
+        state = next;
+        stateSinceNanos = now;
+    }
+
+    private void expect(Command command, SmtpTransaction transaction, long now) {
+
+        if (expected.isEmpty()) {
+            lastReplyNanos = now;
+        }
+
+        expected.addLast(new Expected(command, transaction));
+        if (transaction != null) {
+            transaction.outstandingReplies++;
+        }
+    }
+
+    private void write(String command) {
+        writeQueue.add(ByteBuffer.wrap((command + "\r\n").getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Writes as much of the queue as the socket takes in one gathering write, so a pipelined group leaves in as
+     * few packets as possible; the rest waits for {@code OP_WRITE}.
+     */
+    private void flush() throws IOException {
+
+        if (channel == null || !channel.isConnected()) {
+            return;
+        }
+
+        if (!writeQueue.isEmpty()) {
+            channel.write(writeQueue.toArray(ByteBuffer[]::new));
+
+            while (!writeQueue.isEmpty() && !writeQueue.peekFirst().hasRemaining()) {
+                writeQueue.pollFirst();
+            }
+        }
+
+        key.interestOps(writeQueue.isEmpty()
+                ? SelectionKey.OP_READ
+                : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+
+    private void closeChannel() {
+
+        if (key != null) {
+            key.cancel();
+        }
+
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // The connection is being discarded anyway.
+            }
+        }
+
+        state = State.CLOSED;
+        channel = null;
+        key = null;
+        writing = null;
+        pipelining = false;
+        authPlain = false;
+        writeQueue.clear();
+        expected.clear();
+        replyLines.clear();
+        line.reset();
+        readBuffer.clear();
+    }
+
+    private void requireReply(int code, int wanted, String step) {
+        if (code != wanted) {
+            throw new MailSendException("SMTP server [%s:%d] replied [%s] to %s."
+                    .formatted(owner.host(), owner.port(), String.join(" ", replyLines), step));
+        }
+    }
+
+    private SmtpRejectedException rejected(String step, int code) {
+        return new SmtpRejectedException(
+                "SMTP server rejected %s: %s".formatted(step, String.join(" ", replyLines)), code);
+    }
+
+    private static int replyCode(String text) {
+        try {
+            return Integer.parseInt(text.substring(0, 3));
+        } catch (RuntimeException e) {
+            throw new MailSendException("Malformed SMTP reply [%s].".formatted(text));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.emails.mail;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes message content for the SMTP DATA phase (RFC 5321 section 4.5.2): every line ends in CRLF, a line that
+ * starts with a dot gets a second one, and {@link #close()} terminates the content with {@code <CRLF>.<CRLF>}.
+ */
+final class SmtpDataOutputStream extends FilterOutputStream {
+
+    private boolean atLineStart = true;
+    private boolean afterCr;
+    private boolean closed;
+
+    SmtpDataOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+
+        if (b == '\n') {
+            if (!afterCr) {
+                out.write('\r');
+            }
+            out.write('\n');
+            atLineStart = true;
+            afterCr = false;
+            return;
+        }
+
+        if (afterCr) {
+            // A bare CR ends its line too.
+            out.write('\n');
+            atLineStart = true;
+        }
+
+        if (b == '\r') {
+            out.write('\r');
+            afterCr = true;
+            return;
+        }
+
+        if (atLineStart && b == '.') {
+            out.write('.');
+        }
+
+        out.write(b);
+        atLineStart = false;
+        afterCr = false;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            write(b[i]);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        if (afterCr) {
+            out.write('\n');
+        } else if (!atLineStart) {
+            out.write('\r');
+            out.write('\n');
+        }
+
+        out.write(new byte[]{'.', '\r', '\n'});
+        super.close();
+    }
+}
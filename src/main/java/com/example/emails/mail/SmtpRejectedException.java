@@ -0,0 +1,20 @@
+package com.example.emails.mail;
+
+import org.springframework.mail.MailSendException;
+
+/**
+ * The server answered MAIL, RCPT or DATA for one message with an error reply. The connection itself is fine.
+ */
+public class SmtpRejectedException extends MailSendException {
+
+    private final int replyCode;
+
+    public SmtpRejectedException(String msg, int replyCode) {
+        super(msg);
+        this.replyCode = replyCode;
+    }
+
+    public int getReplyCode() {
+        return replyCode;
+    }
+}
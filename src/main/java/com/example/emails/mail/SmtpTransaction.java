@@ -0,0 +1,71 @@
+package com.example.emails.mail;
+
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One message on its way through an {@link SmtpConnection}: the envelope, the encoded DATA content, and how far
+ * the MAIL, RCPT and DATA exchange has got. Everything but {@link #result()} is only touched by the connection's
+ * selector thread.
+ */
+final class SmtpTransaction {
+
+    enum Stage {
+        MAIL, RCPT, DATA, AWAITING_DATA_REPLY, CONTENT_SENT, DONE
+    }
+
+    private final SimpleMailMessage message;
+    private final String sender;
+    private final List<String> recipients;
+    private final byte[] content;
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+    Stage stage = Stage.MAIL;
+    int nextRecipient;
+
+    /**
+     * Commands of this transaction whose reply has not arrived yet.
+     */
+    int outstandingReplies;
+
+    MailSendException failure;
+
+    SmtpTransaction(SimpleMailMessage message, String sender, List<String> recipients, byte[] content) {
+        this.message = message;
+        this.sender = sender;
+        this.recipients = recipients;
+        this.content = content;
+    }
+
+    SimpleMailMessage message() {
+        return message;
+    }
+
+    String sender() {
+        return sender;
+    }
+
+    List<String> recipients() {
+        return recipients;
+    }
+
+    byte[] content() {
+        return content;
+    }
+
+    CompletableFuture<Void> result() {
+        return result;
+    }
+
+    /**
+     * Keeps the first failure; later replies of a failed transaction usually only repeat it.
+     */
+    void fail(MailSendException exception) {
+        if (failure == null) {
+            failure = exception;
+        }
+    }
+}
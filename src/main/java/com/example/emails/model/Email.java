@@ -5,8 +5,11 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
 
 @Builder
@@ -14,25 +17,81 @@ import java.util.UUID;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_email_status_next_attempt", columnList = "status, nextAttemptAt"),
+        @Index(name = "idx_email_user_created", columnList = "userId, createdOn, id"),
+        @Index(name = "idx_email_user_status_created", columnList = "userId, status, createdOn, id"),
+        @Index(name = "uk_email_user_idempotency_key", columnList = "userId, idempotencyKey", unique = true),
+        @Index(name = "idx_email_status_created", columnList = "status, createdOn"),
+        @Index(name = "idx_email_body_hash", columnList = "bodyHash")
+})
 public class Email {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedUuid
     private UUID id;
 
     @Column(nullable = false)
     private String subject;
 
-    @Column(nullable = false)
+    /**
+     * Only set on emails created in this process; bodies are persisted once per distinct content through
+     * {@code EmailBodyStore} and loaded by {@link #bodyHash} when a message is built.
+     */
+    @Transient
     private String body;
 
+    /**
+     * Null for templated emails, whose body is rendered from the template at send time.
+     */
+    @Column(length = 64)
+    private String bodyHash;
+
     @Column(nullable = false)
     private LocalDateTime createdOn;
 
-    @Column(nullable = false)
+    /**
+     * A varchar rather than Hibernate's default native MySQL enum, which {@code ddl-auto=update} never widens when
+     * a status is added; see {@code db/mysql/email-status-varchar.sql}.
+     */
+    @Column(nullable = false, length = 16)
     @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
     private EmailStatus status;
 
     private UUID userId;
 
+    private int attempts;
+
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime sendAt;
+
+    @Column(length = 128)
+    private String idempotencyKey;
+
+    /**
+     * Hash of the request stored with {@link #idempotencyKey}, so a retry with a different payload is told apart.
+     */
+    @Column(length = 64)
+    private String requestHash;
+
+    @Column(length = 128)
+    private String templateName;
+
+    private Integer templateVersion;
+
+    @Convert(converter = TemplateParamsConverter.class)
+    @Column(length = 4_000)
+    private Map<String, String> templateParams;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private EmailPriority priority;
+
+    public EmailPriority getPriority() {
+        // Rows written before priorities existed have none.
+        return priority != null ? priority : EmailPriority.NORMAL;
+    }
+
 }
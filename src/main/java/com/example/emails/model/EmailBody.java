@@ -0,0 +1,40 @@
+package com.example.emails.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A distinct email body, stored once and referenced from {@link Email#getBodyHash()}.
+ */
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+public class EmailBody {
+
+    /**
+     * Lowercase hex SHA-256 of the UTF-8 body, the same value as MySQL's {@code SHA2(body, 256)}.
+     */
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    /**
+     * In MySQL {@code COMPRESS()} format, so {@code UNCOMPRESS(content)} reads it in SQL.
+     */
+    @Column(nullable = false, length = 16_777_215)
+    private byte[] content;
+
+    /**
+     * Refreshed whenever the same body is stored again, so it tells how recently the body was last referenced.
+     */
+    @Column(nullable = false)
+    private LocalDateTime createdOn;
+
+}
@@ -17,7 +17,7 @@ import java.util.UUID;
 public class EmailPreference {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedUuid
     private UUID id;
 
     @Column(unique = true, nullable = false)
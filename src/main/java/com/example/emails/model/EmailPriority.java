@@ -0,0 +1,13 @@
+package com.example.emails.model;
+
+/**
+ * Dispatch lane of an email: HIGH for transactional mail such as password resets, LOW for bulk mail such as
+ * campaigns.
+ */
+public enum EmailPriority {
+
+    HIGH,
+    NORMAL,
+    LOW
+
+}
@@ -2,7 +2,11 @@ package com.example.emails.model;
 
 public enum EmailStatus {
 
+    SCHEDULED,
+    QUEUED,
+    SENDING,
     SUCCEEDED,
-    FAILED
+    FAILED,
+    DEAD_LETTER
 
 }
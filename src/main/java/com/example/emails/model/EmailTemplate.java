@@ -0,0 +1,41 @@
+package com.example.emails.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One immutable version of a named template; changing a template stores a new version.
+ */
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_email_template_name_version", columnNames = {"name", "version"}))
+public class EmailTemplate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false, length = 128)
+    private String name;
+
+    private int version;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(nullable = false, length = 65_535)
+    private String body;
+
+    @Column(nullable = false)
+    private LocalDateTime createdOn;
+
+}
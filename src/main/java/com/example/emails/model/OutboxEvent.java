@@ -0,0 +1,38 @@
+package com.example.emails.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "idx_outbox_event_created_on", columnList = "createdOn"))
+public class OutboxEvent {
+
+    @Id
+    @TimeOrderedUuid
+    private UUID id;
+
+    @Column(nullable = false)
+    private UUID emailId;
+
+    @Column(nullable = false)
+    private LocalDateTime createdOn;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private EmailPriority priority;
+
+    public EmailPriority getPriority() {
+        // Rows written before priorities existed have none.
+        return priority != null ? priority : EmailPriority.NORMAL;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.emails.model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.Map;
+
+@Converter
+public class TemplateParamsConverter implements AttributeConverter<Map<String, String>, String> {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, String>> PARAMS_TYPE = new TypeReference<>() {
+    };
+
+    @Override
+    public String convertToDatabaseColumn(Map<String, String> params) {
+
+        if (params == null) {
+            return null;
+        }
+
+        try {
+            return OBJECT_MAPPER.writeValueAsString(params);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Template parameters cannot be serialized.", e);
+        }
+    }
+
+    @Override
+    public Map<String, String> convertToEntityAttribute(String json) {
+
+        if (json == null) {
+            return null;
+        }
+
+        try {
+            return OBJECT_MAPPER.readValue(json, PARAMS_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Stored template parameters are not valid JSON.", e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.emails.model;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * UUIDs as the 16 bytes of a {@code binary(16)} column, most significant first, which is how Hibernate binds them
+ * and what keeps {@link TimeOrderedUuidGenerator} ids in creation order. For JDBC code that binds UUIDs itself.
+ */
+public final class UuidBytes {
+
+    private UuidBytes() {
+    }
+
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+}
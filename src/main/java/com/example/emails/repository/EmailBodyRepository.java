@@ -0,0 +1,50 @@
+package com.example.emails.repository;
+
+import com.example.emails.model.EmailBody;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EmailBodyRepository extends JpaRepository<EmailBody, String> {
+
+    /**
+     * Stores the body, or only refreshes {@code createdOn} if it already exists; concurrent writers of the same
+     * body never fail or roll back the surrounding transaction.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            insert into email_body (hash, content, created_on) values (:hash, :content, :createdOn)
+            on duplicate key update created_on = values(created_on)
+            """, nativeQuery = true)
+    int upsert(@Param("hash") String hash,
+               @Param("content") byte[] content,
+               @Param("createdOn") LocalDateTime createdOn);
+
+    @Query("""
+            select b.hash from EmailBody b
+            where b.createdOn < :before and not exists (select e.id from Email e where e.bodyHash = b.hash)
+            """)
+    List<String> findUnreferencedHashes(@Param("before") LocalDateTime before, Pageable pageable);
+
+    /**
+     * Re-checks both conditions so a body stored again since it was selected is kept.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            delete from EmailBody b
+            where b.hash in :hashes and b.createdOn < :before
+                and not exists (select e.id from Email e where e.bodyHash = b.hash)
+            """)
+    int deleteUnreferenced(@Param("hashes") Collection<String> hashes, @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,12 @@
+package com.example.emails.repository;
+
+import com.example.emails.model.EmailStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Outcome of a delivery attempt, as written back to the email row.
+ */
+public record EmailDeliveryState(UUID id, EmailStatus status, int attempts, LocalDateTime nextAttemptAt) {
+}
@@ -0,0 +1,52 @@
+package com.example.emails.repository;
+
+import com.example.emails.model.EmailStatus;
+import com.example.emails.model.UuidBytes;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Writes delivery outcomes in one JDBC batch and one commit. Only SENDING rows are updated, which is the state
+ * every attempt starts from, so replaying an outcome that was already written changes nothing.
+ */
+@Repository
+public class EmailDeliveryStateRepository {
+
+    private static final String UPDATE = """
+            update email set status = ?, attempts = ?, next_attempt_at = ?
+            where id = ? and status = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EmailDeliveryStateRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional
+    public void updateAll(List<EmailDeliveryState> states) {
+
+        // Same lock order on every instance, so concurrent flushes cannot deadlock.
+        List<EmailDeliveryState> ordered = states.stream()
+                .sorted(Comparator.comparing(EmailDeliveryState::id))
+                .toList();
+
+        jdbcTemplate.batchUpdate(UPDATE, ordered, ordered.size(), (statement, state) -> {
+            statement.setString(1, state.status().name());
+            statement.setInt(2, state.attempts());
+            if (state.nextAttemptAt() != null) {
+                statement.setTimestamp(3, Timestamp.valueOf(state.nextAttemptAt()));
+            } else {
+                statement.setNull(3, Types.TIMESTAMP);
+            }
+            statement.setBytes(4, UuidBytes.toBytes(state.id()));
+            statement.setString(5, EmailStatus.SENDING.name());
+        });
+    }
+}
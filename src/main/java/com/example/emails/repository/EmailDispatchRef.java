@@ -0,0 +1,18 @@
+package com.example.emails.repository;
+
+import com.example.emails.model.EmailPriority;
+
+import java.util.UUID;
+
+/**
+ * What the dispatcher needs to route an email to its lane.
+ */
+public record EmailDispatchRef(UUID id, EmailPriority priority) {
+
+    public EmailDispatchRef {
+        // Rows written before priorities existed have none.
+        if (priority == null) {
+            priority = EmailPriority.NORMAL;
+        }
+    }
+}
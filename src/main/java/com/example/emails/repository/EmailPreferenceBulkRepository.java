@@ -0,0 +1,50 @@
+package com.example.emails.repository;
+
+import com.example.emails.model.TimeOrderedUuidGenerator;
+import com.example.emails.model.UuidBytes;
+import com.example.emails.web.dto.UpsertPreference;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Plain JDBC upserts for bulk imports, bypassing the persistence context. Combined with
+ * {@code rewriteBatchedStatements=true} on the MySQL URL, each chunk goes out as a few multi-row statements.
+ */
+@Repository
+public class EmailPreferenceBulkRepository {
+
+    private static final String UPSERT = """
+            insert into email_preference (id, user_id, is_enabled, contact_email, created_on, updated_on)
+            values (?, ?, ?, ?, ?, ?)
+            on duplicate key update
+                is_enabled = values(is_enabled),
+                contact_email = values(contact_email),
+                updated_on = values(updated_on)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EmailPreferenceBulkRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional
+    public void upsertAll(List<UpsertPreference> preferences, LocalDateTime now) {
+
+        Timestamp timestamp = Timestamp.valueOf(now);
+
+        jdbcTemplate.batchUpdate(UPSERT, preferences, preferences.size(), (statement, preference) -> {
+            statement.setBytes(1, UuidBytes.toBytes(TimeOrderedUuidGenerator.next()));
+            statement.setBytes(2, UuidBytes.toBytes(preference.getUserId()));
+            statement.setBoolean(3, preference.isEnabled());
+            statement.setString(4, preference.getContactEmail());
+            statement.setTimestamp(5, timestamp);
+            statement.setTimestamp(6, timestamp);
+        });
+    }
+}
@@ -1,9 +1,17 @@
 package com.example.emails.repository;
 
 import com.example.emails.model.EmailPreference;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -11,4 +19,45 @@ import java.util.UUID;
 public interface EmailPreferenceRepository extends JpaRepository<EmailPreference, UUID> {
 
     Optional<EmailPreference> findByUserId(UUID userId);
+
+    /**
+     * Same as {@link #findByUserId(UUID)}, but the preference is built by a constructor expression, so it is not
+     * attached to the persistence context and costs no dirty-checking snapshot.
+     */
+    @Query("select new com.example.emails.model.EmailPreference(p.id, p.userId, p.isEnabled, p.contactEmail, "
+            + "p.createdOn, p.updatedOn) from EmailPreference p where p.userId = :userId")
+    Optional<EmailPreference> findDetachedByUserId(@Param("userId") UUID userId);
+
+    @Transactional
+    @Modifying
+    @Query("update EmailPreference p set p.isEnabled = :enabled, p.updatedOn = :updatedOn where p.userId = :userId")
+    int updateEnabledByUserId(@Param("userId") UUID userId,
+                              @Param("enabled") boolean enabled,
+                              @Param("updatedOn") LocalDateTime updatedOn);
+
+    /**
+     * Inserts the preference, or updates the one the {@code user_id} unique key already holds; {@code id} and
+     * {@code created_on} are only used for an insert.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            insert into email_preference (id, user_id, is_enabled, contact_email, created_on, updated_on)
+            values (:id, :userId, :enabled, :contactEmail, :now, :now)
+            on duplicate key update
+                is_enabled = values(is_enabled),
+                contact_email = values(contact_email),
+                updated_on = values(updated_on)
+            """, nativeQuery = true)
+    int upsert(@Param("id") UUID id,
+               @Param("userId") UUID userId,
+               @Param("enabled") boolean enabled,
+               @Param("contactEmail") String contactEmail,
+               @Param("now") LocalDateTime now);
+
+    List<EmailPreference> findByUserIdIn(Collection<UUID> userIds);
+
+    List<EmailPreference> findAllByOrderByIdAsc(Limit limit);
+
+    List<EmailPreference> findByIdGreaterThanOrderByIdAsc(UUID id, Limit limit);
 }
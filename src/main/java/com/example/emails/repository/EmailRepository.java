@@ -1,11 +1,112 @@
 package com.example.emails.repository;
 
 import com.example.emails.model.Email;
+import com.example.emails.model.EmailStatus;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface EmailRepository extends JpaRepository<Email, UUID> {
+public interface EmailRepository extends JpaRepository<Email, UUID>, JpaSpecificationExecutor<Email> {
+
+    Optional<Email> findByUserIdAndIdempotencyKey(UUID userId, String idempotencyKey);
+
+    /**
+     * Emails claimed ahead of their send time carry it in {@code nextAttemptAt}, so they only count as stale once
+     * that has passed; others are stale by {@code createdOn}. SENDING emails claimed from the queue carry their
+     * claim time there, inline sends their {@code createdOn}, so for them the cutoff is the end of the lease.
+     */
+    @Query("select new com.example.emails.repository.EmailDispatchRef(e.id, e.priority) from Email e "
+            + "where e.status = :status and coalesce(e.nextAttemptAt, e.createdOn) < :before order by e.createdOn")
+    List<EmailDispatchRef> findStale(@Param("status") EmailStatus status,
+                                     @Param("before") LocalDateTime before,
+                                     Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("update Email e set e.status = :to where e.id = :id and e.status = :from")
+    int transitionStatus(@Param("id") UUID id, @Param("from") EmailStatus from, @Param("to") EmailStatus to);
+
+    /**
+     * Moves a QUEUED email to SENDING and stamps the claim time into {@code nextAttemptAt}, which
+     * {@link #findStale} reads as the start of the sender's lease.
+     */
+    @Transactional
+    @Modifying
+    @Query("update Email e set e.status = com.example.emails.model.EmailStatus.SENDING, e.nextAttemptAt = :leasedAt "
+            + "where e.id = :id and e.status = com.example.emails.model.EmailStatus.QUEUED")
+    int claimForSending(@Param("id") UUID id, @Param("leasedAt") LocalDateTime leasedAt);
+
+    /**
+     * Same as {@link #updateDeliveryState}, but only while the email is still SENDING, so an outcome written by
+     * its sender in the meantime is kept.
+     */
+    @Transactional
+    @Modifying
+    @Query("update Email e set e.status = :status, e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt "
+            + "where e.id = :id and e.status = com.example.emails.model.EmailStatus.SENDING")
+    int updateDeliveryStateIfSending(@Param("id") UUID id,
+                                     @Param("status") EmailStatus status,
+                                     @Param("attempts") int attempts,
+                                     @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    @Transactional
+    @Modifying
+    @Query("update Email e set e.status = :status, e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt where e.id = :id")
+    int updateDeliveryState(@Param("id") UUID id,
+                            @Param("status") EmailStatus status,
+                            @Param("attempts") int attempts,
+                            @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    /**
+     * Skips emails that are no longer SENDING, e.g. because the sweeper already failed them after their lease ran
+     * out, so a late outcome does not overwrite a retry.
+     */
+    @Transactional
+    @Modifying
+    @Query("update Email e set e.status = :status, e.attempts = e.attempts + 1, e.nextAttemptAt = null "
+            + "where e.id in :ids and e.status = com.example.emails.model.EmailStatus.SENDING")
+    int markAttempted(@Param("ids") Collection<UUID> ids, @Param("status") EmailStatus status);
+
+    /**
+     * Restarts the SENDING lease of emails a sender still holds, see {@link #claimForSending}.
+     */
+    @Transactional
+    @Modifying
+    @Query("update Email e set e.nextAttemptAt = :leasedAt "
+            + "where e.id in :ids and e.status = com.example.emails.model.EmailStatus.SENDING")
+    int renewLease(@Param("ids") Collection<UUID> ids, @Param("leasedAt") LocalDateTime leasedAt);
+
+    /**
+     * Locks up to a page of due rows, skipping rows already locked by another instance
+     * (a lock timeout of -2 is rendered as {@code SKIP LOCKED}).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select e from Email e where e.status = :status and e.nextAttemptAt <= :now order by e.nextAttemptAt")
+    List<Email> findDueForUpdateSkipLocked(@Param("status") EmailStatus status,
+                                           @Param("now") LocalDateTime now,
+                                           Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select e from Email e where e.status = :status and e.createdOn < :before order by e.createdOn")
+    List<Email> findExpiredForUpdateSkipLocked(@Param("status") EmailStatus status,
+                                               @Param("before") LocalDateTime before,
+                                               Pageable pageable);
 }
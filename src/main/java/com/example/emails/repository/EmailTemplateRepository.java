@@ -0,0 +1,16 @@
+package com.example.emails.repository;
+
+import com.example.emails.model.EmailTemplate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface EmailTemplateRepository extends JpaRepository<EmailTemplate, UUID> {
+
+    Optional<EmailTemplate> findByNameAndVersion(String name, int version);
+
+    Optional<EmailTemplate> findFirstByNameOrderByVersionDesc(String name);
+}
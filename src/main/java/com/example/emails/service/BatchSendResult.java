@@ -0,0 +1,12 @@
+package com.example.emails.service;
+
+import com.example.emails.model.Email;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one recipient of a batch send. {@code email} is null when nothing was sent or stored for the
+ * recipient, in which case {@code error} says why.
+ */
+public record BatchSendResult(UUID userId, Email email, String error) {
+}
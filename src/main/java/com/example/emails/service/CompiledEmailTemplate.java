@@ -0,0 +1,144 @@
+package com.example.emails.service;
+
+import com.example.emails.model.EmailTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A template version parsed once into literal and {@code {{variable}}} segments, so rendering is a single pass
+ * appending into a pre-sized buffer with no scanning or regular expressions.
+ */
+final class CompiledEmailTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+    private static final int ESTIMATED_PARAM_LENGTH = 16;
+
+    private final String name;
+    private final int version;
+    private final Segments subject;
+    private final Segments body;
+
+    private CompiledEmailTemplate(String name, int version, Segments subject, Segments body) {
+        this.name = name;
+        this.version = version;
+        this.subject = subject;
+        this.body = body;
+    }
+
+    static CompiledEmailTemplate compile(EmailTemplate template) {
+        return new CompiledEmailTemplate(template.getName(), template.getVersion(),
+                Segments.parse(template.getSubject()), Segments.parse(template.getBody()));
+    }
+
+    String name() {
+        return name;
+    }
+
+    int version() {
+        return version;
+    }
+
+    String renderSubject(Map<String, String> params) {
+        return subject.render(params);
+    }
+
+    String renderBody(Map<String, String> params) {
+        return body.render(params);
+    }
+
+    /**
+     * Fails fast on requests that could never be rendered, before anything is stored.
+     */
+    void checkParams(Map<String, String> params) {
+        subject.checkParams(params);
+        body.checkParams(params);
+    }
+
+    private static final class Segments {
+
+        // literals.length == variables.length + 1; the output is literals[0] variables[0] literals[1] ...
+        private final String[] literals;
+        private final String[] variables;
+        private final int literalLength;
+
+        private Segments(String[] literals, String[] variables) {
+            this.literals = literals;
+            this.variables = variables;
+
+            int length = 0;
+            for (String literal : literals) {
+                length += literal.length();
+            }
+            this.literalLength = length;
+        }
+
+        private static Segments parse(String source) {
+
+            List<String> literals = new ArrayList<>();
+            List<String> variables = new ArrayList<>();
+            int position = 0;
+
+            while (true) {
+                int open = source.indexOf(OPEN, position);
+
+                if (open < 0) {
+                    literals.add(source.substring(position));
+                    break;
+                }
+
+                int close = source.indexOf(CLOSE, open + OPEN.length());
+
+                if (close < 0) {
+                    throw new IllegalArgumentException("Unclosed placeholder at index %d.".formatted(open));
+                }
+
+                String variable = source.substring(open + OPEN.length(), close).strip();
+
+                if (variable.isEmpty()) {
+                    throw new IllegalArgumentException("Empty placeholder at index %d.".formatted(open));
+                }
+
+                literals.add(source.substring(position, open));
+                variables.add(variable);
+                position = close + CLOSE.length();
+            }
+
+            return new Segments(literals.toArray(String[]::new), variables.toArray(String[]::new));
+        }
+
+        private String render(Map<String, String> params) {
+
+            if (variables.length == 0) {
+                return literals[0];
+            }
+
+            StringBuilder builder = new StringBuilder(literalLength + variables.length * ESTIMATED_PARAM_LENGTH);
+
+            for (int i = 0; i < variables.length; i++) {
+                builder.append(literals[i]).append(value(params, variables[i]));
+            }
+
+            return builder.append(literals[variables.length]).toString();
+        }
+
+        private void checkParams(Map<String, String> params) {
+            for (String variable : variables) {
+                value(params, variable);
+            }
+        }
+
+        private static String value(Map<String, String> params, String variable) {
+
+            String value = params == null ? null : params.get(variable);
+
+            if (value == null) {
+                throw new IllegalArgumentException("Missing template parameter [%s].".formatted(variable));
+            }
+
+            return value;
+        }
+    }
+}
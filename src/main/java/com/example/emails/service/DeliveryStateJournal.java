@@ -0,0 +1,184 @@
+package com.example.emails.service;
+
+import com.example.emails.model.EmailStatus;
+import com.example.emails.repository.EmailDeliveryState;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of delivery outcomes that are buffered but not yet in the database, one line per outcome. The
+ * active file is locked while open; {@link #rotate()} starts a new one, and the previous file is deleted once its
+ * outcomes are committed. Files left behind by a crashed process are found by {@link #abandonedFiles()}. Appends
+ * are not forced to disk, {@link #sync()} forces all of them at once. Not thread-safe, callers serialize
+ * {@link #append}, {@link #rotate()} and {@link #close()}; {@link #sync()} may run alongside appends.
+ */
+final class DeliveryStateJournal implements AutoCloseable {
+
+    private static final String PREFIX = "delivery-state-";
+    private static final String SUFFIX = ".log";
+    private static final String NONE = "-";
+
+    private final Path directory;
+    private final boolean fsync;
+    private Path file;
+    private FileChannel channel;
+    private FileLock lock;
+
+    DeliveryStateJournal(Path directory, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        Files.createDirectories(directory);
+        open();
+    }
+
+    void append(EmailDeliveryState state) throws IOException {
+
+        String line = String.join(",",
+                state.id().toString(),
+                state.status().name(),
+                Integer.toString(state.attempts()),
+                state.nextAttemptAt() != null ? state.nextAttemptAt().toString() : NONE) + "\n";
+
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.US_ASCII));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Forces everything appended to the active file to disk, if the journal was opened with {@code fsync}.
+     */
+    void sync() throws IOException {
+        if (fsync) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Syncs and closes the active file and starts a new one.
+     *
+     * @return the closed file, holding everything appended since the previous rotation
+     */
+    Path rotate() throws IOException {
+        sync();
+        Path closed = file;
+        closeActive();
+        open();
+        return closed;
+    }
+
+    /**
+     * Journal files in the directory that no open journal holds, i.e. left by a process that did not flush them.
+     */
+    List<Path> abandonedFiles() throws IOException {
+
+        List<Path> abandoned = new ArrayList<>();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path candidate : files.filter(DeliveryStateJournal::isJournalFile).sorted().toList()) {
+                if (!candidate.equals(file) && isUnlocked(candidate)) {
+                    abandoned.add(candidate);
+                }
+            }
+        }
+
+        return abandoned;
+    }
+
+    /**
+     * Reads every complete line; a line torn by a crash mid-append is skipped.
+     */
+    static List<EmailDeliveryState> read(Path journalFile) throws IOException {
+
+        List<EmailDeliveryState> states = new ArrayList<>();
+
+        for (String line : Files.readAllLines(journalFile, StandardCharsets.US_ASCII)) {
+            String[] fields = line.split(",", -1);
+
+            if (fields.length != 4) {
+                continue;
+            }
+
+            try {
+                states.add(new EmailDeliveryState(
+                        UUID.fromString(fields[0]),
+                        EmailStatus.valueOf(fields[1]),
+                        Integer.parseInt(fields[2]),
+                        NONE.equals(fields[3]) ? null : LocalDateTime.parse(fields[3])));
+            } catch (RuntimeException e) {
+                // Torn line.
+            }
+        }
+
+        return states;
+    }
+
+    static void delete(Path journalFile) throws IOException {
+        Files.deleteIfExists(journalFile);
+    }
+
+    /**
+     * Closes the active file, deleting it when nothing was appended since the last rotation.
+     */
+    @Override
+    public void close() throws IOException {
+        boolean empty = channel.size() == 0;
+        Path closed = file;
+
+        if (!empty) {
+            sync();
+        }
+        closeActive();
+
+        if (empty) {
+            delete(closed);
+        }
+    }
+
+    private void open() throws IOException {
+        file = directory.resolve(PREFIX + System.currentTimeMillis() + "-" + UUID.randomUUID() + SUFFIX);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        lock = channel.lock();
+    }
+
+    private void closeActive() throws IOException {
+        lock.release();
+        channel.close();
+    }
+
+    private static boolean isJournalFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    private static boolean isUnlocked(Path path) throws IOException {
+        try (FileChannel probe = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            FileLock probeLock = probe.tryLock();
+            if (probeLock == null) {
+                return false;
+            }
+            probeLock.release();
+            return true;
+        } catch (OverlappingFileLockException e) {
+            // Held by another journal in this JVM.
+            return false;
+        } catch (NoSuchFileException e) {
+            // Flushed and deleted meanwhile.
+            return false;
+        }
+    }
+}
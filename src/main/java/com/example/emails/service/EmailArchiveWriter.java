@@ -0,0 +1,109 @@
+package com.example.emails.service;
+
+import com.example.emails.model.Email;
+import com.example.emails.model.EmailStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appends purged emails to one gzipped NDJSON file per status and retention run. The file is only created once
+ * the first email is written, so runs with nothing to purge leave no empty files behind.
+ * <p>
+ * Each batch is sync-flushed through the deflater and forced to disk before {@link #write} returns, so a crash
+ * after the batch is deleted leaves a file that is only missing its gzip trailer; everything written up to the
+ * last batch still decompresses.
+ */
+class EmailArchiveWriter implements Closeable {
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private final Function<Email, String> bodyResolver;
+    private FileChannel channel;
+    private Writer writer;
+
+    EmailArchiveWriter(Path directory,
+                       EmailStatus status,
+                       LocalDateTime runStartedOn,
+                       ObjectMapper objectMapper,
+                       Function<Email, String> bodyResolver) {
+        this.file = directory.resolve("emails-%s-%s.ndjson.gz"
+                .formatted(status.name().toLowerCase(Locale.ROOT), FILE_TIMESTAMP.format(runStartedOn)));
+        this.objectMapper = objectMapper;
+        this.bodyResolver = bodyResolver;
+    }
+
+    void write(List<Email> emails) {
+
+        try {
+            if (writer == null) {
+                Files.createDirectories(file.getParent());
+                channel = FileChannel.open(file,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                writer = new BufferedWriter(new OutputStreamWriter(
+                        new GZIPOutputStream(Channels.newOutputStream(channel), true), StandardCharsets.UTF_8));
+            }
+
+            for (Email email : emails) {
+                writer.write(objectMapper.writeValueAsString(new ArchivedEmail(
+                        email.getId(),
+                        email.getUserId(),
+                        email.getStatus(),
+                        email.getCreatedOn(),
+                        email.getAttempts(),
+                        email.getSubject(),
+                        email.getBodyHash() != null ? bodyResolver.apply(email) : null,
+                        email.getTemplateName(),
+                        email.getTemplateVersion(),
+                        email.getTemplateParams())));
+                writer.write('\n');
+            }
+
+            // The batch is deleted right after this, so it has to be on disk first.
+            writer.flush();
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not archive emails to [%s].".formatted(file), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    private record ArchivedEmail(UUID id,
+                                 UUID userId,
+                                 EmailStatus status,
+                                 LocalDateTime createdOn,
+                                 int attempts,
+                                 String subject,
+                                 String body,
+                                 String templateName,
+                                 Integer templateVersion,
+                                 Map<String, String> templateParams) {
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.emails.service;
+
+import com.example.emails.config.EmailBodyStoreProperties;
+import com.example.emails.model.EmailBody;
+import com.example.emails.repository.EmailBodyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Content-addressed, compressed storage for email bodies: emails only keep the body's hash, so a body sent to
+ * thousands of users is stored once. The format matches MySQL's {@code SHA2(body, 256)} and {@code COMPRESS(body)},
+ * which lets existing rows be migrated, and bodies inspected, in plain SQL.
+ */
+@Service
+public class EmailBodyStore {
+
+    private static final int LENGTH_PREFIX = Integer.BYTES;
+
+    private final EmailBodyRepository emailBodyRepository;
+    private final Cache<String, String> bodies;
+    private final Cache<String, Boolean> recentlyStored;
+
+    public EmailBodyStore(EmailBodyRepository emailBodyRepository, EmailBodyStoreProperties properties) {
+        this.emailBodyRepository = emailBodyRepository;
+        this.bodies = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheSize())
+                .build();
+        this.recentlyStored = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheSize())
+                .expireAfterWrite(properties.getStoredHashTtl())
+                .build();
+    }
+
+    /**
+     * @return the hash to reference the body by
+     */
+    public String store(String body) {
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        String hash = hash(bytes);
+
+        if (recentlyStored.getIfPresent(hash) == null) {
+            emailBodyRepository.upsert(hash, compress(bytes), LocalDateTime.now());
+            cacheAfterCommit(hash, body);
+        }
+
+        return hash;
+    }
+
+    public String load(String hash) {
+        return bodies.get(hash, key -> emailBodyRepository.findById(key)
+                .map(EmailBody::getContent)
+                .map(EmailBodyStore::decompress)
+                .orElseThrow(() -> new NullPointerException("Email body with hash [%s] was not found."
+                        .formatted(key))));
+    }
+
+    /**
+     * A recently stored hash skips the write, so it is only remembered once the row is known to be committed.
+     */
+    private void cacheAfterCommit(String hash, String body) {
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            remember(hash, body);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remember(hash, body);
+            }
+        });
+    }
+
+    private void remember(String hash, String body) {
+        recentlyStored.put(hash, Boolean.TRUE);
+        bodies.put(hash, body);
+    }
+
+    static String hash(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Four byte little-endian uncompressed length followed by a zlib stream; empty input stays empty.
+     */
+    static byte[] compress(byte[] bytes) {
+
+        if (bytes.length == 0) {
+            return bytes;
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream(LENGTH_PREFIX + bytes.length / 2);
+            output.writeBytes(ByteBuffer.allocate(LENGTH_PREFIX)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(bytes.length)
+                    .array());
+
+            byte[] buffer = new byte[Math.min(bytes.length + 64, 64 * 1024)];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static String decompress(byte[] content) {
+
+        if (content.length == 0) {
+            return "";
+        }
+
+        int length = ByteBuffer.wrap(content, 0, LENGTH_PREFIX).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        byte[] bytes = new byte[length];
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(content, LENGTH_PREFIX, content.length - LENGTH_PREFIX);
+
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int inflated = inflater.inflate(bytes, read, length - read);
+
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated stream.");
+                }
+
+                read += inflated;
+            }
+
+            return new String(bytes, 0, read, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Stored email body is corrupt.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.emails.service;
+
+import com.example.emails.config.WriteBehindProperties;
+import com.example.emails.model.EmailStatus;
+import com.example.emails.repository.EmailDeliveryState;
+import com.example.emails.repository.EmailDeliveryStateRepository;
+import com.example.emails.repository.EmailRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind for delivery outcomes: instead of one update and one commit per sent email, outcomes are buffered
+ * and written every {@code flush-interval}, or as soon as {@code max-batch-size} are waiting, as one JDBC batch in
+ * one transaction. Each outcome is appended to a {@link DeliveryStateJournal} before it is buffered, and journal
+ * files a crashed instance did not flush are replayed on startup. If the journal cannot be written the outcome
+ * goes straight to the database instead.
+ * <p>
+ * Appends are serialized by a lock that is never held across an fsync or a database call. With {@code fsync} each
+ * writer then waits until its append is forced to disk, and one force covers every append made before it started,
+ * so concurrent writers share it.
+ * <p>
+ * Until a flush, the email row still reads SENDING; only the outcome of the attempt is deferred, the row itself
+ * is always inserted before SMTP is touched.
+ */
+@Slf4j
+@Component
+public class EmailDeliveryStateWriter implements InitializingBean, DisposableBean {
+
+    private final EmailRepository emailRepository;
+    private final EmailDeliveryStateRepository emailDeliveryStateRepository;
+    private final WriteBehindProperties properties;
+    /**
+     * Guards the journal's appends and rotation, the buffer and {@link #appended}.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * Held while forcing the journal or replacing it, taken before {@link #lock}.
+     */
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private DeliveryStateJournal journal;
+    private List<EmailDeliveryState> buffer = new ArrayList<>();
+    private long appended;
+    private volatile long synced;
+
+    public EmailDeliveryStateWriter(EmailRepository emailRepository,
+                                    EmailDeliveryStateRepository emailDeliveryStateRepository,
+                                    WriteBehindProperties properties) {
+        this.emailRepository = emailRepository;
+        this.emailDeliveryStateRepository = emailDeliveryStateRepository;
+        this.properties = properties;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        journal = new DeliveryStateJournal(properties.getJournalDirectory(), properties.isFsync());
+
+        for (Path abandoned : journal.abandonedFiles()) {
+            List<EmailDeliveryState> states = DeliveryStateJournal.read(abandoned);
+
+            for (int from = 0; from < states.size(); from += properties.getMaxBatchSize()) {
+                emailDeliveryStateRepository.updateAll(
+                        states.subList(from, Math.min(from + properties.getMaxBatchSize(), states.size())));
+            }
+
+            DeliveryStateJournal.delete(abandoned);
+            log.info("Replayed {} delivery outcomes from [{}].", states.size(), abandoned);
+        }
+    }
+
+    public void write(UUID id, EmailStatus status, int attempts, LocalDateTime nextAttemptAt) {
+
+        if (journal == null) {
+            emailRepository.updateDeliveryState(id, status, attempts, nextAttemptAt);
+            return;
+        }
+
+        EmailDeliveryState state = new EmailDeliveryState(id, status, attempts, nextAttemptAt);
+        long sequence;
+        boolean full;
+
+        lock.lock();
+        try {
+            if (journal == null) {
+                sequence = -1;
+                full = false;
+            } else {
+                journal.append(state);
+                sequence = ++appended;
+                buffer.add(state);
+                full = buffer.size() >= properties.getMaxBatchSize();
+            }
+        } catch (IOException e) {
+            sequence = -1;
+            full = false;
+            log.warn("Could not journal the outcome of email [{}], writing it directly.", id, e);
+        } finally {
+            lock.unlock();
+        }
+
+        if (sequence < 0 || !awaitSynced(sequence)) {
+            // Also buffered when only the force failed; the flush then skips the row as it is no longer SENDING.
+            emailRepository.updateDeliveryState(id, status, attempts, nextAttemptAt);
+        }
+
+        if (full) {
+            flush();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${email.write-behind.flush-interval:PT0.2S}")
+    public void flush() {
+
+        List<EmailDeliveryState> batch;
+        Path journalFile;
+
+        syncLock.lock();
+        lock.lock();
+        try {
+            if (journal == null || buffer.isEmpty()) {
+                return;
+            }
+
+            batch = buffer;
+            buffer = new ArrayList<>();
+
+            try {
+                journalFile = journal.rotate();
+                synced = appended;
+            } catch (IOException e) {
+                // Nothing was taken out of the journal yet; try again on the next flush.
+                buffer = batch;
+                throw new UncheckedIOException(e);
+            }
+        } finally {
+            lock.unlock();
+            syncLock.unlock();
+        }
+
+        try {
+            emailDeliveryStateRepository.updateAll(batch);
+        } catch (RuntimeException e) {
+            log.warn("Flushing {} delivery outcomes failed, keeping them for the next flush.", batch.size(), e);
+            requeue(batch, journalFile);
+            return;
+        }
+
+        deleteQuietly(journalFile);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+
+        if (journal == null) {
+            return;
+        }
+
+        flush();
+
+        syncLock.lock();
+        lock.lock();
+        try {
+            journal.close();
+            journal = null;
+        } finally {
+            lock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Returns once a force covers the append numbered {@code sequence}; the thread that gets {@link #syncLock} forces
+     * everything appended so far, while the others either find their append covered by it or force the next group.
+     *
+     * @return false if the journal could not be forced
+     */
+    private boolean awaitSynced(long sequence) {
+
+        if (!properties.isFsync() || synced >= sequence) {
+            return true;
+        }
+
+        syncLock.lock();
+        try {
+            if (synced >= sequence) {
+                return true;
+            }
+
+            DeliveryStateJournal active;
+            long upTo;
+            lock.lock();
+            try {
+                active = journal;
+                upTo = appended;
+            } finally {
+                lock.unlock();
+            }
+
+            if (active == null) {
+                // Closed meanwhile, which syncs it.
+                return true;
+            }
+
+            // Appends go on meanwhile; rotation cannot, it takes syncLock too.
+            active.sync();
+            synced = upTo;
+            return true;
+        } catch (IOException e) {
+            log.warn("Could not force the delivery state journal to disk, writing outcomes directly.", e);
+            return false;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Moves a failed batch back into the buffer and the active journal; the old journal file is only deleted once
+     * its outcomes are journaled again, otherwise it stays on disk to be replayed on the next startup.
+     */
+    private void requeue(List<EmailDeliveryState> batch, Path journalFile) {
+
+        syncLock.lock();
+        lock.lock();
+        try {
+            for (EmailDeliveryState state : batch) {
+                journal.append(state);
+            }
+            journal.sync();
+            synced = appended;
+            buffer.addAll(0, batch);
+        } catch (IOException e) {
+            log.warn("Could not journal {} delivery outcomes again, [{}] is kept for replay.",
+                    batch.size(), journalFile, e);
+            return;
+        } finally {
+            lock.unlock();
+            syncLock.unlock();
+        }
+
+        deleteQuietly(journalFile);
+    }
+
+    private static void deleteQuietly(Path journalFile) {
+        try {
+            DeliveryStateJournal.delete(journalFile);
+        } catch (IOException e) {
+            // Replaying it later is harmless, its rows are no longer SENDING.
+            log.warn("Could not delete flushed journal [{}].", journalFile, e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.emails.service;
+
+import com.example.emails.model.Email;
+
+import java.util.List;
+
+/**
+ * One page of email history; {@code nextCursor} is null on the last page.
+ */
+public record EmailHistoryPage(List<Email> emails, String nextCursor) {
+}
@@ -0,0 +1,107 @@
+package com.example.emails.service;
+
+import com.example.emails.model.Email;
+import com.example.emails.model.EmailStatus;
+import com.example.emails.repository.EmailRepository;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads a user's emails newest first using keyset pagination on {@code (userId, createdOn, id)}: every page is a
+ * range scan on {@code idx_email_user_created} (or {@code idx_email_user_status_created} when filtering by status)
+ * that starts right after the previous page's last row, so the cost of a page does not grow with its depth.
+ */
+@Service
+public class EmailHistoryService {
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdOn"), Sort.Order.desc("id"));
+
+    private final EmailRepository emailRepository;
+
+    public EmailHistoryService(EmailRepository emailRepository) {
+        this.emailRepository = emailRepository;
+    }
+
+    public EmailHistoryPage findHistory(UUID userId,
+                                        EmailStatus status,
+                                        LocalDateTime from,
+                                        LocalDateTime to,
+                                        String cursor,
+                                        int limit) {
+
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and %d.".formatted(MAX_PAGE_SIZE));
+        }
+
+        Cursor position = cursor == null ? null : Cursor.decode(cursor);
+
+        Specification<Email> specification = (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.equal(root.get("userId"), userId));
+
+            if (status != null) {
+                predicates.add(cb.equal(root.get("status"), status));
+            }
+            if (from != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("createdOn"), from));
+            }
+            if (to != null) {
+                predicates.add(cb.lessThan(root.get("createdOn"), to));
+            }
+            if (position != null) {
+                predicates.add(cb.or(
+                        cb.lessThan(root.get("createdOn"), position.createdOn()),
+                        cb.and(
+                                cb.equal(root.get("createdOn"), position.createdOn()),
+                                cb.lessThan(root.get("id"), position.id()))));
+            }
+
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+
+        // One extra row tells whether there is a next page without a count query.
+        List<Email> emails = emailRepository.findBy(specification, q -> q
+                .sortBy(NEWEST_FIRST)
+                .limit(limit + 1)
+                .all());
+
+        if (emails.size() <= limit) {
+            return new EmailHistoryPage(emails, null);
+        }
+
+        List<Email> page = emails.subList(0, limit);
+        Email last = page.get(limit - 1);
+
+        return new EmailHistoryPage(page, new Cursor(last.getCreatedOn(), last.getId()).encode());
+    }
+
+    private record Cursor(LocalDateTime createdOn, UUID id) {
+
+        String encode() {
+            String raw = createdOn + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new Cursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        UUID.fromString(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor [%s].".formatted(cursor), e);
+            }
+        }
+    }
+}
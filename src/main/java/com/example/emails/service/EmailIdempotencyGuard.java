@@ -0,0 +1,112 @@
+package com.example.emails.service;
+
+import com.example.emails.config.IdempotencyProperties;
+import com.example.emails.model.Email;
+import com.example.emails.repository.EmailRepository;
+import com.example.emails.web.dto.EmailRequest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Makes retried requests carrying the same {@code Idempotency-Key} return the original email instead of sending
+ * again. Keys are scoped to the user, so two users never collide on one. New keys, the common case, skip the lookup
+ * thanks to {@link IdempotencyKeyFilter}; the unique index on {@code (userId, idempotencyKey)} is what actually
+ * guarantees a single email per key, including across instances and for concurrent retries. A known key sent with
+ * a different request is rejected with {@link IdempotencyKeyReusedException}.
+ */
+@Service
+public class EmailIdempotencyGuard {
+
+    public static final int MAX_KEY_LENGTH = 128;
+
+    private final EmailRepository emailRepository;
+    private final IdempotencyKeyFilter idempotencyKeyFilter;
+
+    public EmailIdempotencyGuard(EmailRepository emailRepository, IdempotencyProperties properties) {
+        this.emailRepository = emailRepository;
+        this.idempotencyKeyFilter =
+                new IdempotencyKeyFilter(properties.getExpectedKeys(), properties.getFalsePositiveRate());
+    }
+
+    /**
+     * Runs {@code send}, which must store the email with {@code idempotencyKey}, unless the user already has an
+     * email with that key, in which case the existing email is returned as is.
+     *
+     * @throws IdempotencyKeyReusedException if the existing email was stored for a different request
+     */
+    public Email execute(EmailRequest emailRequest, String idempotencyKey, Supplier<Email> send) {
+
+        if (idempotencyKey == null) {
+            return send.get();
+        }
+
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must be between 1 and %d characters."
+                    .formatted(MAX_KEY_LENGTH));
+        }
+
+        String filterKey = emailRequest.getUserId() + "/" + idempotencyKey;
+
+        if (idempotencyKeyFilter.mightContain(filterKey)) {
+            Optional<Email> original =
+                    emailRepository.findByUserIdAndIdempotencyKey(emailRequest.getUserId(), idempotencyKey);
+
+            if (original.isPresent()) {
+                return checkSameRequest(original.get(), emailRequest);
+            }
+        }
+
+        try {
+            Email email = send.get();
+            idempotencyKeyFilter.put(filterKey);
+            return email;
+        } catch (DataIntegrityViolationException e) {
+            // Used before this instance's filter saw it: an older key, another instance, or a concurrent retry.
+            Email original = emailRepository.findByUserIdAndIdempotencyKey(emailRequest.getUserId(), idempotencyKey)
+                    .orElseThrow(() -> e);
+            idempotencyKeyFilter.put(filterKey);
+            return checkSameRequest(original, emailRequest);
+        }
+    }
+
+    /**
+     * SHA-256 over every field of the request, with params in key order, so equal requests hash alike however
+     * their JSON was laid out.
+     */
+    public static String requestHash(EmailRequest emailRequest) {
+
+        Map<String, String> params = emailRequest.getParams() != null
+                ? new TreeMap<>(emailRequest.getParams())
+                : null;
+
+        String canonical = String.join("\u0000",
+                String.valueOf(emailRequest.getUserId()),
+                String.valueOf(emailRequest.getSubject()),
+                String.valueOf(emailRequest.getBody()),
+                String.valueOf(emailRequest.getTemplateId()),
+                String.valueOf(emailRequest.getTemplateVersion()),
+                String.valueOf(params),
+                String.valueOf(emailRequest.getSendAt()),
+                String.valueOf(emailRequest.getPriority()));
+
+        return EmailBodyStore.hash(canonical.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Email checkSameRequest(Email original, EmailRequest emailRequest) {
+
+        // Emails stored before request hashes existed have none and are taken as a match.
+        if (original.getRequestHash() != null
+                && !original.getRequestHash().equals(requestHash(emailRequest))) {
+            throw new IdempotencyKeyReusedException("Idempotency key [%s] was already used for a different request."
+                    .formatted(original.getIdempotencyKey()));
+        }
+
+        return original;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.emails.service;
+
+import com.example.emails.config.EmailMetricsProperties;
+import com.example.emails.model.EmailStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Meters for the send pipeline: {@code email.send.stage} times each stage of a send, and
+ * {@code email.send.outcome} counts recorded attempts by resulting status and recipient domain.
+ */
+@Component
+public class EmailMetrics {
+
+    public enum Stage {
+        PREFERENCE_LOOKUP,
+        RATE_LIMIT,
+        SMTP,
+        PERSIST
+    }
+
+    private static final String OTHER_DOMAIN = "other";
+
+    private final MeterRegistry registry;
+    private final EmailMetricsProperties properties;
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+
+    public EmailMetrics(MeterRegistry registry, EmailMetricsProperties properties) {
+        this.registry = registry;
+        this.properties = properties;
+
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder("email.send.stage")
+                    .description("Time spent in each stage of sending an email")
+                    .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                    .register(registry));
+        }
+    }
+
+    public <T> T time(Stage stage, Supplier<T> action) {
+        return stageTimers.get(stage).record(action);
+    }
+
+    public void recordOutcome(EmailStatus status, String recipient) {
+        Counter.builder("email.send.outcome")
+                .description("Delivery attempts by resulting email status")
+                .tag("status", status.name())
+                .tag("domain", domainTag(recipient))
+                .register(registry)
+                .increment();
+    }
+
+    private String domainTag(String recipient) {
+        int at = recipient.lastIndexOf('@');
+        String domain = (at < 0 ? recipient : recipient.substring(at + 1)).toLowerCase(Locale.ROOT);
+        return properties.getTrackedDomains().contains(domain) ? domain : OTHER_DOMAIN;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.emails.service;
+
+import com.example.emails.config.RetentionProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the monthly partitions of an {@code email} table converted with {@code db/mysql/email-partitioning.sql}:
+ * splits upcoming months off {@code p_future} before rows arrive, and drops past partitions once every TTL has
+ * passed for them and retention has left them empty. Dropping a partition is a metadata change, unlike deleting
+ * its rows.
+ * <p>
+ * Runs every {@code email.retention.interval} on its own thread, like {@link EmailRetentionJob}, so a slow
+ * {@code alter table} never holds up the jobs on the shared scheduler.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "email.retention.partitioning.enabled", havingValue = "true")
+public class EmailPartitionMaintainer implements InitializingBean, DisposableBean {
+
+    static final String FUTURE_PARTITION = "p_future";
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RetentionProperties properties;
+    private ThreadPoolTaskScheduler scheduler;
+
+    public EmailPartitionMaintainer(JdbcTemplate jdbcTemplate, RetentionProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("email-partitions-");
+        scheduler.initialize();
+        scheduler.scheduleWithFixedDelay(this::maintainPartitions,
+                Instant.now().plus(properties.getInitialDelay()), properties.getInterval());
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdown();
+    }
+
+    public void maintainPartitions() {
+        maintainPartitions(LocalDateTime.now());
+    }
+
+    void maintainPartitions(LocalDateTime now) {
+
+        Map<String, LocalDate> partitions = partitionUpperBounds();
+        YearMonth current = YearMonth.from(now);
+
+        for (int i = 0; i <= properties.getPartitioning().getMonthsAhead(); i++) {
+            YearMonth month = current.plusMonths(i);
+            LocalDate upperBound = month.plusMonths(1).atDay(1);
+
+            boolean covered = partitions.values().stream()
+                    .anyMatch(bound -> bound != null && !bound.isBefore(upperBound));
+
+            if (!covered) {
+                jdbcTemplate.execute("""
+                        alter table email reorganize partition %1$s into (
+                            partition %2$s values less than ('%3$s'),
+                            partition %1$s values less than (maxvalue))
+                        """.formatted(FUTURE_PARTITION, PARTITION_NAME.format(month), upperBound));
+                partitions.put(PARTITION_NAME.format(month), upperBound);
+                log.info("Created email partition {} for {}", PARTITION_NAME.format(month), month);
+            }
+        }
+
+        // Rows of any status could still be kept before this, whatever the per-status TTLs are.
+        LocalDateTime droppableBefore = now.minus(properties.getTtl().values().stream()
+                .max(Duration::compareTo)
+                .orElse(Duration.ZERO));
+
+        partitions.forEach((name, upperBound) -> {
+            if (upperBound != null
+                    && !upperBound.atStartOfDay().isAfter(droppableBefore)
+                    && isEmpty(name)) {
+                jdbcTemplate.execute("alter table email drop partition " + name);
+                log.info("Dropped empty email partition {}", name);
+            }
+        });
+    }
+
+    /**
+     * @return partition name to exclusive upper bound, null for {@code MAXVALUE}, in partition order
+     */
+    private Map<String, LocalDate> partitionUpperBounds() {
+
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("""
+                select partition_name, partition_description
+                from information_schema.partitions
+                where table_schema = database() and table_name = 'email' and partition_name is not null
+                order by partition_ordinal_position
+                """);
+
+        if (rows.isEmpty()) {
+            throw new IllegalStateException("Table email is not partitioned, run db/mysql/email-partitioning.sql first.");
+        }
+
+        Map<String, LocalDate> partitions = new LinkedHashMap<>();
+
+        for (Map<String, Object> row : rows) {
+            String description = String.valueOf(row.get("partition_description")).replace("'", "");
+            partitions.put(String.valueOf(row.get("partition_name")),
+                    description.equalsIgnoreCase("MAXVALUE") ? null : LocalDate.parse(description.substring(0, 10)));
+        }
+
+        return partitions;
+    }
+
+    private boolean isEmpty(String partition) {
+        return jdbcTemplate.queryForList("select 1 from email partition (" + partition + ") limit 1").isEmpty();
+    }
+}
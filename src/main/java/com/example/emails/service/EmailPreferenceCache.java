@@ -0,0 +1,53 @@
+package com.example.emails.service;
+
+import com.example.emails.config.PreferenceCacheProperties;
+import com.example.emails.model.EmailPreference;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Size- and time-bounded cache of {@link EmailPreference} by user id. Only found preferences are cached, and
+ * writes invalidate the entry so the next read reloads it. Hit, miss and eviction counts are published as
+ * {@code cache.*} meters under the name {@code emailPreferences}.
+ */
+public class EmailPreferenceCache implements MeterBinder {
+
+    private final Cache<UUID, EmailPreference> cache;
+
+    public EmailPreferenceCache(PreferenceCacheProperties properties) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .build();
+    }
+
+    public Optional<EmailPreference> get(UUID userId, Function<UUID, Optional<EmailPreference>> loader) {
+        return Optional.ofNullable(cache.get(userId, key -> loader.apply(key).orElse(null)));
+    }
+
+    public Map<UUID, EmailPreference> getAll(Collection<UUID> userIds,
+                                             Function<Set<? extends UUID>, Map<UUID, EmailPreference>> loader) {
+        return cache.getAll(userIds, loader);
+    }
+
+    public void invalidate(UUID userId) {
+        cache.invalidate(userId);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new CaffeineCacheMetrics<>(cache, "emailPreferences", Tags.empty()).bindTo(registry);
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.emails.service;
+
+import com.example.emails.config.RetentionProperties;
+import com.example.emails.model.Email;
+import com.example.emails.model.EmailStatus;
+import com.example.emails.repository.EmailBodyRepository;
+import com.example.emails.repository.EmailRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deletes emails past their per-status TTL, optionally archiving them first, followed by bodies no email
+ * references any more. Work is done in batches of {@code batch-size} rows, each in its own short transaction and
+ * claimed with {@code SKIP LOCKED}, so the job never holds many locks at once and several instances can run it.
+ * <p>
+ * Runs every {@code interval} on its own thread: on a large table a run takes hours, which on the shared
+ * scheduler would hold up the outbox relay, the write-behind flush and the sweepers for as long.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "email.retention.enabled", havingValue = "true")
+public class EmailRetentionJob implements InitializingBean, DisposableBean {
+
+    private final EmailRepository emailRepository;
+    private final EmailBodyRepository emailBodyRepository;
+    private final EmailBodyStore emailBodyStore;
+    private final RetentionProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private ThreadPoolTaskScheduler scheduler;
+
+    public EmailRetentionJob(EmailRepository emailRepository,
+                             EmailBodyRepository emailBodyRepository,
+                             EmailBodyStore emailBodyStore,
+                             RetentionProperties properties,
+                             TransactionTemplate transactionTemplate,
+                             ObjectMapper objectMapper) {
+        this.emailRepository = emailRepository;
+        this.emailBodyRepository = emailBodyRepository;
+        this.emailBodyStore = emailBodyStore;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("email-retention-");
+        scheduler.initialize();
+        scheduler.scheduleWithFixedDelay(this::purgeExpired,
+                Instant.now().plus(properties.getInitialDelay()), properties.getInterval());
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdown();
+    }
+
+    public void purgeExpired() {
+
+        LocalDateTime now = LocalDateTime.now();
+
+        for (Map.Entry<EmailStatus, Duration> ttl : properties.getTtl().entrySet()) {
+            int purged = purgeEmails(ttl.getKey(), now.minus(ttl.getValue()), now);
+
+            if (purged > 0) {
+                log.info("Purged {} {} emails created before {}", purged, ttl.getKey(), now.minus(ttl.getValue()));
+            }
+        }
+
+        int purgedBodies = purgeUnreferencedBodies(now.minus(properties.getOrphanBodyGrace()));
+
+        if (purgedBodies > 0) {
+            log.info("Purged {} unreferenced email bodies", purgedBodies);
+        }
+    }
+
+    int purgeEmails(EmailStatus status, LocalDateTime before, LocalDateTime runStartedOn) {
+
+        try (EmailArchiveWriter archive = properties.getArchiveDirectory() == null ? null : new EmailArchiveWriter(
+                properties.getArchiveDirectory(), status, runStartedOn, objectMapper,
+                email -> emailBodyStore.load(email.getBodyHash()))) {
+
+            int purged = 0;
+
+            while (true) {
+                int deleted = transactionTemplate.execute(tx -> {
+
+                    List<Email> expired = emailRepository.findExpiredForUpdateSkipLocked(
+                            status, before, PageRequest.of(0, properties.getBatchSize()));
+
+                    if (archive != null && !expired.isEmpty()) {
+                        archive.write(expired);
+                    }
+
+                    emailRepository.deleteAllByIdInBatch(expired.stream()
+                            .map(Email::getId)
+                            .toList());
+                    return expired.size();
+                });
+
+                purged += deleted;
+
+                if (deleted < properties.getBatchSize()) {
+                    return purged;
+                }
+
+                pause();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int purgeUnreferencedBodies(LocalDateTime before) {
+
+        int purged = 0;
+
+        while (true) {
+            List<String> hashes = emailBodyRepository.findUnreferencedHashes(
+                    before, PageRequest.of(0, properties.getBatchSize()));
+
+            if (hashes.isEmpty()) {
+                return purged;
+            }
+
+            purged += emailBodyRepository.deleteUnreferenced(hashes, before);
+
+            if (hashes.size() < properties.getBatchSize()) {
+                return purged;
+            }
+
+            pause();
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(properties.getPauseBetweenBatches());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while purging emails.", e);
+        }
+    }
+}
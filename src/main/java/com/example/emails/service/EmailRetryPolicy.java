@@ -0,0 +1,66 @@
+package com.example.emails.service;
+
+import com.example.emails.config.EmailRetryProperties;
+import com.example.emails.model.Email;
+import com.example.emails.model.EmailStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Component
+public class EmailRetryPolicy {
+
+    private final EmailRetryProperties properties;
+
+    public EmailRetryPolicy(EmailRetryProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Records one delivery attempt with the given outcome. Failures are scheduled for another attempt with
+     * exponential backoff until {@code maxAttempts} is reached, after which the email is dead-lettered.
+     */
+    public void recordAttempt(Email email, EmailStatus outcome) {
+
+        email.setAttempts(email.getAttempts() + 1);
+
+        if (outcome != EmailStatus.FAILED) {
+            email.setStatus(outcome);
+            email.setNextAttemptAt(null);
+            return;
+        }
+
+        if (email.getAttempts() >= properties.getMaxAttempts()) {
+            deadLetter(email);
+            return;
+        }
+
+        email.setStatus(EmailStatus.FAILED);
+        email.setNextAttemptAt(LocalDateTime.now().plus(backoff(email.getAttempts())));
+    }
+
+    /**
+     * Puts an email back in the queue without counting an attempt, e.g. when the rate limiter turned it away;
+     * {@link QueuedEmailSweeper} dispatches it again once it has waited {@code stale-after}.
+     */
+    public void requeue(Email email) {
+        email.setStatus(EmailStatus.QUEUED);
+        email.setNextAttemptAt(LocalDateTime.now());
+    }
+
+    public void deadLetter(Email email) {
+        email.setStatus(EmailStatus.DEAD_LETTER);
+        email.setNextAttemptAt(null);
+    }
+
+    Duration backoff(int attempts) {
+
+        double base = properties.getInitialBackoff().toMillis() * Math.pow(properties.getMultiplier(), attempts - 1);
+        double capped = Math.min(base, properties.getMaxBackoff().toMillis());
+        double jitter = capped * properties.getJitter() * (ThreadLocalRandom.current().nextDouble() * 2 - 1);
+
+        return Duration.ofMillis((long) Math.max(0, capped + jitter));
+    }
+}
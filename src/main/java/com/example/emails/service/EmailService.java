@@ -1,70 +1,391 @@
 package com.example.emails.service;
 
+import com.example.emails.config.EmailDispatchProperties;
 import com.example.emails.model.Email;
 import com.example.emails.model.EmailPreference;
+import com.example.emails.model.EmailPriority;
 import com.example.emails.model.EmailStatus;
+import com.example.emails.model.OutboxEvent;
+import com.example.emails.model.TimeOrderedUuidGenerator;
 import com.example.emails.repository.EmailPreferenceRepository;
 import com.example.emails.repository.EmailRepository;
+import com.example.emails.repository.OutboxEventRepository;
+import com.example.emails.service.EmailMetrics.Stage;
+import com.example.emails.web.dto.BatchEmailRequest;
 import com.example.emails.web.dto.EmailRequest;
 import com.example.emails.web.dto.UpsertPreference;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.mail.MailSender;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Optional;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class EmailService {
 
     private final EmailPreferenceRepository emailPreferenceRepository;
     private final MailSender mailSender;
     private final EmailRepository emailRepository;
+    private final PriorityLaneExecutor priorityLaneExecutor;
+    private final EmailPreferenceCache emailPreferenceCache;
+    private final EmailRetryPolicy emailRetryPolicy;
+    private final SendRateLimiter sendRateLimiter;
+    private final EmailMetrics emailMetrics;
+    private final OutboxEventRepository outboxEventRepository;
+    private final EmailTemplateService emailTemplateService;
+    private final EmailBodyStore emailBodyStore;
+    private final EmailDeliveryStateWriter emailDeliveryStateWriter;
+    private final EmailDispatchProperties emailDispatchProperties;
 
     public EmailService(EmailPreferenceRepository emailPreferenceRepository,
                         MailSender mailSender,
-                        EmailRepository emailRepository) {
+                        EmailRepository emailRepository,
+                        PriorityLaneExecutor priorityLaneExecutor,
+                        EmailPreferenceCache emailPreferenceCache,
+                        EmailRetryPolicy emailRetryPolicy,
+                        SendRateLimiter sendRateLimiter,
+                        EmailMetrics emailMetrics,
+                        OutboxEventRepository outboxEventRepository,
+                        EmailTemplateService emailTemplateService,
+                        EmailBodyStore emailBodyStore,
+                        EmailDeliveryStateWriter emailDeliveryStateWriter,
+                        EmailDispatchProperties emailDispatchProperties) {
         this.emailPreferenceRepository = emailPreferenceRepository;
         this.mailSender = mailSender;
         this.emailRepository = emailRepository;
+        this.priorityLaneExecutor = priorityLaneExecutor;
+        this.emailPreferenceCache = emailPreferenceCache;
+        this.emailRetryPolicy = emailRetryPolicy;
+        this.sendRateLimiter = sendRateLimiter;
+        this.emailMetrics = emailMetrics;
+        this.outboxEventRepository = outboxEventRepository;
+        this.emailTemplateService = emailTemplateService;
+        this.emailBodyStore = emailBodyStore;
+        this.emailDeliveryStateWriter = emailDeliveryStateWriter;
+        this.emailDispatchProperties = emailDispatchProperties;
     }
 
     public EmailPreference upsertPreference(UpsertPreference upsertPreference) {
 
-        Optional<EmailPreference> preferenceOptional =
-                emailPreferenceRepository.findByUserId(upsertPreference.getUserId());
+        UUID userId = upsertPreference.getUserId();
 
-        if (preferenceOptional.isPresent()) {
-            EmailPreference emailPreference = preferenceOptional.get();
+        emailPreferenceRepository.upsert(TimeOrderedUuidGenerator.next(), userId, upsertPreference.isEnabled(),
+                upsertPreference.getContactEmail(), LocalDateTime.now());
+        emailPreferenceCache.invalidate(userId);
 
-            emailPreference.setContactEmail(upsertPreference.getContactEmail());
-            emailPreference.setEnabled(upsertPreference.isEnabled());
-            emailPreference.setUpdatedOn(LocalDateTime.now());
+        return emailPreferenceRepository.findDetachedByUserId(userId)
+                .orElseThrow(() -> preferenceNotFound(userId));
+    }
 
-            return emailPreferenceRepository.save(emailPreference);
+    public EmailPreference getPreferenceByUserId(UUID userId) {
+        return emailMetrics.time(Stage.PREFERENCE_LOOKUP, () -> emailPreferenceCache
+                        .get(userId, emailPreferenceRepository::findByUserId))
+                .orElseThrow(() -> preferenceNotFound(userId));
+    }
+
+    /**
+     * Sends inline. The email is stored as SENDING before SMTP is touched, so a delivered email always has a row,
+     * and only its status is updated afterwards, through {@link EmailDeliveryStateWriter}; no transaction spans
+     * the SMTP call. If the process dies in between, {@link QueuedEmailSweeper} fails the attempt once the row is
+     * older than {@code sending-lease}. The SMTP attempt waits for its rate limit permit, then for a slot in the
+     * email's {@link PriorityLaneExecutor} lane.
+     */
+    public Email sendEmail(EmailRequest emailRequest) {
+        return sendEmail(emailRequest, null);
+    }
+
+    /**
+     * Same as {@link #sendEmail(EmailRequest)}, storing {@code idempotencyKey} with the email; see
+     * {@link EmailIdempotencyGuard}.
+     */
+    public Email sendEmail(EmailRequest emailRequest, String idempotencyKey) {
+
+        if (isScheduled(emailRequest)) {
+            throw new IllegalArgumentException("Emails with a future sendAt can only be queued.");
         }
 
-        EmailPreference emailPreference = EmailPreference.builder()
-                .userId(upsertPreference.getUserId())
-                .isEnabled(upsertPreference.isEnabled())
-                .contactEmail(upsertPreference.getContactEmail())
-                .createdOn(LocalDateTime.now())
-                .updatedOn(LocalDateTime.now())
-                .build();
+        EmailPreference userPreference = getEnabledPreference(emailRequest.getUserId());
+
+        Email email = toEmail(emailRequest, EmailStatus.SENDING, idempotencyKey);
+
+        Email sendingEmail = emailMetrics.time(Stage.PERSIST, () -> emailRepository.save(email));
+
+        try {
+            attemptInLane(sendingEmail, userPreference);
+        } catch (RuntimeException e) {
+            // Stored as SENDING already, which no dispatcher picks up; a crash instead is left to the sweeper.
+            log.warn("Sending email [{}] failed, recording a failed attempt.", sendingEmail.getId(), e);
+            emailRetryPolicy.recordAttempt(sendingEmail, EmailStatus.FAILED);
+        }
+        updateDeliveryState(sendingEmail);
 
-        return emailPreferenceRepository.save(emailPreference);
+        return sendingEmail;
     }
 
-    public EmailPreference getPreferenceByUserId(UUID userId) {
-        return emailPreferenceRepository
-                .findByUserId(userId)
-                .orElseThrow(() -> new NullPointerException("Email preference for user id [%s] was not found."
-                        .formatted(userId)));
+    /**
+     * Batches go to the LOW lane unless they ask for another priority. All emails are stored as SENDING up front;
+     * while the batch runs, the lease of the ones not sent yet is renewed every half {@code sending-lease}, and an
+     * email the sweeper took over anyway, because the batch stalled past it, is skipped and left to its retry.
+     */
+    public List<BatchSendResult> sendBatch(BatchEmailRequest batchEmailRequest) {
+
+        EmailPriority priority = batchEmailRequest.getPriority() != null
+                ? batchEmailRequest.getPriority()
+                : EmailPriority.LOW;
+
+        Set<UUID> userIds = new LinkedHashSet<>(batchEmailRequest.getUserIds());
+
+        Map<UUID, EmailPreference> preferences = emailMetrics.time(Stage.PREFERENCE_LOOKUP, () ->
+                emailPreferenceCache.getAll(userIds, missing ->
+                        emailPreferenceRepository.findByUserIdIn(Set.copyOf(missing))
+                                .stream()
+                                .collect(Collectors.toMap(EmailPreference::getUserId, Function.identity()))));
+
+        List<BatchSendResult> results = new ArrayList<>(userIds.size());
+        List<Email> emails = new ArrayList<>();
+        List<EmailPreference> recipients = new ArrayList<>();
+
+        for (UUID userId : userIds) {
+            EmailPreference userPreference = preferences.get(userId);
+
+            if (userPreference == null) {
+                results.add(new BatchSendResult(userId, null,
+                        "Email preference for user id [%s] was not found.".formatted(userId)));
+                continue;
+            }
+
+            if (!userPreference.isEnabled()) {
+                results.add(new BatchSendResult(userId, null,
+                        "User with id [%s] does not allow receive emails.".formatted(userId)));
+                continue;
+            }
+
+            Email email = Email.builder()
+                    .subject(batchEmailRequest.getSubject())
+                    .body(batchEmailRequest.getBody())
+                    .createdOn(LocalDateTime.now())
+                    .status(EmailStatus.SENDING)
+                    .userId(userId)
+                    .priority(priority)
+                    .build();
+
+            emails.add(email);
+            recipients.add(userPreference);
+            results.add(new BatchSendResult(userId, email, null));
+        }
+
+        if (emails.isEmpty()) {
+            return results;
+        }
+
+        emailMetrics.time(Stage.PERSIST, () -> {
+            // One body row for the whole batch, however many recipients it has.
+            String bodyHash = emailBodyStore.store(batchEmailRequest.getBody());
+            emails.forEach(email -> email.setBodyHash(bodyHash));
+
+            return emailRepository.saveAll(emails);
+        });
+
+        List<UUID> succeededIds = new ArrayList<>(emails.size());
+        Duration renewAfter = emailDispatchProperties.getSendingLease().dividedBy(2);
+        LocalDateTime leasedAt = emails.get(0).getCreatedOn();
+
+        for (int i = 0; i < emails.size(); i++) {
+            Email email = emails.get(i);
+
+            if (!LocalDateTime.now().isBefore(leasedAt.plus(renewAfter))) {
+                leasedAt = LocalDateTime.now();
+                renewLease(emails.subList(i, emails.size()), leasedAt);
+            }
+
+            if (email.getStatus() != EmailStatus.SENDING) {
+                continue;
+            }
+
+            // Sent one by one so each message is paced by the rate limiter right before it goes out and takes its
+            // own lane slot, which keeps a large batch from holding a slot for its whole run; the pooled sender
+            // still reuses the same connection for all of them.
+            attemptInLane(email, recipients.get(i));
+
+            if (email.getStatus() == EmailStatus.SUCCEEDED) {
+                succeededIds.add(email.getId());
+            } else {
+                updateDeliveryState(email);
+            }
+        }
+
+        if (!succeededIds.isEmpty()) {
+            emailMetrics.time(Stage.PERSIST, () ->
+                    emailRepository.markAttempted(succeededIds, EmailStatus.SUCCEEDED));
+        }
+
+        return results;
     }
 
-    public Email sendEmail(EmailRequest emailRequest) {
-        UUID userId = emailRequest.getUserId();
+    /**
+     * Emails whose lease could not be renewed are no longer SENDING; they take over the stored state so the batch
+     * skips them.
+     */
+    private void renewLease(List<Email> unsent, LocalDateTime leasedAt) {
+
+        List<UUID> ids = unsent.stream().map(Email::getId).toList();
+
+        int renewed = emailMetrics.time(Stage.PERSIST, () -> emailRepository.renewLease(ids, leasedAt));
+
+        if (renewed == ids.size()) {
+            return;
+        }
+
+        Map<UUID, Email> stored = emailRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Email::getId, Function.identity()));
+
+        for (Email email : unsent) {
+            Email current = stored.get(email.getId());
+
+            if (current != null && current.getStatus() != EmailStatus.SENDING) {
+                log.warn("Email [{}] lost its sending lease before its batch reached it, skipping it.", email.getId());
+                email.setStatus(current.getStatus());
+                email.setAttempts(current.getAttempts());
+                email.setNextAttemptAt(current.getNextAttemptAt());
+            }
+        }
+    }
+
+    /**
+     * Stores the email as QUEUED together with its outbox entry in one short transaction; {@link OutboxRelay}
+     * hands it to the dispatcher.
+     */
+    @Transactional
+    public Email queueEmail(EmailRequest emailRequest) {
+        return queueEmail(emailRequest, null);
+    }
+
+    /**
+     * A request with a future {@code sendAt} is stored as SCHEDULED, due at that time, and has no outbox entry;
+     * {@link ScheduledEmailDispatcher} picks it up.
+     */
+    @Transactional
+    public Email queueEmail(EmailRequest emailRequest, String idempotencyKey) {
+        EmailPreference userPreference = getEnabledPreference(emailRequest.getUserId());
+
+        if (isScheduled(emailRequest)) {
+            Email email = toEmail(emailRequest, EmailStatus.SCHEDULED, idempotencyKey);
+            email.setNextAttemptAt(emailRequest.getSendAt());
+
+            return emailMetrics.time(Stage.PERSIST, () -> emailRepository.save(email));
+        }
+
+        Email email = toEmail(emailRequest, EmailStatus.QUEUED, idempotencyKey);
+
+        return emailMetrics.time(Stage.PERSIST, () -> {
+            Email queuedEmail = emailRepository.save(email);
+
+            outboxEventRepository.save(OutboxEvent.builder()
+                    .emailId(queuedEmail.getId())
+                    .createdOn(queuedEmail.getCreatedOn())
+                    .priority(queuedEmail.getPriority())
+                    .build());
+
+            return queuedEmail;
+        });
+    }
+
+    public void dispatch(UUID emailId, EmailPriority priority) {
+        try {
+            priorityLaneExecutor.executeWhenReady(priority, () -> claimQueuedEmail(emailId));
+        } catch (TaskRejectedException e) {
+            // The lane is full, the email stays QUEUED and will be picked up by the sweeper.
+        }
+    }
+
+    /**
+     * Claims a QUEUED email and delivers it. Once claimed the email is SENDING, which no dispatcher picks up, so
+     * any failure after the claim is recorded as a failed attempt; if the process dies instead,
+     * {@link #recoverAbandoned(UUID)} does that once the lease has run out.
+     */
+    public void deliverQueuedEmail(UUID emailId) {
+
+        Runnable delivery = claimQueuedEmail(emailId);
+
+        if (delivery != null) {
+            delivery.run();
+        }
+    }
+
+    /**
+     * Claims a QUEUED email and waits for its rate limit permit, so {@link #dispatch(UUID, EmailPriority)} can do
+     * that before the email takes a lane slot.
+     *
+     * @return the SMTP attempt, or null if the email was not claimed or is already settled
+     */
+    private Runnable claimQueuedEmail(UUID emailId) {
+
+        if (emailRepository.claimForSending(emailId, LocalDateTime.now()) == 0) {
+            return null;
+        }
+
+        Email email = emailRepository.findById(emailId)
+                .orElseThrow(() -> new NullPointerException("Email with id [%s] was not found."
+                        .formatted(emailId)));
+
+        try {
+            EmailPreference userPreference = getPreferenceByUserId(email.getUserId());
+
+            if (!userPreference.isEnabled()) {
+                emailRetryPolicy.deadLetter(email);
+            } else if (acquirePermit(email, userPreference)) {
+                return () -> {
+                    try {
+                        attempt(email, userPreference);
+                    } catch (RuntimeException e) {
+                        log.warn("Delivering email [{}] failed, recording a failed attempt.", emailId, e);
+                        emailRetryPolicy.recordAttempt(email, EmailStatus.FAILED);
+                    }
+                    updateDeliveryState(email);
+                };
+            }
+        } catch (RuntimeException e) {
+            log.warn("Delivering email [{}] failed, recording a failed attempt.", emailId, e);
+            emailRetryPolicy.recordAttempt(email, EmailStatus.FAILED);
+        }
+
+        updateDeliveryState(email);
+        return null;
+    }
+
+    /**
+     * Counts the attempt of an email whose sender held it SENDING past its lease as failed, which hands it to
+     * the retry scheduler or dead-letters it. The delivery may have gone out before the sender died, so this can
+     * send the email twice.
+     */
+    public void recoverAbandoned(UUID emailId) {
+
+        Optional<Email> abandoned = emailRepository.findById(emailId);
+
+        if (abandoned.isEmpty() || abandoned.get().getStatus() != EmailStatus.SENDING) {
+            return;
+        }
+
+        Email email = abandoned.get();
+        emailRetryPolicy.recordAttempt(email, EmailStatus.FAILED);
+
+        emailMetrics.time(Stage.PERSIST, () -> emailRepository.updateDeliveryStateIfSending(
+                email.getId(), email.getStatus(), email.getAttempts(), email.getNextAttemptAt()));
+    }
+
+    private static boolean isScheduled(EmailRequest emailRequest) {
+        return emailRequest.getSendAt() != null && emailRequest.getSendAt().isAfter(LocalDateTime.now());
+    }
+
+    private EmailPreference getEnabledPreference(UUID userId) {
         EmailPreference userPreference = getPreferenceByUserId(userId);
 
         if (!userPreference.isEnabled()) {
@@ -72,32 +393,138 @@ public class EmailService {
                     .formatted(userPreference.getUserId()));
         }
 
-        SimpleMailMessage simpleMailMessage = new SimpleMailMessage();
-        simpleMailMessage.setTo(userPreference.getContactEmail());
-        simpleMailMessage.setSubject(emailRequest.getSubject());
-        simpleMailMessage.setText(emailRequest.getBody());
+        return userPreference;
+    }
+
+    /**
+     * Templated requests store the rendered subject and the template reference instead of a body.
+     */
+    private Email toEmail(EmailRequest emailRequest, EmailStatus status, String idempotencyKey) {
 
         Email email = Email.builder()
-                        .subject(emailRequest.getSubject())
-                        .body(emailRequest.getBody())
-                        .createdOn(LocalDateTime.now())
-                        .userId(userId)
-                        .build();
+                .createdOn(LocalDateTime.now())
+                .status(status)
+                .userId(emailRequest.getUserId())
+                .idempotencyKey(idempotencyKey)
+                .requestHash(idempotencyKey != null ? EmailIdempotencyGuard.requestHash(emailRequest) : null)
+                .sendAt(emailRequest.getSendAt())
+                .priority(emailRequest.getPriority() != null ? emailRequest.getPriority() : EmailPriority.NORMAL)
+                .build();
+
+        if (emailRequest.getTemplateId() != null) {
+            CompiledEmailTemplate template =
+                    emailTemplateService.resolve(emailRequest.getTemplateId(), emailRequest.getTemplateVersion());
+            template.checkParams(emailRequest.getParams());
+
+            email.setSubject(template.renderSubject(emailRequest.getParams()));
+            email.setTemplateName(template.name());
+            email.setTemplateVersion(template.version());
+            email.setTemplateParams(emailRequest.getParams());
+            return email;
+        }
+
+        if (emailRequest.getSubject() == null || emailRequest.getBody() == null) {
+            throw new IllegalArgumentException("Email request needs either a templateId or a subject and a body.");
+        }
+
+        email.setSubject(emailRequest.getSubject());
+        email.setBody(emailRequest.getBody());
+        email.setBodyHash(emailBodyStore.store(emailRequest.getBody()));
+        return email;
+    }
+
+    private void updateDeliveryState(Email email) {
+        emailMetrics.time(Stage.PERSIST, () -> {
+            emailDeliveryStateWriter.write(
+                    email.getId(), email.getStatus(), email.getAttempts(), email.getNextAttemptAt());
+            return null;
+        });
+    }
+
+    /**
+     * Waits for the rate limit permit before taking a lane slot, so pacing never holds a slot.
+     */
+    private void attemptInLane(Email email, EmailPreference userPreference) {
+
+        if (!acquirePermit(email, userPreference)) {
+            return;
+        }
 
         try {
-            mailSender.send(simpleMailMessage);
-            email.setStatus(EmailStatus.SUCCEEDED);
-        }  catch (Exception e) {
-            email.setStatus(EmailStatus.FAILED);
+            priorityLaneExecutor.executeAndWait(email.getPriority(), () -> attempt(email, userPreference));
+        } catch (TaskRejectedException e) {
+            // The lane is full; counted as a failed attempt, so the retry scheduler sends it later.
+            emailRetryPolicy.recordAttempt(email, EmailStatus.FAILED);
+            emailMetrics.recordOutcome(email.getStatus(), userPreference.getContactEmail());
         }
+    }
+
+    /**
+     * @return false if the send was not allowed, in which case the email is already put back in the queue; being
+     * throttled is not an attempt, so it never uses up {@code max-attempts}
+     */
+    private boolean acquirePermit(Email email, EmailPreference userPreference) {
+
+        boolean permitted = emailMetrics.time(Stage.RATE_LIMIT, () ->
+                sendRateLimiter.acquire(userPreference.getContactEmail()));
+
+        if (!permitted) {
+            emailRetryPolicy.requeue(email);
+        }
+
+        return permitted;
+    }
+
+    private void attempt(Email email, EmailPreference userPreference) {
+        emailRetryPolicy.recordAttempt(email, deliver(email, userPreference));
+        emailMetrics.recordOutcome(email.getStatus(), userPreference.getContactEmail());
+    }
 
-        return emailRepository.save(email);
+    private EmailStatus deliver(Email email, EmailPreference userPreference) {
+        return emailMetrics.time(Stage.SMTP, () -> {
+            try {
+                mailSender.send(toMessage(email, userPreference));
+                return EmailStatus.SUCCEEDED;
+            }  catch (Exception e) {
+                return EmailStatus.FAILED;
+            }
+        });
+    }
+
+    private String body(Email email) {
+
+        if (email.getTemplateName() != null) {
+            return emailTemplateService.resolve(email.getTemplateName(), email.getTemplateVersion())
+                    .renderBody(email.getTemplateParams());
+        }
+
+        return email.getBody() != null ? email.getBody() : emailBodyStore.load(email.getBodyHash());
+    }
+
+    private SimpleMailMessage toMessage(Email email, EmailPreference userPreference) {
+
+        SimpleMailMessage simpleMailMessage = new SimpleMailMessage();
+        simpleMailMessage.setTo(userPreference.getContactEmail());
+        simpleMailMessage.setSubject(email.getSubject());
+        simpleMailMessage.setText(body(email));
+        return simpleMailMessage;
     }
 
     public EmailPreference changePreference(UUID userId, boolean enabled) {
 
-        EmailPreference emailPreference = getPreferenceByUserId(userId);
-        emailPreference.setEnabled(enabled);
-        return emailPreferenceRepository.save(emailPreference);
+        int updated = emailPreferenceRepository.updateEnabledByUserId(userId, enabled, LocalDateTime.now());
+
+        if (updated == 0) {
+            throw preferenceNotFound(userId);
+        }
+
+        emailPreferenceCache.invalidate(userId);
+
+        return emailPreferenceRepository.findDetachedByUserId(userId)
+                .orElseThrow(() -> preferenceNotFound(userId));
+    }
+
+    private static NullPointerException preferenceNotFound(UUID userId) {
+        return new NullPointerException("Email preference for user id [%s] was not found.".formatted(userId));
     }
 }
@@ -0,0 +1,86 @@
+package com.example.emails.service;
+
+import com.example.emails.config.EmailTemplateProperties;
+import com.example.emails.model.EmailTemplate;
+import com.example.emails.repository.EmailTemplateRepository;
+import com.example.emails.web.dto.TemplateRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stores versioned templates and serves them compiled. Compiled versions are cached without expiry since a version
+ * never changes; only the name to latest version mapping expires, which is how new versions are hot reloaded.
+ */
+@Service
+public class EmailTemplateService {
+
+    private final EmailTemplateRepository emailTemplateRepository;
+    private final Cache<TemplateKey, CompiledEmailTemplate> compiledTemplates;
+    private final Cache<String, Integer> latestVersions;
+
+    public EmailTemplateService(EmailTemplateRepository emailTemplateRepository, EmailTemplateProperties properties) {
+        this.emailTemplateRepository = emailTemplateRepository;
+        this.compiledTemplates = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .build();
+        this.latestVersions = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getLatestVersionTtl())
+                .build();
+    }
+
+    /**
+     * Stores the template as the next version of {@code name}.
+     */
+    public EmailTemplate createTemplate(TemplateRequest templateRequest) {
+
+        EmailTemplate emailTemplate = EmailTemplate.builder()
+                .name(templateRequest.getName())
+                .subject(templateRequest.getSubject())
+                .body(templateRequest.getBody())
+                .createdOn(LocalDateTime.now())
+                .version(emailTemplateRepository.findFirstByNameOrderByVersionDesc(templateRequest.getName())
+                        .map(latest -> latest.getVersion() + 1)
+                        .orElse(1))
+                .build();
+
+        CompiledEmailTemplate compiledTemplate = CompiledEmailTemplate.compile(emailTemplate);
+
+        EmailTemplate savedTemplate = emailTemplateRepository.save(emailTemplate);
+        compiledTemplates.put(new TemplateKey(savedTemplate.getName(), savedTemplate.getVersion()), compiledTemplate);
+        latestVersions.put(savedTemplate.getName(), savedTemplate.getVersion());
+
+        return savedTemplate;
+    }
+
+    /**
+     * @param version a specific version, or null for the latest one
+     */
+    CompiledEmailTemplate resolve(String name, Integer version) {
+
+        Integer resolvedVersion = version != null
+                ? version
+                : latestVersions.get(name, key -> emailTemplateRepository.findFirstByNameOrderByVersionDesc(key)
+                        .map(EmailTemplate::getVersion)
+                        .orElse(null));
+
+        CompiledEmailTemplate compiledTemplate = resolvedVersion == null ? null : compiledTemplates.get(
+                new TemplateKey(name, resolvedVersion), key -> emailTemplateRepository
+                        .findByNameAndVersion(key.name(), key.version())
+                        .map(CompiledEmailTemplate::compile)
+                        .orElse(null));
+
+        if (compiledTemplate == null) {
+            throw new NullPointerException("Email template [%s] version [%s] was not found."
+                    .formatted(name, version == null ? "latest" : version));
+        }
+
+        return compiledTemplate;
+    }
+
+    private record TemplateKey(String name, int version) {
+    }
+}
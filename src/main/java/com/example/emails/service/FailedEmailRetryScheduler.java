@@ -0,0 +1,56 @@
+package com.example.emails.service;
+
+import com.example.emails.config.EmailRetryProperties;
+import com.example.emails.model.Email;
+import com.example.emails.model.EmailStatus;
+import com.example.emails.repository.EmailDispatchRef;
+import com.example.emails.repository.EmailRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves FAILED emails whose next attempt is due back to QUEUED and hands them to the dispatcher. Rows are
+ * claimed with {@code FOR UPDATE SKIP LOCKED}, so several instances can run this at the same time without
+ * picking the same email.
+ */
+@Component
+public class FailedEmailRetryScheduler {
+
+    private final EmailRepository emailRepository;
+    private final EmailService emailService;
+    private final EmailRetryProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    public FailedEmailRetryScheduler(EmailRepository emailRepository,
+                                     EmailService emailService,
+                                     EmailRetryProperties properties,
+                                     TransactionTemplate transactionTemplate) {
+        this.emailRepository = emailRepository;
+        this.emailService = emailService;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Scheduled(fixedDelayString = "${email.retry.interval:PT15S}")
+    public void retryDueEmails() {
+
+        List<EmailDispatchRef> claimed = transactionTemplate.execute(status -> {
+
+            List<Email> dueEmails = emailRepository.findDueForUpdateSkipLocked(
+                    EmailStatus.FAILED, LocalDateTime.now(), PageRequest.of(0, properties.getBatchSize()));
+
+            dueEmails.forEach(email -> email.setStatus(EmailStatus.QUEUED));
+
+            return dueEmails.stream()
+                    .map(email -> new EmailDispatchRef(email.getId(), email.getPriority()))
+                    .toList();
+        });
+
+        claimed.forEach(ref -> emailService.dispatch(ref.id(), ref.priority()));
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.emails.service;
+
+import com.example.emails.config.OutboxProperties;
+import com.example.emails.kafka.EmailQueuedEvent;
+import com.example.emails.model.Email;
+import com.example.emails.model.OutboxEvent;
+import com.example.emails.repository.EmailRepository;
+import com.example.emails.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Drains the outbox written by {@link EmailService#queueEmail}. Each batch is locked with {@code SKIP LOCKED},
+ * optionally published to Kafka and deleted in one short transaction; the emails are handed to the dispatcher
+ * only after that commits, so no database connection is held during SMTP. Kafka publishing is at-least-once:
+ * a failed commit leaves the rows to be published again. Emails whose dispatch is lost after the commit stay
+ * QUEUED and are picked up by {@link QueuedEmailSweeper}.
+ */
+@Component
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final EmailRepository emailRepository;
+    private final EmailService emailService;
+    private final OutboxProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<KafkaTemplate<String, String>> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       EmailRepository emailRepository,
+                       EmailService emailService,
+                       OutboxProperties properties,
+                       TransactionTemplate transactionTemplate,
+                       ObjectProvider<KafkaTemplate<String, String>> kafkaTemplate,
+                       ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.emailRepository = emailRepository;
+        this.emailService = emailService;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval:PT1S}")
+    public void relay() {
+
+        List<OutboxEvent> events;
+        do {
+            events = transactionTemplate.execute(status -> relayBatch());
+            events.forEach(event -> emailService.dispatch(event.getEmailId(), event.getPriority()));
+        } while (events.size() == properties.getBatchSize());
+    }
+
+    private List<OutboxEvent> relayBatch() {
+
+        List<OutboxEvent> events =
+                outboxEventRepository.findBatchForUpdateSkipLocked(PageRequest.of(0, properties.getBatchSize()));
+
+        if (events.isEmpty()) {
+            return List.of();
+        }
+
+        List<UUID> emailIds = events.stream()
+                .map(OutboxEvent::getEmailId)
+                .toList();
+
+        if (properties.isPublishToKafka()) {
+            publish(emailRepository.findAllById(emailIds));
+        }
+
+        outboxEventRepository.deleteAllInBatch(events);
+
+        return events;
+    }
+
+    private void publish(List<Email> emails) {
+
+        KafkaTemplate<String, String> template = kafkaTemplate.getObject();
+
+        CompletableFuture<?>[] sends = emails.stream()
+                .map(email -> template.send(properties.getTopic(), email.getUserId().toString(), toJson(email)))
+                .toArray(CompletableFuture[]::new);
+
+        try {
+            CompletableFuture.allOf(sends).get(properties.getPublishTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while publishing outbox batch.", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Failed to publish outbox batch to [%s].".formatted(properties.getTopic()), e);
+        }
+    }
+
+    private String toJson(Email email) {
+        try {
+            return objectMapper.writeValueAsString(new EmailQueuedEvent(
+                    email.getId(), email.getUserId(), email.getSubject(), email.getCreatedOn()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
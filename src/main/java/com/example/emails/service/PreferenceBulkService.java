@@ -0,0 +1,150 @@
+package com.example.emails.service;
+
+import com.example.emails.config.PreferenceBulkProperties;
+import com.example.emails.model.EmailPreference;
+import com.example.emails.repository.EmailPreferenceBulkRepository;
+import com.example.emails.repository.EmailPreferenceRepository;
+import com.example.emails.web.dto.UpsertPreference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Streams preference imports and exports without holding the whole data set: imports are parsed line by line and
+ * upserted in chunks of {@code import-chunk-size}, exports are read in keyset pages by id. Each import chunk
+ * commits on its own, so a failure leaves earlier chunks in place and the import can simply be re-run.
+ */
+@Service
+public class PreferenceBulkService {
+
+    private static final String CSV_HEADER = "userId";
+
+    private final EmailPreferenceBulkRepository emailPreferenceBulkRepository;
+    private final EmailPreferenceRepository emailPreferenceRepository;
+    private final EmailPreferenceCache emailPreferenceCache;
+    private final PreferenceBulkProperties properties;
+    private final ObjectReader upsertPreferenceReader;
+
+    public PreferenceBulkService(EmailPreferenceBulkRepository emailPreferenceBulkRepository,
+                                 EmailPreferenceRepository emailPreferenceRepository,
+                                 EmailPreferenceCache emailPreferenceCache,
+                                 PreferenceBulkProperties properties,
+                                 ObjectMapper objectMapper) {
+        this.emailPreferenceBulkRepository = emailPreferenceBulkRepository;
+        this.emailPreferenceRepository = emailPreferenceRepository;
+        this.emailPreferenceCache = emailPreferenceCache;
+        this.properties = properties;
+        this.upsertPreferenceReader = objectMapper.readerFor(UpsertPreference.class);
+    }
+
+    /**
+     * @return number of records upserted
+     */
+    public long importPreferences(BufferedReader reader, PreferenceImportFormat format) {
+
+        List<UpsertPreference> chunk = new ArrayList<>(properties.getImportChunkSize());
+        long imported = 0;
+        long lineNumber = 0;
+
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+
+                if (line.isBlank() || (format == PreferenceImportFormat.CSV && line.startsWith(CSV_HEADER))) {
+                    continue;
+                }
+
+                chunk.add(parse(line, format, lineNumber));
+
+                if (chunk.size() == properties.getImportChunkSize()) {
+                    imported += flush(chunk);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return imported + flush(chunk);
+    }
+
+    /**
+     * Hands every preference to {@code pageConsumer}, one page of at most {@code export-page-size} at a time.
+     */
+    public void exportPreferences(Consumer<List<EmailPreference>> pageConsumer) {
+
+        Limit limit = Limit.of(properties.getExportPageSize());
+        List<EmailPreference> page = emailPreferenceRepository.findAllByOrderByIdAsc(limit);
+
+        while (!page.isEmpty()) {
+            pageConsumer.accept(page);
+
+            UUID lastId = page.get(page.size() - 1).getId();
+            page = page.size() < limit.max()
+                    ? List.of()
+                    : emailPreferenceRepository.findByIdGreaterThanOrderByIdAsc(lastId, limit);
+        }
+    }
+
+    private int flush(List<UpsertPreference> chunk) {
+
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+
+        emailPreferenceBulkRepository.upsertAll(chunk, LocalDateTime.now());
+        chunk.forEach(preference -> emailPreferenceCache.invalidate(preference.getUserId()));
+
+        int size = chunk.size();
+        chunk.clear();
+        return size;
+    }
+
+    private UpsertPreference parse(String line, PreferenceImportFormat format, long lineNumber) {
+
+        UpsertPreference preference;
+
+        try {
+            preference = switch (format) {
+                case NDJSON -> upsertPreferenceReader.readValue(line);
+                case CSV -> parseCsv(line);
+            };
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Invalid preference on line %d.".formatted(lineNumber), e);
+        }
+
+        if (preference.getUserId() == null
+                || preference.getContactEmail() == null
+                || preference.getContactEmail().isBlank()) {
+            throw new IllegalArgumentException("Preference on line %d must have a userId and a contactEmail."
+                    .formatted(lineNumber));
+        }
+
+        return preference;
+    }
+
+    private static UpsertPreference parseCsv(String line) {
+
+        String[] columns = line.split(",", -1);
+
+        if (columns.length != 3) {
+            throw new IllegalArgumentException("Expected 3 columns but got %d.".formatted(columns.length));
+        }
+
+        UpsertPreference preference = new UpsertPreference();
+        preference.setUserId(UUID.fromString(columns[0].trim()));
+        preference.setContactEmail(columns[1].trim());
+        preference.setEnabled(Boolean.parseBoolean(columns[2].trim()));
+        return preference;
+    }
+}
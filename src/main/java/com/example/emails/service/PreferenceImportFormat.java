@@ -0,0 +1,14 @@
+package com.example.emails.service;
+
+public enum PreferenceImportFormat {
+
+    /**
+     * One {@code UpsertPreference} JSON object per line.
+     */
+    NDJSON,
+
+    /**
+     * {@code userId,contactEmail,enabled} per line, with an optional header line.
+     */
+    CSV
+}
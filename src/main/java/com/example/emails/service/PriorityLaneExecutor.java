@@ -0,0 +1,325 @@
+package com.example.emails.service;
+
+import com.example.emails.config.EmailDispatchProperties;
+import com.example.emails.model.EmailPriority;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Queues deliveries per {@link EmailPriority} lane in front of the dispatch executor and hands at most
+ * {@code max-in-flight} of them to it at a time. Free slots go to the waiting lanes by smooth weighted
+ * round-robin, and no lane runs more than its own {@code max-concurrency}. HIGH mail only waits for the other lanes
+ * when they may take every slot between them, so their {@code max-concurrency} should add up to less than
+ * {@code max-in-flight}; a warning is logged at startup when it does not. A delivery the dispatch executor rejects
+ * stays at the head of its lane and is handed over again after {@code rejected-retry-delay}.
+ * <p>
+ * Meters, tagged by lane: {@code email.dispatch.lane.queued} and {@code email.dispatch.lane.active} gauges, and
+ * the {@code email.dispatch.lane.wait} timer for the time spent queued.
+ */
+@Slf4j
+@Component
+public class PriorityLaneExecutor implements DisposableBean {
+
+    private final TaskExecutor delegate;
+    private final TaskExecutor prepareExecutor;
+    private final int maxInFlight;
+    private final long laneWaitTimeoutNanos;
+    private final Duration rejectedRetryDelay;
+    private final ThreadPoolTaskScheduler retryTimer;
+    private final Map<EmailPriority, Lane> lanes = new EnumMap<>(EmailPriority.class);
+    private int inFlight;
+    private boolean retryPending;
+
+    public PriorityLaneExecutor(TaskExecutor emailDispatchExecutor,
+                                TaskExecutor emailPrepareExecutor,
+                                EmailDispatchProperties properties,
+                                MeterRegistry registry) {
+        this.delegate = emailDispatchExecutor;
+        this.prepareExecutor = emailPrepareExecutor;
+        this.maxInFlight = properties.getMaxInFlight();
+        this.laneWaitTimeoutNanos = properties.getLaneWaitTimeout().toNanos();
+        this.rejectedRetryDelay = properties.getRejectedRetryDelay();
+
+        this.retryTimer = new ThreadPoolTaskScheduler();
+        this.retryTimer.setThreadNamePrefix("email-lane-retry-");
+        this.retryTimer.initialize();
+
+        for (EmailPriority priority : EmailPriority.values()) {
+            EmailDispatchProperties.Lane settings = properties.getLanes().get(priority);
+            String tag = priority.name().toLowerCase(Locale.ROOT);
+
+            Timer waitTimer = Timer.builder("email.dispatch.lane.wait")
+                    .description("Time deliveries wait in their lane before they start")
+                    .tag("lane", tag)
+                    .register(registry);
+
+            lanes.put(priority, new Lane(settings, waitTimer));
+
+            Gauge.builder("email.dispatch.lane.queued", this, self -> self.queued(priority))
+                    .description("Deliveries waiting in the lane")
+                    .tag("lane", tag)
+                    .register(registry);
+            Gauge.builder("email.dispatch.lane.active", this, self -> self.active(priority))
+                    .description("Deliveries from the lane currently running")
+                    .tag("lane", tag)
+                    .register(registry);
+        }
+
+        int belowHigh = lanes.entrySet().stream()
+                .filter(entry -> entry.getKey() != EmailPriority.HIGH)
+                .mapToInt(entry -> entry.getValue().maxConcurrency)
+                .sum();
+        if (belowHigh >= maxInFlight) {
+            log.warn("NORMAL and LOW lanes may take all {} dispatch slots, so HIGH mail can wait behind them.",
+                    maxInFlight);
+        }
+    }
+
+    /**
+     * @throws TaskRejectedException if the lane is full
+     */
+    public void execute(EmailPriority priority, Runnable task) {
+
+        Lane lane = lanes.get(priority);
+
+        synchronized (this) {
+            if (lane.queue.size() + lane.preparing >= lane.queueCapacity) {
+                throw new TaskRejectedException("Dispatch lane [%s] is full.".formatted(priority));
+            }
+            lane.queue.addLast(new QueuedTask(task, System.nanoTime()));
+        }
+
+        schedule();
+    }
+
+    /**
+     * Runs {@code beforeSlot} on the prepare executor without taking a slot, e.g. to wait for a rate limit permit,
+     * then queues the task it returns in the lane; a null task queues nothing. It counts against the lane's
+     * {@code queue-capacity} meanwhile, so once accepted its task is never rejected.
+     *
+     * @throws TaskRejectedException if the lane is full
+     */
+    public void executeWhenReady(EmailPriority priority, Supplier<Runnable> beforeSlot) {
+
+        Lane lane = lanes.get(priority);
+
+        synchronized (this) {
+            if (lane.queue.size() + lane.preparing >= lane.queueCapacity) {
+                throw new TaskRejectedException("Dispatch lane [%s] is full.".formatted(priority));
+            }
+            lane.preparing++;
+        }
+
+        try {
+            prepareExecutor.execute(() -> prepare(lane, beforeSlot));
+        } catch (TaskRejectedException e) {
+            synchronized (this) {
+                lane.preparing--;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Runs {@code task} in its lane and waits for it, rethrowing what it throws. A task still queued after
+     * {@code lane-wait-timeout} is withdrawn; one that has started is waited for, bounded by its own timeouts.
+     *
+     * @throws TaskRejectedException if the lane is full or the task did not start in time
+     */
+    public void executeAndWait(EmailPriority priority, Runnable task) {
+
+        FutureTask<Void> future = new FutureTask<>(task, null);
+        execute(priority, future);
+
+        try {
+            try {
+                future.get(laneWaitTimeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (future.cancel(false)) {
+                    throw new TaskRejectedException("Timed out waiting in dispatch lane [%s].".formatted(priority), e);
+                }
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TaskRejectedException("Interrupted while waiting in dispatch lane [%s].".formatted(priority), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    synchronized int queued(EmailPriority priority) {
+        return lanes.get(priority).queue.size();
+    }
+
+    synchronized int active(EmailPriority priority) {
+        return lanes.get(priority).active;
+    }
+
+    private void schedule() {
+
+        while (true) {
+            Lane lane;
+            QueuedTask next;
+
+            synchronized (this) {
+                lane = inFlight < maxInFlight ? nextLane() : null;
+                if (lane == null) {
+                    return;
+                }
+                next = lane.queue.pollFirst();
+                inFlight++;
+                lane.active++;
+            }
+
+            try {
+                delegate.execute(() -> run(lane, next));
+            } catch (TaskRejectedException e) {
+                // Left at the head of its lane; a completion, a submission or the retry timer tries again.
+                synchronized (this) {
+                    inFlight--;
+                    lane.active--;
+                    lane.queue.addFirst(next);
+                    if (retryPending) {
+                        return;
+                    }
+                    retryPending = true;
+                }
+                scheduleRetry();
+                return;
+            }
+        }
+    }
+
+    private void scheduleRetry() {
+        try {
+            retryTimer.schedule(this::retryRejected, Instant.now().plus(rejectedRetryDelay));
+        } catch (TaskRejectedException e) {
+            // Shutting down; whatever is left in the lanes is still QUEUED or SENDING for the sweeper.
+            synchronized (this) {
+                retryPending = false;
+            }
+        }
+    }
+
+    private void retryRejected() {
+        synchronized (this) {
+            retryPending = false;
+        }
+        schedule();
+    }
+
+    private void prepare(Lane lane, Supplier<Runnable> beforeSlot) {
+
+        Runnable task = null;
+        try {
+            task = beforeSlot.get();
+        } finally {
+            synchronized (this) {
+                lane.preparing--;
+                if (task != null) {
+                    lane.queue.addLast(new QueuedTask(task, System.nanoTime()));
+                }
+            }
+        }
+
+        if (task != null) {
+            schedule();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        retryTimer.shutdown();
+    }
+
+    private void run(Lane lane, QueuedTask queuedTask) {
+        try {
+            lane.waitTimer.record(System.nanoTime() - queuedTask.queuedNanos(), TimeUnit.NANOSECONDS);
+            queuedTask.task().run();
+        } finally {
+            synchronized (this) {
+                inFlight--;
+                lane.active--;
+            }
+            schedule();
+        }
+    }
+
+    /**
+     * Smooth weighted round-robin over the lanes that have work and a free slot: each such lane gains its weight,
+     * the richest one is picked and pays back the total, which interleaves lanes in proportion to their weights.
+     */
+    private Lane nextLane() {
+
+        Lane selected = null;
+        int totalWeight = 0;
+
+        for (Lane lane : lanes.values()) {
+            if (lane.queue.isEmpty() || lane.active >= lane.maxConcurrency) {
+                continue;
+            }
+
+            lane.currentWeight += lane.weight;
+            totalWeight += lane.weight;
+
+            if (selected == null || lane.currentWeight > selected.currentWeight) {
+                selected = lane;
+            }
+        }
+
+        if (selected != null) {
+            selected.currentWeight -= totalWeight;
+        }
+
+        return selected;
+    }
+
+    private static final class Lane {
+
+        private final int weight;
+        private final int maxConcurrency;
+        private final int queueCapacity;
+        private final Timer waitTimer;
+        private final Deque<QueuedTask> queue = new ArrayDeque<>();
+        private int active;
+        private int preparing;
+        private int currentWeight;
+
+        private Lane(EmailDispatchProperties.Lane settings, Timer waitTimer) {
+            this.weight = settings.getWeight();
+            this.maxConcurrency = settings.getMaxConcurrency();
+            this.queueCapacity = settings.getQueueCapacity();
+            this.waitTimer = waitTimer;
+        }
+    }
+
+    private record QueuedTask(Runnable task, long queuedNanos) {
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.emails.service;
+
+import com.example.emails.config.EmailDispatchProperties;
+import com.example.emails.model.EmailStatus;
+import com.example.emails.repository.EmailDispatchRef;
+import com.example.emails.repository.EmailRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Hands emails that stayed QUEUED past {@code stale-after} to the dispatcher again, and fails the attempt of
+ * emails that stayed SENDING past {@code sending-lease}, so the retry scheduler takes them over.
+ */
+@Component
+public class QueuedEmailSweeper {
+
+    private final EmailRepository emailRepository;
+    private final EmailService emailService;
+    private final EmailDispatchProperties properties;
+
+    public QueuedEmailSweeper(EmailRepository emailRepository,
+                              EmailService emailService,
+                              EmailDispatchProperties properties) {
+        this.emailRepository = emailRepository;
+        this.emailService = emailService;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${email.dispatch.sweep-interval:PT30S}")
+    public void sweep() {
+
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.getStaleAfter());
+
+        List<EmailDispatchRef> stale = emailRepository.findStale(
+                EmailStatus.QUEUED, cutoff, PageRequest.of(0, properties.getSweepBatchSize()));
+
+        stale.forEach(ref -> emailService.dispatch(ref.id(), ref.priority()));
+
+        List<EmailDispatchRef> abandoned = emailRepository.findStale(EmailStatus.SENDING,
+                LocalDateTime.now().minus(properties.getSendingLease()),
+                PageRequest.of(0, properties.getSweepBatchSize()));
+
+        abandoned.forEach(ref -> emailService.recoverAbandoned(ref.id()));
+    }
+}
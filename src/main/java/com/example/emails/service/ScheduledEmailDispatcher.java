@@ -0,0 +1,128 @@
+package com.example.emails.service;
+
+import com.example.emails.config.ScheduledSendProperties;
+import com.example.emails.model.Email;
+import com.example.emails.model.EmailStatus;
+import com.example.emails.repository.EmailDispatchRef;
+import com.example.emails.repository.EmailRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Delivers SCHEDULED emails at their {@code sendAt}. Every {@code load-interval} the emails due within
+ * {@code lookahead} are claimed with {@code SKIP LOCKED} and moved to QUEUED, so each instance holds a distinct
+ * set, and put on an in-memory {@link TimerWheel} that hands them to the dispatcher when due, at most
+ * {@code dispatch-per-tick} per tick.
+ * <p>
+ * Claimed emails keep their due time in {@code nextAttemptAt}: on shutdown the ones still waiting go back to
+ * SCHEDULED, and if an instance dies instead, {@link QueuedEmailSweeper} picks them up once they are overdue.
+ */
+@Component
+public class ScheduledEmailDispatcher implements DisposableBean {
+
+    private final EmailRepository emailRepository;
+    private final EmailService emailService;
+    private final ScheduledSendProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final TimerWheel<EmailDispatchRef> timerWheel;
+    private final Queue<EmailDispatchRef> ready = new ArrayDeque<>();
+    private final ThreadPoolTaskScheduler ticker;
+
+    public ScheduledEmailDispatcher(EmailRepository emailRepository,
+                                    EmailService emailService,
+                                    ScheduledSendProperties properties,
+                                    TransactionTemplate transactionTemplate) {
+        this.emailRepository = emailRepository;
+        this.emailService = emailService;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.timerWheel = new TimerWheel<>(
+                properties.getTick().toMillis(), properties.getWheelSize(), System.currentTimeMillis());
+
+        // Its own thread, so ticks are not held up by other @Scheduled jobs sharing the default scheduler.
+        this.ticker = new ThreadPoolTaskScheduler();
+        this.ticker.setThreadNamePrefix("email-timer-wheel-");
+        this.ticker.initialize();
+        this.ticker.scheduleAtFixedRate(this::tick, properties.getTick());
+    }
+
+    @Scheduled(fixedDelayString = "${email.scheduled.load-interval:PT10S}")
+    public void loadUpcoming() {
+
+        LocalDateTime horizon = LocalDateTime.now().plus(properties.getLookahead());
+        List<Email> claimed;
+
+        do {
+            claimed = transactionTemplate.execute(status -> {
+
+                List<Email> upcoming = emailRepository.findDueForUpdateSkipLocked(
+                        EmailStatus.SCHEDULED, horizon, PageRequest.of(0, properties.getBatchSize()));
+
+                upcoming.forEach(email -> email.setStatus(EmailStatus.QUEUED));
+                return upcoming;
+            });
+
+            synchronized (this) {
+                for (Email email : claimed) {
+                    EmailDispatchRef ref = new EmailDispatchRef(email.getId(), email.getPriority());
+
+                    if (!timerWheel.add(toEpochMillis(email.getNextAttemptAt()), ref)) {
+                        ready.add(ref);
+                    }
+                }
+            }
+        } while (claimed.size() == properties.getBatchSize());
+    }
+
+    void tick() {
+
+        List<EmailDispatchRef> due;
+
+        synchronized (this) {
+            timerWheel.advance(System.currentTimeMillis(), ready::add);
+
+            int count = Math.min(ready.size(), properties.getDispatchPerTick());
+            due = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                due.add(ready.poll());
+            }
+        }
+
+        due.forEach(ref -> emailService.dispatch(ref.id(), ref.priority()));
+    }
+
+    synchronized int pending() {
+        return timerWheel.size() + ready.size();
+    }
+
+    @Override
+    public void destroy() {
+
+        ticker.shutdown();
+
+        List<EmailDispatchRef> waiting;
+
+        synchronized (this) {
+            waiting = timerWheel.drain();
+            waiting.addAll(ready);
+            ready.clear();
+        }
+
+        waiting.forEach(ref -> emailRepository.transitionStatus(ref.id(), EmailStatus.QUEUED, EmailStatus.SCHEDULED));
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
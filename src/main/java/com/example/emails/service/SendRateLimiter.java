@@ -0,0 +1,103 @@
+package com.example.emails.service;
+
+import com.example.emails.config.RateLimitProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces outbound SMTP sends with one token bucket per recipient domain plus a global one. A send that would have
+ * to wait longer than {@code maxWait} is rejected; the email goes back to QUEUED and is dispatched again later.
+ */
+@Component
+public class SendRateLimiter {
+
+    private final RateLimitProperties properties;
+    private final TokenBucket globalBucket;
+    private final Cache<String, TokenBucket> domainBuckets = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .build();
+
+    public SendRateLimiter(RateLimitProperties properties) {
+        this.properties = properties;
+        this.globalBucket = newBucket(properties.getGlobal(), System.nanoTime());
+    }
+
+    /**
+     * Blocks until a send to {@code recipient} is allowed.
+     *
+     * @return false if the send was not allowed within {@code maxWait}
+     */
+    public boolean acquire(String recipient) {
+
+        if (!properties.isEnabled()) {
+            return true;
+        }
+
+        long waitNanos = reserve(recipient, System.nanoTime());
+        if (waitNanos < 0) {
+            return false;
+        }
+
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Reserves a permit from the recipient's domain bucket and the global one, or from neither.
+     *
+     * @return nanoseconds to wait before sending, or {@code -1} if either bucket would make it wait too long
+     */
+    long reserve(String recipient, long now) {
+
+        long maxWait = properties.getMaxWait().toNanos();
+        TokenBucket domainBucket = domainBucket(domainOf(recipient), now);
+
+        long domainWait = reserve(domainBucket, now, maxWait);
+        if (domainWait < 0) {
+            return -1;
+        }
+
+        long globalWait = reserve(globalBucket, now, maxWait);
+        if (globalWait < 0) {
+            // Give the domain permit back, or every global rejection would slow down the domain too.
+            if (domainBucket != null) {
+                domainBucket.cancel();
+            }
+            return -1;
+        }
+
+        return Math.max(domainWait, globalWait);
+    }
+
+    private TokenBucket domainBucket(String domain, long now) {
+        return domainBuckets.get(domain, key ->
+                newBucket(properties.getDomains().getOrDefault(key, properties.getDefaultDomain()), now));
+    }
+
+    private static long reserve(TokenBucket bucket, long now, long maxWait) {
+        return bucket == null ? 0 : bucket.reserve(now, maxWait);
+    }
+
+    private static TokenBucket newBucket(RateLimitProperties.Limit limit, long now) {
+        return limit.getRate() > 0 ? new TokenBucket(limit.getRate(), limit.getBurst(), now) : null;
+    }
+
+    private static String domainOf(String recipient) {
+        int at = recipient.lastIndexOf('@');
+        return (at < 0 ? recipient : recipient.substring(at + 1)).toLowerCase(Locale.ROOT);
+    }
+}
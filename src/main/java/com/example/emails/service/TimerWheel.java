@@ -0,0 +1,130 @@
+package com.example.emails.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel: level {@code n} has {@code wheelSize} buckets of {@code tickMillis * wheelSize^n}
+ * each, and entries move down a level as their bucket comes up, so adding is O(1) and advancing costs one bucket
+ * per tick regardless of how many timers are pending. Entries fire within one tick after their deadline, never
+ * before it; levels are added on demand for far deadlines. Not thread-safe, callers synchronize.
+ */
+final class TimerWheel<T> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final List<Level<T>> levels = new ArrayList<>();
+    private long currentTime;
+    private int size;
+
+    TimerWheel(long tickMillis, int wheelSize, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.currentTime = startMillis - startMillis % tickMillis;
+        this.levels.add(new Level<>(tickMillis, wheelSize));
+    }
+
+    /**
+     * @return false if the deadline is already due, in which case the entry is not added
+     */
+    boolean add(long deadlineMillis, T item) {
+
+        if (deadlineMillis < currentTime) {
+            return false;
+        }
+
+        for (int i = 0; ; i++) {
+            if (i == levels.size()) {
+                Level<T> top = levels.get(i - 1);
+                levels.add(new Level<>(top.tickMillis * wheelSize, wheelSize));
+            }
+
+            Level<T> level = levels.get(i);
+            long levelTime = currentTime - currentTime % level.tickMillis;
+
+            if (deadlineMillis < levelTime + level.tickMillis * wheelSize) {
+                level.bucket(deadlineMillis).add(new Entry<>(deadlineMillis, item));
+                size++;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Moves time forward to {@code nowMillis}, handing every entry that became due to {@code expired}.
+     */
+    void advance(long nowMillis, Consumer<T> expired) {
+
+        while (currentTime + tickMillis <= nowMillis) {
+            currentTime += tickMillis;
+
+            // The bucket that just ended is fired before cascading, because its slot is reused for the furthest
+            // deadlines of the next rotation.
+            List<Entry<T>> bucket = levels.get(0).bucket(currentTime - tickMillis);
+            size -= bucket.size();
+            bucket.forEach(entry -> expired.accept(entry.item()));
+            bucket.clear();
+
+            for (int i = levels.size() - 1; i > 0; i--) {
+                Level<T> level = levels.get(i);
+
+                if (currentTime % level.tickMillis == 0) {
+                    cascade(level.bucket(currentTime), expired);
+                }
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    List<T> drain() {
+        List<T> items = new ArrayList<>(size);
+        levels.forEach(level -> level.drainTo(items));
+        size = 0;
+        return items;
+    }
+
+    private void cascade(List<Entry<T>> bucket, Consumer<T> expired) {
+
+        List<Entry<T>> entries = new ArrayList<>(bucket);
+        size -= bucket.size();
+        bucket.clear();
+
+        for (Entry<T> entry : entries) {
+            if (!add(entry.deadlineMillis(), entry.item())) {
+                expired.accept(entry.item());
+            }
+        }
+    }
+
+    private record Entry<T>(long deadlineMillis, T item) {
+    }
+
+    private static final class Level<T> {
+
+        private final long tickMillis;
+        private final List<List<Entry<T>>> buckets;
+
+        private Level(long tickMillis, int wheelSize) {
+            this.tickMillis = tickMillis;
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new ArrayList<>());
+            }
+        }
+
+        private List<Entry<T>> bucket(long timeMillis) {
+            return buckets.get((int) ((timeMillis / tickMillis) % buckets.size()));
+        }
+
+        private void drainTo(List<T> items) {
+            for (List<Entry<T>> bucket : buckets) {
+                bucket.forEach(entry -> items.add(entry.item()));
+                bucket.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.emails.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket implemented as a generic cell rate algorithm: the only state is the theoretical arrival
+ * time of the next permit, advanced with CAS. Callers reserve a permit and are told how long to wait for it
+ * instead of being rejected outright.
+ */
+class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    TokenBucket(double permitsPerSecond, int burst, long nowNanos) {
+        this.intervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+        this.toleranceNanos = intervalNanos * Math.max(0, burst - 1);
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Reserves one permit.
+     *
+     * @return nanoseconds to wait before using the permit, or {@code -1} if that would exceed {@code maxWaitNanos},
+     * in which case nothing is reserved
+     */
+    long reserve(long nowNanos, long maxWaitNanos) {
+
+        while (true) {
+            long current = theoreticalArrival.get();
+            long arrival = Math.max(current, nowNanos);
+            long waitNanos = Math.max(0, arrival - toleranceNanos - nowNanos);
+
+            if (waitNanos > maxWaitNanos) {
+                return -1;
+            }
+
+            if (theoreticalArrival.compareAndSet(current, arrival + intervalNanos)) {
+                return waitNanos;
+            }
+        }
+    }
+
+    /**
+     * Returns a permit reserved by {@link #reserve} that will not be used. Permits reserved after it move up by
+     * one interval, as if it had never been taken.
+     */
+    void cancel() {
+        theoreticalArrival.addAndGet(-intervalNanos);
+    }
+}
@@ -2,26 +2,75 @@ package com.example.emails.web;
 
 import com.example.emails.model.Email;
 import com.example.emails.model.EmailPreference;
+import com.example.emails.model.EmailStatus;
+import com.example.emails.model.EmailTemplate;
+import com.example.emails.service.BatchSendResult;
+import com.example.emails.service.EmailHistoryPage;
+import com.example.emails.service.EmailHistoryService;
+import com.example.emails.service.EmailIdempotencyGuard;
 import com.example.emails.service.EmailService;
+import com.example.emails.service.EmailTemplateService;
+import com.example.emails.service.PreferenceBulkService;
+import com.example.emails.service.PreferenceImportFormat;
+import com.example.emails.web.dto.BatchEmailRequest;
+import com.example.emails.web.dto.BatchEmailResponse;
+import com.example.emails.web.dto.EmailPageResponse;
 import com.example.emails.web.dto.EmailRequest;
 import com.example.emails.web.dto.EmailResponse;
+import com.example.emails.web.dto.PreferenceImportResponse;
 import com.example.emails.web.dto.PreferenceResponse;
+import com.example.emails.web.dto.TemplateRequest;
+import com.example.emails.web.dto.TemplateResponse;
 import com.example.emails.web.dto.UpsertPreference;
 import com.example.emails.web.mapper.DtoMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/v1/emails")
 public class EmailController {
 
-    private final EmailService emailService;
+    private static final String RESPOND_ASYNC = "respond-async";
+    private static final String TEXT_CSV = "text/csv";
 
-    public EmailController(EmailService emailService) {
+    private final EmailService emailService;
+    private final EmailHistoryService emailHistoryService;
+    private final EmailIdempotencyGuard emailIdempotencyGuard;
+    private final PreferenceBulkService preferenceBulkService;
+    private final EmailTemplateService emailTemplateService;
+    private final ObjectMapper objectMapper;
+
+    public EmailController(EmailService emailService,
+                           EmailHistoryService emailHistoryService,
+                           EmailIdempotencyGuard emailIdempotencyGuard,
+                           PreferenceBulkService preferenceBulkService,
+                           EmailTemplateService emailTemplateService,
+                           ObjectMapper objectMapper) {
         this.emailService = emailService;
+        this.emailHistoryService = emailHistoryService;
+        this.emailIdempotencyGuard = emailIdempotencyGuard;
+        this.preferenceBulkService = preferenceBulkService;
+        this.emailTemplateService = emailTemplateService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/preferences")
@@ -51,10 +100,80 @@ public class EmailController {
                 .body(response);
     }
 
+    @PostMapping(value = "/preferences/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<PreferenceImportResponse> importPreferencesNdjson(InputStream body) {
+        return importPreferences(body, PreferenceImportFormat.NDJSON);
+    }
+
+    @PostMapping(value = "/preferences/import", consumes = TEXT_CSV)
+    public ResponseEntity<PreferenceImportResponse> importPreferencesCsv(InputStream body) {
+        return importPreferences(body, PreferenceImportFormat.CSV);
+    }
+
+    @GetMapping(value = "/preferences/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportPreferences() {
+
+        StreamingResponseBody body = outputStream -> {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))) {
+                preferenceBulkService.exportPreferences(page -> {
+                    try {
+                        for (EmailPreference emailPreference : page) {
+                            writer.write(objectMapper.writeValueAsString(DtoMapper.fromEmailPreference(emailPreference)));
+                            writer.write('\n');
+                        }
+                        writer.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private ResponseEntity<PreferenceImportResponse> importPreferences(InputStream body, PreferenceImportFormat format) {
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        long imported = preferenceBulkService.importPreferences(reader, format);
+
+        PreferenceImportResponse response = PreferenceImportResponse.builder()
+                .imported(imported)
+                .build();
+
+        return ResponseEntity.status(HttpStatus.OK)
+                .body(response);
+    }
+
+    @PostMapping("/templates")
+    public ResponseEntity<TemplateResponse> createTemplate(@Valid @RequestBody TemplateRequest templateRequest) {
+
+        EmailTemplate emailTemplate = emailTemplateService.createTemplate(templateRequest);
+
+        TemplateResponse response = DtoMapper.fromEmailTemplate(emailTemplate);
+
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(response);
+    }
+
     @PostMapping
-    public ResponseEntity<EmailResponse> sendEmail(@RequestBody EmailRequest emailRequest) {
+    public ResponseEntity<EmailResponse> sendEmail(@RequestBody EmailRequest emailRequest,
+                                                   @RequestHeader(name = "Prefer", required = false) String prefer,
+                                                   @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+
+        // Scheduled emails are always accepted for later delivery.
+        if (RESPOND_ASYNC.equalsIgnoreCase(prefer) || emailRequest.getSendAt() != null) {
+            Email queuedEmail = emailIdempotencyGuard.execute(emailRequest, idempotencyKey,
+                    () -> emailService.queueEmail(emailRequest, idempotencyKey));
 
-        Email email = emailService.sendEmail(emailRequest);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(DtoMapper.fromEmail(queuedEmail));
+        }
+
+        Email email = emailIdempotencyGuard.execute(emailRequest, idempotencyKey,
+                () -> emailService.sendEmail(emailRequest, idempotencyKey));
 
         EmailResponse response =
                 DtoMapper.fromEmail(email);
@@ -63,6 +182,34 @@ public class EmailController {
                 .body(response);
     }
 
+    @GetMapping
+    public ResponseEntity<EmailPageResponse> getEmails(
+            @RequestParam(name = "userId") UUID userId,
+            @RequestParam(name = "status", required = false) EmailStatus status,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "limit", defaultValue = "50") int limit) {
+
+        EmailHistoryPage page = emailHistoryService.findHistory(userId, status, from, to, cursor, limit);
+
+        EmailPageResponse response = DtoMapper.fromEmailHistoryPage(page);
+
+        return ResponseEntity.status(HttpStatus.OK)
+                .body(response);
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<BatchEmailResponse> sendBatch(@Valid @RequestBody BatchEmailRequest batchEmailRequest) {
+
+        List<BatchSendResult> results = emailService.sendBatch(batchEmailRequest);
+
+        BatchEmailResponse response = DtoMapper.fromBatchSendResults(results);
+
+        return ResponseEntity.status(HttpStatus.OK)
+                .body(response);
+    }
+
     @PutMapping("/preferences")
     public ResponseEntity<PreferenceResponse> changePreference
             (@RequestParam(name = "userId") UUID userId,
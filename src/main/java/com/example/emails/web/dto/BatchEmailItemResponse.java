@@ -0,0 +1,21 @@
+package com.example.emails.web.dto;
+
+import com.example.emails.model.EmailStatus;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Builder
+@Data
+public class BatchEmailItemResponse {
+
+    private UUID userId;
+
+    private UUID emailId;
+
+    private EmailStatus status;
+
+    private String error;
+
+}
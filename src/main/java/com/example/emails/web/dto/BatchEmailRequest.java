@@ -0,0 +1,30 @@
+package com.example.emails.web.dto;
+
+import com.example.emails.model.EmailPriority;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class BatchEmailRequest {
+
+    @NotEmpty
+    @Size(max = 1000)
+    private List<UUID> userIds;
+
+    @NotBlank
+    private String subject;
+
+    @NotBlank
+    private String body;
+
+    /**
+     * Dispatch lane, LOW when absent.
+     */
+    private EmailPriority priority;
+
+}
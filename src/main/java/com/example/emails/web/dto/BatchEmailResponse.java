@@ -0,0 +1,18 @@
+package com.example.emails.web.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Builder
+@Data
+public class BatchEmailResponse {
+
+    private int succeeded;
+
+    private int failed;
+
+    private List<BatchEmailItemResponse> items;
+
+}
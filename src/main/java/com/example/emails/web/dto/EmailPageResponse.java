@@ -0,0 +1,16 @@
+package com.example.emails.web.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Builder
+@Data
+public class EmailPageResponse {
+
+    private List<EmailResponse> items;
+
+    private String nextCursor;
+
+}
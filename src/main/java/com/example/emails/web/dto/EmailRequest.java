@@ -1,21 +1,43 @@
 package com.example.emails.web.dto;
 
-import jakarta.validation.constraints.NotBlank;
+import com.example.emails.model.EmailPriority;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 
+import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
 
+/**
+ * Either a ready {@code subject} and {@code body}, or a {@code templateId} with its {@code params}.
+ */
 @Data
 public class EmailRequest {
 
     @NotNull
     private UUID userId;
 
-    @NotBlank
     private String subject;
 
-    @NotBlank
     private String body;
 
+    private String templateId;
+
+    /**
+     * Pins a template version; the latest version is used when absent.
+     */
+    private Integer templateVersion;
+
+    private Map<String, String> params;
+
+    /**
+     * Delivers the email at this time instead of right away; only honoured for queued sends.
+     */
+    private LocalDateTime sendAt;
+
+    /**
+     * Dispatch lane, NORMAL when absent.
+     */
+    private EmailPriority priority;
+
 }
@@ -5,15 +5,20 @@ import lombok.Builder;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Builder
 @Data
 public class EmailResponse {
 
+    private UUID id;
+
     private String subject;
 
     private LocalDateTime createdOn;
 
     private EmailStatus status;
 
+    private LocalDateTime sendAt;
+
 }
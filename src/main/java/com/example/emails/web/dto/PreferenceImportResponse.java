@@ -0,0 +1,12 @@
+package com.example.emails.web.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Builder
+@Data
+public class PreferenceImportResponse {
+
+    private long imported;
+
+}
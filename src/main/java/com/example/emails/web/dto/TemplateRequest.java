@@ -0,0 +1,20 @@
+package com.example.emails.web.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class TemplateRequest {
+
+    @NotBlank
+    @Size(max = 128)
+    private String name;
+
+    @NotBlank
+    private String subject;
+
+    @NotBlank
+    private String body;
+
+}
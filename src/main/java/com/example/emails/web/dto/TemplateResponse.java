@@ -0,0 +1,21 @@
+package com.example.emails.web.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Builder
+@Data
+public class TemplateResponse {
+
+    private UUID id;
+
+    private String name;
+
+    private int version;
+
+    private LocalDateTime createdOn;
+
+}
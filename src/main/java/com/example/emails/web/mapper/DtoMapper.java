@@ -2,10 +2,20 @@ package com.example.emails.web.mapper;
 
 import com.example.emails.model.Email;
 import com.example.emails.model.EmailPreference;
+import com.example.emails.model.EmailStatus;
+import com.example.emails.model.EmailTemplate;
+import com.example.emails.service.BatchSendResult;
+import com.example.emails.service.EmailHistoryPage;
+import com.example.emails.web.dto.BatchEmailItemResponse;
+import com.example.emails.web.dto.BatchEmailResponse;
+import com.example.emails.web.dto.EmailPageResponse;
 import com.example.emails.web.dto.EmailResponse;
 import com.example.emails.web.dto.PreferenceResponse;
+import com.example.emails.web.dto.TemplateResponse;
 import lombok.experimental.UtilityClass;
 
+import java.util.List;
+
 @UtilityClass
 public class DtoMapper {
 
@@ -22,9 +32,60 @@ public class DtoMapper {
     public static EmailResponse fromEmail(Email email) {
 
         return EmailResponse.builder()
+                .id(email.getId())
                 .subject(email.getSubject())
                 .createdOn(email.getCreatedOn())
                 .status(email.getStatus())
+                .sendAt(email.getSendAt())
+                .build();
+    }
+
+    public static TemplateResponse fromEmailTemplate(EmailTemplate emailTemplate) {
+
+        return TemplateResponse.builder()
+                .id(emailTemplate.getId())
+                .name(emailTemplate.getName())
+                .version(emailTemplate.getVersion())
+                .createdOn(emailTemplate.getCreatedOn())
+                .build();
+    }
+
+    public static EmailPageResponse fromEmailHistoryPage(EmailHistoryPage page) {
+
+        return EmailPageResponse.builder()
+                .items(page.emails().stream()
+                        .map(DtoMapper::fromEmail)
+                        .toList())
+                .nextCursor(page.nextCursor())
+                .build();
+    }
+
+    public static BatchEmailResponse fromBatchSendResults(List<BatchSendResult> results) {
+
+        List<BatchEmailItemResponse> items = results.stream()
+                .map(DtoMapper::fromBatchSendResult)
+                .toList();
+
+        int succeeded = (int) items.stream()
+                .filter(item -> item.getStatus() == EmailStatus.SUCCEEDED)
+                .count();
+
+        return BatchEmailResponse.builder()
+                .succeeded(succeeded)
+                .failed(items.size() - succeeded)
+                .items(items)
+                .build();
+    }
+
+    private static BatchEmailItemResponse fromBatchSendResult(BatchSendResult result) {
+
+        Email email = result.email();
+
+        return BatchEmailItemResponse.builder()
+                .userId(result.userId())
+                .emailId(email != null ? email.getId() : null)
+                .status(email != null ? email.getStatus() : EmailStatus.FAILED)
+                .error(result.error())
                 .build();
     }
 }
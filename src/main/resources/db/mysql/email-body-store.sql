@@ -0,0 +1,27 @@
+-- Moves email bodies out of the email table into email_body (MySQL 8).
+--
+-- Email rows now reference their body by body_hash, the SHA-256 of an email_body row, and templated emails have
+-- no body at all, so new inserts leave email.body out. Tables created before have body varchar(255) NOT NULL,
+-- which rejects those inserts in strict mode, and ddl-auto=update never relaxes NOT NULL.
+--
+-- Step 1 must run before the new version takes traffic. Step 2 needs the email_body table and the body_hash column,
+-- which ddl-auto=update creates when the new version starts; run it once that version has started and no instance
+-- of the previous one is left, since those still write email.body. email_body stores MySQL's SHA2(body, 256) and
+-- COMPRESS(body), which is exactly what EmailBodyStore writes, so existing bodies are shared with new emails.
+
+-- Step 1: let new rows leave the body out.
+ALTER TABLE email
+    MODIFY body varchar(255) NULL;
+
+-- Step 2: move existing bodies to email_body and drop the column.
+INSERT IGNORE INTO email_body (hash, content, created_on)
+    SELECT SHA2(body, 256), COMPRESS(body), NOW(6)
+    FROM email
+    WHERE body IS NOT NULL;
+
+UPDATE email
+SET body_hash = SHA2(body, 256)
+WHERE body IS NOT NULL AND body_hash IS NULL;
+
+ALTER TABLE email
+    DROP COLUMN body;
@@ -0,0 +1,25 @@
+-- Converts the email table to monthly RANGE COLUMNS partitions on created_on (MySQL 8).
+--
+-- Afterwards set email.retention.partitioning.enabled=true: EmailPartitionMaintainer then keeps
+-- email.retention.partitioning.months-ahead monthly partitions split off p_future and drops past
+-- partitions once retention has emptied them, which is far cheaper than deleting their rows.
+--
+-- MySQL requires the partitioning column in every unique key, so the primary key becomes (id, created_on)
+-- and uk_email_user_idempotency_key becomes (user_id, idempotency_key, created_on). The index keeps its name so that
+-- ddl-auto=update does not try to recreate it. Retries with the same Idempotency-Key are still answered
+-- by EmailIdempotencyGuard's lookup, but two concurrent first attempts are no longer stopped by the database.
+--
+-- Rebuilds the table: run during a maintenance window, and replace '2026-11-01' with the first day of
+-- next month. Every existing row lands in p_history, which retention drains and drops like any other partition.
+
+ALTER TABLE email
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, created_on),
+    DROP INDEX uk_email_user_idempotency_key,
+    ADD UNIQUE INDEX uk_email_user_idempotency_key (user_id, idempotency_key, created_on);
+
+ALTER TABLE email
+    PARTITION BY RANGE COLUMNS (created_on) (
+        PARTITION p_history VALUES LESS THAN ('2026-11-01'),
+        PARTITION p_future VALUES LESS THAN (MAXVALUE)
+    );
@@ -0,0 +1,22 @@
+-- Converts email.status from a native enum to varchar(16) (MySQL 8).
+--
+-- Hibernate 6 creates @Enumerated(STRING) columns as enum('FAILED','SUCCEEDED'), listing the values that existed
+-- when the table was created, and ddl-auto=update never widens them. On such a table every insert or update to
+-- QUEUED, SENDING, DEAD_LETTER or SCHEDULED fails. Email.status is now mapped as varchar, which new statuses fit
+-- without a migration; this brings existing tables in line. Columns that already are varchar are left alone, so it
+-- is safe to run on any schema.
+--
+-- Rebuilds the table: run during a maintenance window, before starting a version that queues or schedules emails.
+
+SET @status_type = (
+    SELECT data_type
+    FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'email' AND column_name = 'status');
+
+SET @ddl = IF(@status_type = 'enum',
+    'ALTER TABLE email MODIFY status varchar(16) NOT NULL',
+    'DO 0');
+
+PREPARE statement FROM @ddl;
+EXECUTE statement;
+DEALLOCATE PREPARE statement;
@@ -0,0 +1,9 @@
+-- Scopes Idempotency-Key uniqueness to the user (MySQL 8).
+--
+-- ddl-auto=update adds uk_email_user_idempotency_key on (user_id, idempotency_key) and the request_hash column,
+-- but never drops the old uk_email_idempotency_key, which would keep one user's key blocking every other user.
+-- Run after the service has started once with the new schema; on a table already converted by
+-- email-partitioning.sql, create uk_email_user_idempotency_key with created_on as its last column first.
+
+ALTER TABLE email
+    DROP INDEX uk_email_idempotency_key;
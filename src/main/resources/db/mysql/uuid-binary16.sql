@@ -0,0 +1,69 @@
+-- Converts UUID columns of email, email_preference and outbox_event to BINARY(16) (MySQL 8).
+--
+-- Hibernate 6 creates UUID columns as binary(16), which is what TimeOrderedUuidGenerator relies on: its version 7
+-- ids only sort by creation time when compared byte by byte. Tables created by Hibernate 5 have binary(255), and
+-- hand-made ones often char(36); ddl-auto=update never changes an existing column's type, so those need this
+-- script. Columns that already are binary(16) are skipped, so it is safe to run on any schema.
+--
+-- Each column is converted in place: widened to varbinary(255), rewritten to its 16 significant bytes, then
+-- narrowed to binary(16). Indexes that include the column are kept. Values keep their bytes in RFC 4122 order
+-- (UUID_TO_BIN without the swap flag), matching how Hibernate and the JDBC repositories bind UUIDs.
+--
+-- Existing ids are not rewritten to version 7: they are handed out through the API and referenced by
+-- outbox_event.email_id. New rows get version 7 ids, which all start with the current time, so from the first
+-- new row on inserts land at one moving point of the index instead of anywhere in it.
+--
+-- Rebuilds each table: run during a maintenance window, with the service stopped, and before
+-- email-partitioning.sql.
+
+DROP PROCEDURE IF EXISTS uuid_column_to_binary16;
+
+DELIMITER //
+
+CREATE PROCEDURE uuid_column_to_binary16(IN table_name_in VARCHAR(64), IN column_name_in VARCHAR(64))
+BEGIN
+    DECLARE current_type VARCHAR(64);
+    DECLARE nullable VARCHAR(3);
+
+    SELECT column_type, is_nullable
+    INTO current_type, nullable
+    FROM information_schema.columns
+    WHERE table_schema = DATABASE()
+      AND table_name = table_name_in
+      AND column_name = column_name_in;
+
+    IF current_type <> 'binary(16)' THEN
+        SET @null_clause = IF(nullable = 'NO', ' NOT NULL', ' NULL');
+        SET @bytes = IF(current_type LIKE '%char%',
+                        CONCAT('UUID_TO_BIN(`', column_name_in, '`)'),
+                        CONCAT('LEFT(`', column_name_in, '`, 16)'));
+
+        SET @ddl = CONCAT('ALTER TABLE `', table_name_in, '` MODIFY `', column_name_in, '` VARBINARY(255)',
+                          @null_clause);
+        PREPARE statement FROM @ddl;
+        EXECUTE statement;
+        DEALLOCATE PREPARE statement;
+
+        SET @dml = CONCAT('UPDATE `', table_name_in, '` SET `', column_name_in, '` = ', @bytes);
+        PREPARE statement FROM @dml;
+        EXECUTE statement;
+        DEALLOCATE PREPARE statement;
+
+        SET @ddl = CONCAT('ALTER TABLE `', table_name_in, '` MODIFY `', column_name_in, '` BINARY(16)',
+                          @null_clause);
+        PREPARE statement FROM @ddl;
+        EXECUTE statement;
+        DEALLOCATE PREPARE statement;
+    END IF;
+END //
+
+DELIMITER ;
+
+CALL uuid_column_to_binary16('email', 'id');
+CALL uuid_column_to_binary16('email', 'user_id');
+CALL uuid_column_to_binary16('email_preference', 'id');
+CALL uuid_column_to_binary16('email_preference', 'user_id');
+CALL uuid_column_to_binary16('outbox_event', 'id');
+CALL uuid_column_to_binary16('outbox_event', 'email_id');
+
+DROP PROCEDURE uuid_column_to_binary16;
@@ -0,0 +1,67 @@
+package com.example.emails;
+
+import com.example.emails.model.Email;
+import com.example.emails.repository.EmailBodyRepository;
+import com.example.emails.service.EmailService;
+import com.example.emails.web.dto.EmailRequest;
+import com.example.emails.web.dto.UpsertPreference;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.verify;
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest(properties = "email.outbox.poll-interval=PT1H")
+public class EmailBodyStoreITest {
+
+    @MockitoBean
+    private MailSender mailSender;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailBodyRepository emailBodyRepository;
+
+    @Test
+    void queueEmail_sameBodyForManyUsers_storesBodyOnceAndDeliversIt() {
+        String body = "Spring sale, everything 20% off!";
+
+        Email first = emailService.queueEmail(request(body));
+        Email second = emailService.queueEmail(request(body));
+
+        assertEquals(first.getBodyHash(), second.getBodyHash());
+        assertEquals(1, emailBodyRepository.count());
+
+        emailService.deliverQueuedEmail(second.getId());
+
+        verify(mailSender).send(argThat((SimpleMailMessage message) -> body.equals(message.getText())));
+    }
+
+    private EmailRequest request(String body) {
+        UUID userId = UUID.randomUUID();
+
+        UpsertPreference upsertPreference = new UpsertPreference();
+        upsertPreference.setUserId(userId);
+        upsertPreference.setContactEmail("user@example.com");
+        upsertPreference.setEnabled(true);
+        emailService.upsertPreference(upsertPreference);
+
+        EmailRequest emailRequest = new EmailRequest();
+        emailRequest.setUserId(userId);
+        emailRequest.setSubject("Sale");
+        emailRequest.setBody(body);
+        return emailRequest;
+    }
+}
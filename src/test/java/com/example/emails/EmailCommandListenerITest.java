@@ -0,0 +1,77 @@
+package com.example.emails;
+
+import com.example.emails.model.Email;
+import com.example.emails.model.EmailPreference;
+import com.example.emails.repository.EmailPreferenceRepository;
+import com.example.emails.model.EmailStatus;
+import com.example.emails.repository.EmailRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.mail.MailSender;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@DirtiesContext
+@EmbeddedKafka(partitions = 3, topics = {"email.send-commands", "email.preference-upserts"})
+@SpringBootTest(properties = {
+        "email.kafka.enabled=true",
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}"
+})
+public class EmailCommandListenerITest {
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private EmailPreferenceRepository emailPreferenceRepository;
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @MockitoBean
+    private MailSender mailSender;
+
+    @Test
+    void whenPreferenceAndSendCommandsPublished_thenEmailIsPersisted() {
+        UUID userId = UUID.randomUUID();
+
+        kafkaTemplate.send("email.preference-upserts", userId.toString(), """
+                {"userId": "%s", "enabled": true, "contactEmail": "user@abv.bg"}
+                """.formatted(userId));
+
+        await().atMost(Duration.ofSeconds(30))
+                .until(() -> emailPreferenceRepository.findByUserId(userId).isPresent());
+
+        kafkaTemplate.send("email.send-commands", userId.toString(), """
+                {"userId": "%s", "subject": "Subject", "body": "Body"}
+                """.formatted(userId));
+
+        await().atMost(Duration.ofSeconds(30))
+                .until(() -> emailRepository.findAll().stream().anyMatch(email -> userId.equals(email.getUserId())));
+
+        EmailPreference preference = emailPreferenceRepository.findByUserId(userId).orElseThrow();
+        assertEquals("user@abv.bg", preference.getContactEmail());
+
+        List<Email> emails = emailRepository.findAll().stream()
+                .filter(email -> userId.equals(email.getUserId()))
+                .toList();
+        assertEquals(1, emails.size());
+        assertEquals("Subject", emails.get(0).getSubject());
+
+        UUID emailId = emails.get(0).getId();
+        await().atMost(Duration.ofSeconds(30))
+                .until(() -> emailRepository.findById(emailId).orElseThrow().getStatus() == EmailStatus.SUCCEEDED);
+    }
+}
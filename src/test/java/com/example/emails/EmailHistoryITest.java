@@ -0,0 +1,97 @@
+package com.example.emails;
+
+import com.example.emails.model.Email;
+import com.example.emails.model.EmailStatus;
+import com.example.emails.repository.EmailRepository;
+import com.example.emails.service.EmailHistoryPage;
+import com.example.emails.service.EmailHistoryService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest
+public class EmailHistoryITest {
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @Autowired
+    private EmailHistoryService emailHistoryService;
+
+    @Test
+    void findHistory_walksAllPagesNewestFirstWithoutGapsOrDuplicates() {
+        UUID userId = UUID.randomUUID();
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+        // Pairs share a timestamp so the id tie-breaker is exercised on page boundaries.
+        List<Email> emails = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            emails.add(email(userId, base.plusMinutes(i / 2), EmailStatus.SUCCEEDED));
+        }
+        emails.add(email(UUID.randomUUID(), base, EmailStatus.SUCCEEDED));
+        emailRepository.saveAll(emails);
+
+        List<Email> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            EmailHistoryPage page = emailHistoryService.findHistory(userId, null, null, null, cursor, 3);
+            seen.addAll(page.emails());
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(7, seen.size());
+        assertEquals(7, seen.stream().map(Email::getId).distinct().count());
+        for (int i = 1; i < seen.size(); i++) {
+            assertFalse(seen.get(i).getCreatedOn().isAfter(seen.get(i - 1).getCreatedOn()));
+        }
+    }
+
+    @Test
+    void findHistory_appliesStatusAndTimeRange() {
+        UUID userId = UUID.randomUUID();
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+        emailRepository.saveAll(List.of(
+                email(userId, base, EmailStatus.FAILED),
+                email(userId, base.plusHours(1), EmailStatus.FAILED),
+                email(userId, base.plusHours(1), EmailStatus.SUCCEEDED),
+                email(userId, base.plusHours(2), EmailStatus.FAILED)));
+
+        EmailHistoryPage page = emailHistoryService.findHistory(
+                userId, EmailStatus.FAILED, base.plusMinutes(30), base.plusHours(2), null, 10);
+
+        assertEquals(1, page.emails().size());
+        assertEquals(base.plusHours(1), page.emails().get(0).getCreatedOn());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void findHistory_rejectsMalformedCursor() {
+        assertThrows(IllegalArgumentException.class,
+                () -> emailHistoryService.findHistory(UUID.randomUUID(), null, null, null, "not-a-cursor", 10));
+    }
+
+    private static Email email(UUID userId, LocalDateTime createdOn, EmailStatus status) {
+        return Email.builder()
+                .userId(userId)
+                .subject("subject")
+                .body("body")
+                .status(status)
+                .createdOn(createdOn)
+                .build();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.emails;
+
+import com.example.emails.model.Email;
+import com.example.emails.model.EmailBody;
+import com.example.emails.model.EmailStatus;
+import com.example.emails.repository.EmailBodyRepository;
+import com.example.emails.repository.EmailRepository;
+import com.example.emails.service.EmailBodyStore;
+import com.example.emails.service.EmailRetentionJob;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest(properties = {
+        "email.retention.enabled=true",
+        "email.retention.batch-size=2",
+        "email.retention.pause-between-batches=PT0S",
+        "email.retention.initial-delay=PT1H",
+        "email.dispatch.sweep-interval=PT1H",
+        "email.dispatch.stale-after=P3650D"
+})
+public class EmailRetentionITest {
+
+    @TempDir
+    static Path archiveDirectory;
+
+    @DynamicPropertySource
+    static void archiveDirectory(DynamicPropertyRegistry registry) {
+        registry.add("email.retention.archive-directory", () -> archiveDirectory.toString());
+    }
+
+    @Autowired
+    private EmailRetentionJob emailRetentionJob;
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @Autowired
+    private EmailBodyRepository emailBodyRepository;
+
+    @Autowired
+    private EmailBodyStore emailBodyStore;
+
+    @Test
+    void purgeExpired_deletesAndArchivesOnlyExpiredEmailsInBatches() throws IOException {
+        LocalDateTime old = LocalDateTime.now().minusDays(365);
+        String bodyHash = emailBodyStore.store("Old news");
+
+        emailRepository.saveAll(List.of(
+                email(EmailStatus.SUCCEEDED, old, bodyHash),
+                email(EmailStatus.SUCCEEDED, old, bodyHash),
+                email(EmailStatus.SUCCEEDED, old, bodyHash),
+                email(EmailStatus.SUCCEEDED, LocalDateTime.now(), bodyHash),
+                email(EmailStatus.QUEUED, old, bodyHash)));
+
+        emailRetentionJob.purgeExpired();
+
+        assertEquals(2, emailRepository.count());
+        assertEquals(List.of(EmailStatus.QUEUED, EmailStatus.SUCCEEDED), emailRepository.findAll().stream()
+                .map(Email::getStatus)
+                .sorted()
+                .toList());
+
+        List<String> archived = readArchive("emails-succeeded-");
+        assertEquals(3, archived.size());
+        assertTrue(archived.get(0).contains("\"body\":\"Old news\""));
+    }
+
+    @Test
+    void purgeExpired_deletesOnlyOldUnreferencedBodies() {
+        LocalDateTime old = LocalDateTime.now().minusDays(30);
+        String referenced = emailBodyStore.store("Still used");
+        emailRepository.save(email(EmailStatus.SUCCEEDED, LocalDateTime.now(), referenced));
+
+        emailBodyRepository.saveAll(List.of(
+                EmailBody.builder().hash("orphan-old").content(new byte[0]).createdOn(old).build(),
+                EmailBody.builder().hash("orphan-new").content(new byte[0]).createdOn(LocalDateTime.now()).build()));
+
+        emailRetentionJob.purgeExpired();
+
+        assertTrue(emailBodyRepository.existsById(referenced));
+        assertTrue(emailBodyRepository.existsById("orphan-new"));
+        assertFalse(emailBodyRepository.existsById("orphan-old"));
+    }
+
+    private static List<String> readArchive(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(archiveDirectory)) {
+            Path file = files.filter(path -> path.getFileName().toString().startsWith(prefix))
+                    .findFirst()
+                    .orElseThrow();
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+                return reader.lines().toList();
+            }
+        }
+    }
+
+    private static Email email(EmailStatus status, LocalDateTime createdOn, String bodyHash) {
+        return Email.builder()
+                .userId(UUID.randomUUID())
+                .subject("subject")
+                .bodyHash(bodyHash)
+                .status(status)
+                .createdOn(createdOn)
+                .build();
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.emails;
+
+import com.example.emails.model.Email;
+import com.example.emails.repository.EmailRepository;
+import com.example.emails.service.EmailIdempotencyGuard;
+import com.example.emails.service.EmailService;
+import com.example.emails.service.IdempotencyKeyReusedException;
+import com.example.emails.web.dto.EmailRequest;
+import com.example.emails.web.dto.UpsertPreference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest(properties = "email.outbox.poll-interval=PT1H")
+public class IdempotencyKeyITest {
+
+    @MockitoBean
+    private MailSender mailSender;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailIdempotencyGuard emailIdempotencyGuard;
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    private EmailRequest emailRequest;
+
+    @BeforeEach
+    void setUp() {
+        UUID userId = UUID.randomUUID();
+
+        UpsertPreference upsertPreference = new UpsertPreference();
+        upsertPreference.setUserId(userId);
+        upsertPreference.setContactEmail("user@example.com");
+        upsertPreference.setEnabled(true);
+        emailService.upsertPreference(upsertPreference);
+
+        emailRequest = new EmailRequest();
+        emailRequest.setUserId(userId);
+        emailRequest.setSubject("subject");
+        emailRequest.setBody("body");
+    }
+
+    @Test
+    void sendEmail_retriedWithSameKey_sendsOnce() {
+        Email first = emailIdempotencyGuard.execute(emailRequest, "retry-1",
+                () -> emailService.sendEmail(emailRequest, "retry-1"));
+        Email second = emailIdempotencyGuard.execute(emailRequest, "retry-1",
+                () -> emailService.sendEmail(emailRequest, "retry-1"));
+
+        assertEquals(first.getId(), second.getId());
+        assertEquals(1, emailRepository.count());
+        verify(mailSender, times(1)).send(any(SimpleMailMessage.class));
+    }
+
+    @Test
+    void queueEmail_keyAlreadyStored_uniqueIndexReturnsOriginal() {
+        Email first = emailService.queueEmail(emailRequest, "retry-2");
+
+        // Bypasses the filter, as a retry landing on another instance would.
+        Email second = emailIdempotencyGuard.execute(emailRequest, "retry-2",
+                () -> emailService.queueEmail(emailRequest, "retry-2"));
+
+        assertEquals(first.getId(), second.getId());
+        assertEquals(1, emailRepository.count());
+    }
+
+    @Test
+    void queueEmail_sameKeyForAnotherUser_storesBoth() {
+        UUID otherUserId = UUID.randomUUID();
+
+        UpsertPreference upsertPreference = new UpsertPreference();
+        upsertPreference.setUserId(otherUserId);
+        upsertPreference.setContactEmail("other@example.com");
+        upsertPreference.setEnabled(true);
+        emailService.upsertPreference(upsertPreference);
+
+        EmailRequest otherRequest = new EmailRequest();
+        otherRequest.setUserId(otherUserId);
+        otherRequest.setSubject("subject");
+        otherRequest.setBody("body");
+
+        Email first = emailIdempotencyGuard.execute(emailRequest, "retry-3",
+                () -> emailService.queueEmail(emailRequest, "retry-3"));
+        Email second = emailService.queueEmail(otherRequest, "retry-3");
+
+        assertNotEquals(first.getId(), second.getId());
+        assertEquals(2, emailRepository.count());
+    }
+
+    @Test
+    void queueEmail_keyAlreadyStoredForDifferentRequest_throws() {
+        emailService.queueEmail(emailRequest, "retry-4");
+
+        EmailRequest changedRequest = new EmailRequest();
+        changedRequest.setUserId(emailRequest.getUserId());
+        changedRequest.setSubject("subject");
+        changedRequest.setBody("other body");
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> emailIdempotencyGuard.execute(changedRequest,
+                "retry-4", () -> emailService.queueEmail(changedRequest, "retry-4")));
+        assertEquals(1, emailRepository.count());
+    }
+}
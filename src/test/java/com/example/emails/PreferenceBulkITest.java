@@ -0,0 +1,121 @@
+package com.example.emails;
+
+import com.example.emails.model.EmailPreference;
+import com.example.emails.repository.EmailPreferenceRepository;
+import com.example.emails.service.EmailService;
+import com.example.emails.service.PreferenceBulkService;
+import com.example.emails.service.PreferenceImportFormat;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest(properties = {
+        "email.preference-bulk.import-chunk-size=2",
+        "email.preference-bulk.export-page-size=2"
+})
+public class PreferenceBulkITest {
+
+    @Autowired
+    private PreferenceBulkService preferenceBulkService;
+
+    @Autowired
+    private EmailPreferenceRepository emailPreferenceRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Test
+    void importPreferences_ndjson_insertsNewAndUpdatesExistingUsers() {
+        UUID existingUser = UUID.randomUUID();
+        emailPreferenceRepository.save(EmailPreference.builder()
+                .userId(existingUser)
+                .contactEmail("old@example.com")
+                .isEnabled(false)
+                .createdOn(LocalDateTime.now())
+                .updatedOn(LocalDateTime.now())
+                .build());
+        // Warm the cache so the import has to invalidate it.
+        emailService.getPreferenceByUserId(existingUser);
+
+        UUID newUser = UUID.randomUUID();
+        String ndjson = """
+                {"userId":"%s","contactEmail":"new@example.com","enabled":true}
+                {"userId":"%s","contactEmail":"other@example.com","enabled":false}
+
+                {"userId":"%s","contactEmail":"updated@example.com","enabled":true}
+                """.formatted(newUser, UUID.randomUUID(), existingUser);
+
+        long imported = preferenceBulkService.importPreferences(reader(ndjson), PreferenceImportFormat.NDJSON);
+
+        assertEquals(3, imported);
+        assertEquals(3, emailPreferenceRepository.count());
+        assertEquals("new@example.com", emailPreferenceRepository.findByUserId(newUser).orElseThrow().getContactEmail());
+
+        EmailPreference updated = emailService.getPreferenceByUserId(existingUser);
+        assertEquals("updated@example.com", updated.getContactEmail());
+        assertTrue(updated.isEnabled());
+    }
+
+    @Test
+    void importPreferences_csv_skipsHeader() {
+        UUID userId = UUID.randomUUID();
+        String csv = """
+                userId,contactEmail,enabled
+                %s,user@example.com,true
+                """.formatted(userId);
+
+        long imported = preferenceBulkService.importPreferences(reader(csv), PreferenceImportFormat.CSV);
+
+        assertEquals(1, imported);
+        assertTrue(emailPreferenceRepository.findByUserId(userId).orElseThrow().isEnabled());
+    }
+
+    @Test
+    void importPreferences_invalidLine_reportsLineNumber() {
+        String csv = """
+                %s,user@example.com,true
+                not-a-uuid,user@example.com,true
+                """.formatted(UUID.randomUUID());
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> preferenceBulkService.importPreferences(reader(csv), PreferenceImportFormat.CSV));
+
+        assertTrue(e.getMessage().contains("line 2"));
+    }
+
+    @Test
+    void exportPreferences_pagesThroughEveryRowOnce() {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 5; i++) {
+            csv.append(UUID.randomUUID()).append(",user").append(i).append("@example.com,true\n");
+        }
+        preferenceBulkService.importPreferences(reader(csv.toString()), PreferenceImportFormat.CSV);
+
+        List<Integer> pageSizes = new ArrayList<>();
+        List<UUID> exported = new ArrayList<>();
+        preferenceBulkService.exportPreferences(page -> {
+            pageSizes.add(page.size());
+            page.forEach(preference -> exported.add(preference.getUserId()));
+        });
+
+        assertEquals(List.of(2, 2, 1), pageSizes);
+        assertEquals(5, exported.stream().distinct().count());
+    }
+
+    private static BufferedReader reader(String content) {
+        return new BufferedReader(new StringReader(content));
+    }
+}
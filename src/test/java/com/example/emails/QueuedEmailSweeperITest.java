@@ -0,0 +1,71 @@
+package com.example.emails;
+
+import com.example.emails.model.Email;
+import com.example.emails.model.EmailPriority;
+import com.example.emails.model.EmailStatus;
+import com.example.emails.repository.EmailRepository;
+import com.example.emails.service.QueuedEmailSweeper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest(properties = {
+        "email.dispatch.sweep-interval=PT1H",
+        "email.dispatch.stale-after=P3650D",
+        "email.dispatch.sending-lease=PT5M"
+})
+public class QueuedEmailSweeperITest {
+
+    @Autowired
+    private QueuedEmailSweeper queuedEmailSweeper;
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @Test
+    void whenInlineSendDiedAfterInsert_thenSweeperFailsTheAttemptOnceTheLeaseRunsOut() {
+        Email abandoned = emailRepository.save(sendingEmail(LocalDateTime.now().minusMinutes(10), null));
+        Email inFlight = emailRepository.save(sendingEmail(LocalDateTime.now(), null));
+
+        queuedEmailSweeper.sweep();
+
+        Email recovered = emailRepository.findById(abandoned.getId()).orElseThrow();
+        assertEquals(EmailStatus.FAILED, recovered.getStatus());
+        assertEquals(1, recovered.getAttempts());
+        assertNotNull(recovered.getNextAttemptAt());
+        assertEquals(EmailStatus.SENDING, emailRepository.findById(inFlight.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void whenQueuedEmailWasClaimedRecently_thenSweeperLeavesItAlone() {
+        // Created long ago, but claimed from the queue a moment ago: the lease runs from the claim.
+        LocalDateTime createdOn = LocalDateTime.now().minusDays(1);
+        Email claimed = emailRepository.save(sendingEmail(createdOn, LocalDateTime.now()));
+        Email abandoned = emailRepository.save(sendingEmail(createdOn, LocalDateTime.now().minusMinutes(10)));
+
+        queuedEmailSweeper.sweep();
+
+        assertEquals(EmailStatus.SENDING, emailRepository.findById(claimed.getId()).orElseThrow().getStatus());
+        assertEquals(EmailStatus.FAILED, emailRepository.findById(abandoned.getId()).orElseThrow().getStatus());
+    }
+
+    private static Email sendingEmail(LocalDateTime createdOn, LocalDateTime leasedAt) {
+        return Email.builder()
+                .subject("Subject")
+                .createdOn(createdOn)
+                .status(EmailStatus.SENDING)
+                .userId(UUID.randomUUID())
+                .priority(EmailPriority.NORMAL)
+                .nextAttemptAt(leasedAt)
+                .build();
+    }
+}
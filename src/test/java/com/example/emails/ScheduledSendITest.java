@@ -0,0 +1,107 @@
+package com.example.emails;
+
+import com.example.emails.model.Email;
+import com.example.emails.model.EmailStatus;
+import com.example.emails.repository.EmailRepository;
+import com.example.emails.repository.OutboxEventRepository;
+import com.example.emails.service.EmailService;
+import com.example.emails.service.ScheduledEmailDispatcher;
+import com.example.emails.web.dto.EmailRequest;
+import com.example.emails.web.dto.UpsertPreference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest(properties = "email.scheduled.load-interval=PT1H")
+public class ScheduledSendITest {
+
+    @MockitoBean
+    private MailSender mailSender;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private ScheduledEmailDispatcher scheduledEmailDispatcher;
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    private EmailRequest emailRequest;
+
+    @BeforeEach
+    void setUp() {
+        UUID userId = UUID.randomUUID();
+
+        UpsertPreference upsertPreference = new UpsertPreference();
+        upsertPreference.setUserId(userId);
+        upsertPreference.setContactEmail("user@example.com");
+        upsertPreference.setEnabled(true);
+        emailService.upsertPreference(upsertPreference);
+
+        emailRequest = new EmailRequest();
+        emailRequest.setUserId(userId);
+        emailRequest.setSubject("subject");
+        emailRequest.setBody("body");
+    }
+
+    @Test
+    void queueEmail_withSendAt_isDeliveredOnceDue() {
+        LocalDateTime sendAt = LocalDateTime.now().plusSeconds(2);
+        emailRequest.setSendAt(sendAt);
+
+        Email email = emailService.queueEmail(emailRequest, null);
+
+        assertEquals(EmailStatus.SCHEDULED, email.getStatus());
+        assertEquals(0, outboxEventRepository.count());
+
+        scheduledEmailDispatcher.loadUpcoming();
+
+        assertEquals(EmailStatus.QUEUED, emailRepository.findById(email.getId()).orElseThrow().getStatus());
+        verify(mailSender, never()).send(any(SimpleMailMessage.class));
+
+        await().atMost(Duration.ofSeconds(30))
+                .until(() -> emailRepository.findById(email.getId()).orElseThrow().getStatus()
+                        == EmailStatus.SUCCEEDED);
+
+        assertFalse(LocalDateTime.now().isBefore(sendAt));
+    }
+
+    @Test
+    void loadUpcoming_beyondLookahead_staysScheduled() {
+        emailRequest.setSendAt(LocalDateTime.now().plusDays(1));
+
+        Email email = emailService.queueEmail(emailRequest, null);
+        scheduledEmailDispatcher.loadUpcoming();
+
+        assertEquals(EmailStatus.SCHEDULED, emailRepository.findById(email.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void sendEmail_withFutureSendAt_isRejected() {
+        emailRequest.setSendAt(LocalDateTime.now().plusMinutes(5));
+
+        assertThrows(IllegalArgumentException.class, () -> emailService.sendEmail(emailRequest, null));
+    }
+}
@@ -72,6 +72,33 @@ public class UpsertPreferenceITest {
         assertTrue(updatedPreference.isEnabled());
         assertNotEquals(existingPreference.getUpdatedOn(), updatedPreference.getUpdatedOn());
     }
-}
 
+    @Test
+    void testChangePreference_updatesEnabledAndUpdatedOn() {
+        UUID userId = UUID.randomUUID();
+        LocalDateTime createdOn = LocalDateTime.now().minusDays(1);
+
+        EmailPreference existingPreference = new EmailPreference();
+        existingPreference.setUserId(userId);
+        existingPreference.setContactEmail("user123@example.com");
+        existingPreference.setEnabled(true);
+        existingPreference.setCreatedOn(createdOn);
+        existingPreference.setUpdatedOn(createdOn);
+        emailPreferenceRepository.save(existingPreference);
+
+        EmailPreference changedPreference = emailService.changePreference(userId, false);
 
+        assertEquals(existingPreference.getId(), changedPreference.getId());
+        assertEquals("user123@example.com", changedPreference.getContactEmail());
+        assertFalse(changedPreference.isEnabled());
+        assertTrue(changedPreference.getUpdatedOn().isAfter(createdOn));
+        assertFalse(emailPreferenceRepository.findByUserId(userId).orElseThrow().isEnabled());
+    }
+
+    @Test
+    void testChangePreference_withoutPreference_throwsException() {
+        UUID userId = UUID.randomUUID();
+
+        assertThrows(NullPointerException.class, () -> emailService.changePreference(userId, false));
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.emails;
+
+import com.example.emails.config.WriteBehindProperties;
+import com.example.emails.model.Email;
+import com.example.emails.model.EmailStatus;
+import com.example.emails.repository.EmailDeliveryStateRepository;
+import com.example.emails.repository.EmailRepository;
+import com.example.emails.service.EmailDeliveryStateWriter;
+import com.example.emails.service.EmailService;
+import com.example.emails.web.dto.EmailRequest;
+import com.example.emails.web.dto.UpsertPreference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.MailSender;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest(properties = "email.write-behind.flush-interval=PT1H")
+public class WriteBehindITest {
+
+    @TempDir
+    static Path journalDirectory;
+
+    @DynamicPropertySource
+    static void journalDirectory(DynamicPropertyRegistry registry) {
+        registry.add("email.write-behind.journal-directory", () -> journalDirectory.toString());
+    }
+
+    @MockitoBean
+    private MailSender mailSender;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailDeliveryStateWriter emailDeliveryStateWriter;
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @Autowired
+    private EmailDeliveryStateRepository emailDeliveryStateRepository;
+
+    @Autowired
+    private WriteBehindProperties writeBehindProperties;
+
+    private EmailRequest emailRequest;
+
+    @BeforeEach
+    void setUp() {
+        UUID userId = UUID.randomUUID();
+
+        UpsertPreference upsertPreference = new UpsertPreference();
+        upsertPreference.setUserId(userId);
+        upsertPreference.setContactEmail("user@example.com");
+        upsertPreference.setEnabled(true);
+        emailService.upsertPreference(upsertPreference);
+
+        emailRequest = new EmailRequest();
+        emailRequest.setUserId(userId);
+        emailRequest.setSubject("subject");
+        emailRequest.setBody("body");
+    }
+
+    @Test
+    void sendEmail_outcomeIsWrittenOnFlush() {
+        Email email = emailService.sendEmail(emailRequest);
+
+        assertEquals(EmailStatus.SUCCEEDED, email.getStatus());
+        assertEquals(EmailStatus.SENDING, emailRepository.findById(email.getId()).orElseThrow().getStatus());
+
+        emailDeliveryStateWriter.flush();
+
+        Email stored = emailRepository.findById(email.getId()).orElseThrow();
+        assertEquals(EmailStatus.SUCCEEDED, stored.getStatus());
+        assertEquals(1, stored.getAttempts());
+    }
+
+    @Test
+    void startup_replaysOutcomesLeftInJournal() throws Exception {
+        Email email = emailRepository.save(Email.builder()
+                .userId(UUID.randomUUID())
+                .subject("subject")
+                .status(EmailStatus.SENDING)
+                .createdOn(LocalDateTime.now())
+                .build());
+
+        // Journal of an instance that crashed before flushing.
+        Files.writeString(journalDirectory.resolve("delivery-state-0-crashed.log"),
+                email.getId() + ",SUCCEEDED,1,-\n", StandardCharsets.US_ASCII);
+
+        EmailDeliveryStateWriter restarted = new EmailDeliveryStateWriter(
+                emailRepository, emailDeliveryStateRepository, writeBehindProperties);
+        restarted.afterPropertiesSet();
+
+        assertEquals(EmailStatus.SUCCEEDED, emailRepository.findById(email.getId()).orElseThrow().getStatus());
+        assertFalse(Files.exists(journalDirectory.resolve("delivery-state-0-crashed.log")));
+        restarted.destroy();
+    }
+
+    @Test
+    void concurrentWritesWithFsync_areAllJournaledAndFlushed() throws Exception {
+        List<Email> emails = emailRepository.saveAll(IntStream.range(0, 50)
+                .mapToObj(i -> Email.builder()
+                        .userId(UUID.randomUUID())
+                        .subject("subject")
+                        .status(EmailStatus.SENDING)
+                        .createdOn(LocalDateTime.now())
+                        .build())
+                .toList());
+
+        WriteBehindProperties fsyncProperties = new WriteBehindProperties();
+        fsyncProperties.setJournalDirectory(journalDirectory.resolve("fsync"));
+        fsyncProperties.setFsync(true);
+        EmailDeliveryStateWriter writer = new EmailDeliveryStateWriter(
+                emailRepository, emailDeliveryStateRepository, fsyncProperties);
+        writer.afterPropertiesSet();
+
+        try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Email email : emails) {
+                senders.execute(() -> writer.write(email.getId(), EmailStatus.SUCCEEDED, 1, null));
+            }
+        }
+
+        writer.flush();
+
+        assertTrue(emailRepository.findAllById(emails.stream().map(Email::getId).toList()).stream()
+                .allMatch(stored -> stored.getStatus() == EmailStatus.SUCCEEDED));
+        writer.destroy();
+    }
+}
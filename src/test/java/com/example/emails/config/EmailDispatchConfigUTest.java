@@ -0,0 +1,48 @@
+package com.example.emails.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmailDispatchConfigUTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(EmailDispatchConfig.class);
+
+    @Test
+    void whenVirtualThreadsDisabled_thenUseBoundedPlatformPool() {
+        contextRunner.run(context ->
+                assertInstanceOf(ThreadPoolTaskExecutor.class, context.getBean("emailDispatchExecutor")));
+    }
+
+    @Test
+    void whenVirtualThreadsEnabled_thenDispatchOnVirtualThreads() {
+        contextRunner
+                .withPropertyValues("spring.threads.virtual.enabled=true")
+                .run(context -> {
+                    AsyncTaskExecutor executor = context.getBean("emailDispatchExecutor", AsyncTaskExecutor.class);
+                    assertInstanceOf(SimpleAsyncTaskExecutor.class, executor);
+
+                    CompletableFuture<Boolean> isVirtual =
+                            executor.submitCompletable(() -> Thread.currentThread().isVirtual());
+                    assertTrue(isVirtual.get());
+                });
+    }
+
+    @Test
+    void whenVirtualThreadsDisabled_thenStillPrepareOnVirtualThreads() {
+        contextRunner.run(context -> {
+            AsyncTaskExecutor executor = context.getBean("emailPrepareExecutor", AsyncTaskExecutor.class);
+
+            CompletableFuture<Boolean> isVirtual =
+                    executor.submitCompletable(() -> Thread.currentThread().isVirtual());
+            assertTrue(isVirtual.get());
+        });
+    }
+}
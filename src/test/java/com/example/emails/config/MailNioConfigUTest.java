@@ -0,0 +1,37 @@
+package com.example.emails.config;
+
+import com.example.emails.mail.PipeliningMailSender;
+import com.example.emails.mail.PooledMailSender;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.mail.MailSender;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MailNioConfigUTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(MailPoolConfig.class, MailNioConfig.class)
+            .withPropertyValues("spring.mail.host=localhost");
+
+    @Test
+    void whenNioDisabled_thenUsePooledJavaMailSender() {
+        contextRunner.run(context ->
+                assertInstanceOf(PooledMailSender.class, context.getBean(MailSender.class)));
+    }
+
+    @Test
+    void whenNioEnabled_thenUsePipeliningMailSenderOnly() {
+        contextRunner
+                .withPropertyValues("spring.mail.nio.enabled=true")
+                .run(context -> assertInstanceOf(PipeliningMailSender.class, context.getBean(MailSender.class)));
+    }
+
+    @Test
+    void whenNioEnabledWithStartTls_thenStartupFails() {
+        contextRunner
+                .withPropertyValues("spring.mail.nio.enabled=true",
+                        "spring.mail.properties.mail.smtp.starttls.enable=true")
+                .run(context -> assertNotNull(context.getStartupFailure()));
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.emails.config;
+
+import com.example.emails.mail.RoutingMailSender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.mail.MailSender;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MailRoutingConfigUTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(MailPoolConfig.class, MailNioConfig.class, MailRoutingConfig.class)
+            .withBean(SimpleMeterRegistry.class)
+            .withPropertyValues("spring.mail.host=localhost");
+
+    @Test
+    void whenRoutingEnabled_thenUseRoutingMailSenderOnly() {
+        contextRunner
+                .withPropertyValues("spring.mail.routing.enabled=true",
+                        "spring.mail.routing.relays[0].host=relay-a.example.com",
+                        "spring.mail.routing.relays[1].host=relay-b.example.com")
+                .run(context -> assertInstanceOf(RoutingMailSender.class, context.getBean(MailSender.class)));
+    }
+
+    @Test
+    void whenRoutingEnabledWithNio_thenUseRoutingMailSenderOnly() {
+        contextRunner
+                .withPropertyValues("spring.mail.routing.enabled=true", "spring.mail.nio.enabled=true",
+                        "spring.mail.routing.relays[0].host=relay-a.example.com")
+                .run(context -> assertInstanceOf(RoutingMailSender.class, context.getBean(MailSender.class)));
+    }
+
+    @Test
+    void whenRoutingEnabledWithoutRelays_thenStartupFails() {
+        contextRunner
+                .withPropertyValues("spring.mail.routing.enabled=true")
+                .run(context -> assertNotNull(context.getStartupFailure()));
+    }
+}
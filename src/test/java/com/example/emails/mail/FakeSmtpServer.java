@@ -0,0 +1,212 @@
+package com.example.emails.mail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal in-process SMTP server for tests and load runs: accepts EHLO/HELO, MAIL, RCPT, DATA, RSET, NOOP and
+ * QUIT on a loopback port and discards the messages. Each message waits {@code latency} before it is answered,
+ * {@code failureRate} of them are rejected with a transient 451, and connections beyond {@code maxConnections}
+ * are turned away with 421. Commands are read one by one from a buffered stream, so pipelined clients work;
+ * commands that arrive while an earlier one is still unanswered are counted as pipelined.
+ */
+public class FakeSmtpServer implements AutoCloseable {
+
+    private final Duration latency;
+    private final double failureRate;
+    private final boolean pipelining;
+    private final Semaphore connectionSlots;
+    private final ServerSocket serverSocket;
+    // Platform threads, so the server keeps answering while the client pins carrier threads inside JavaMail.
+    private final ExecutorService connections =
+            Executors.newCachedThreadPool(Thread.ofPlatform().daemon().name("fake-smtp-", 0).factory());
+
+    private final AtomicLong acceptedMessages = new AtomicLong();
+    private final AtomicLong rejectedMessages = new AtomicLong();
+    private final AtomicLong openedConnections = new AtomicLong();
+    private final AtomicLong refusedConnections = new AtomicLong();
+    private final AtomicLong pipelinedCommands = new AtomicLong();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicInteger peakConnections = new AtomicInteger();
+
+    private FakeSmtpServer(Duration latency, double failureRate, int maxConnections, boolean pipelining)
+            throws IOException {
+        this.latency = latency;
+        this.failureRate = failureRate;
+        this.pipelining = pipelining;
+        this.connectionSlots = new Semaphore(maxConnections);
+        this.serverSocket = new ServerSocket(0, 512, InetAddress.getLoopbackAddress());
+    }
+
+    public static FakeSmtpServer start(Duration latency, double failureRate, int maxConnections) throws IOException {
+        return start(latency, failureRate, maxConnections, true);
+    }
+
+    public static FakeSmtpServer start(Duration latency, double failureRate, int maxConnections, boolean pipelining)
+            throws IOException {
+        FakeSmtpServer server = new FakeSmtpServer(latency, failureRate, maxConnections, pipelining);
+        Thread.ofPlatform().daemon().name("fake-smtp-acceptor").start(server::acceptLoop);
+        return server;
+    }
+
+    public String getHost() {
+        return serverSocket.getInetAddress().getHostAddress();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public long getAcceptedMessages() {
+        return acceptedMessages.get();
+    }
+
+    public long getRejectedMessages() {
+        return rejectedMessages.get();
+    }
+
+    public long getOpenedConnections() {
+        return openedConnections.get();
+    }
+
+    public long getRefusedConnections() {
+        return refusedConnections.get();
+    }
+
+    public int getPeakConnections() {
+        return peakConnections.get();
+    }
+
+    public long getPipelinedCommands() {
+        return pipelinedCommands.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> handle(socket));
+            } catch (IOException e) {
+                // Closed while waiting in accept().
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+
+        try (socket;
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII)) {
+
+            socket.setTcpNoDelay(true);
+
+            if (!connectionSlots.tryAcquire()) {
+                refusedConnections.incrementAndGet();
+                reply(reader, writer, "421 4.7.0 Too many connections");
+                return;
+            }
+
+            try {
+                openedConnections.incrementAndGet();
+                peakConnections.accumulateAndGet(activeConnections.incrementAndGet(), Math::max);
+
+                reply(reader, writer, "220 fake-smtp ESMTP");
+                converse(reader, writer);
+            } finally {
+                activeConnections.decrementAndGet();
+                connectionSlots.release();
+            }
+        } catch (IOException e) {
+            // The client went away; nothing to clean up beyond the socket.
+        }
+    }
+
+    private void converse(BufferedReader reader, Writer writer) throws IOException {
+
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            String command = line.length() < 4 ? line : line.substring(0, 4);
+
+            if (reader.ready()) {
+                pipelinedCommands.incrementAndGet();
+            }
+
+            switch (command.toUpperCase(Locale.ROOT)) {
+                case "EHLO" -> reply(reader, writer, pipelining
+                        ? "250-fake-smtp\r\n250-PIPELINING\r\n250-8BITMIME\r\n250 SIZE 35882577"
+                        : "250-fake-smtp\r\n250-8BITMIME\r\n250 SIZE 35882577");
+                case "HELO", "MAIL", "RCPT", "RSET", "NOOP" -> reply(reader, writer, "250 2.0.0 OK");
+                case "DATA" -> {
+                    reply(reader, writer, "354 End data with <CR><LF>.<CR><LF>");
+                    readMessage(reader);
+                    reply(reader, writer, deliver());
+                }
+                case "QUIT" -> {
+                    reply(reader, writer, "221 2.0.0 Bye");
+                    return;
+                }
+                default -> reply(reader, writer, "502 5.5.2 Command not recognized");
+            }
+        }
+    }
+
+    private void readMessage(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null && !line.equals(".")) {
+            // Discarded, only the end of data matters.
+        }
+    }
+
+    private String deliver() {
+
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+            rejectedMessages.incrementAndGet();
+            return "451 4.3.0 Simulated failure";
+        }
+
+        acceptedMessages.incrementAndGet();
+        return "250 2.0.0 Queued";
+    }
+
+    /**
+     * Replies to pipelined commands are held back until the client's group is read, as RFC 2920 asks of servers.
+     */
+    private static void reply(BufferedReader reader, Writer writer, String response) throws IOException {
+        writer.write(response);
+        writer.write("\r\n");
+        if (!reader.ready()) {
+            writer.flush();
+        }
+    }
+}
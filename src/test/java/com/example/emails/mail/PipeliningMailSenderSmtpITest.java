@@ -0,0 +1,125 @@
+package com.example.emails.mail;
+
+import com.example.emails.config.MailNioProperties;
+import jakarta.mail.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PipeliningMailSenderSmtpITest {
+
+    private FakeSmtpServer smtpServer;
+    private PipeliningMailSender mailSender;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mailSender.destroy();
+        if (smtpServer != null) {
+            smtpServer.close();
+        }
+    }
+
+    @Test
+    void whenManyThreadsSend_thenMessagesArePipelinedOverFewConnections() throws Exception {
+        smtpServer = FakeSmtpServer.start(Duration.ZERO, 0.0, 8);
+        mailSender = newMailSender(smtpServer.getPort(), 2);
+
+        List<Thread> senders = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            senders.add(Thread.ofPlatform().start(() -> {
+                for (int j = 0; j < 50; j++) {
+                    mailSender.send(message("user@example.com"));
+                }
+            }));
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+
+        assertEquals(400, smtpServer.getAcceptedMessages());
+        assertTrue(smtpServer.getOpenedConnections() <= 2);
+        assertTrue(smtpServer.getPipelinedCommands() > 0);
+    }
+
+    @Test
+    void whenServerDoesNotSupportPipelining_thenCommandsAreSentOneByOne() throws Exception {
+        smtpServer = FakeSmtpServer.start(Duration.ZERO, 0.0, 4, false);
+        mailSender = newMailSender(smtpServer.getPort(), 1);
+
+        mailSender.send(message("first@example.com"), message("second@example.com"), message("third@example.com"));
+
+        assertEquals(3, smtpServer.getAcceptedMessages());
+        assertEquals(0, smtpServer.getPipelinedCommands());
+    }
+
+    @Test
+    void whenMessageHasSeveralRecipients_thenItIsSentOnce() throws Exception {
+        smtpServer = FakeSmtpServer.start(Duration.ZERO, 0.0, 4);
+        mailSender = newMailSender(smtpServer.getPort(), 1);
+
+        SimpleMailMessage message = message("first@example.com");
+        message.setCc("second@example.com", "third@example.com");
+        mailSender.send(message);
+
+        assertEquals(1, smtpServer.getAcceptedMessages());
+    }
+
+    @Test
+    void whenServerRejectsMessages_thenEachFailsAndTheConnectionIsKept() throws Exception {
+        smtpServer = FakeSmtpServer.start(Duration.ZERO, 1.0, 4);
+        mailSender = newMailSender(smtpServer.getPort(), 1);
+
+        SimpleMailMessage first = message("first@example.com");
+        SimpleMailMessage second = message("second@example.com");
+
+        MailSendException exception = assertThrows(MailSendException.class, () -> mailSender.send(first, second));
+
+        assertEquals(2, exception.getFailedMessages().size());
+        assertTrue(exception.getFailedMessages().containsKey(first));
+        assertTrue(exception.getFailedMessages().containsKey(second));
+        assertEquals(2, smtpServer.getRejectedMessages());
+
+        assertThrows(MailSendException.class, () -> mailSender.send(message("third@example.com")));
+        assertEquals(1, smtpServer.getOpenedConnections());
+    }
+
+    @Test
+    void whenServerIsUnreachable_thenSendFailsWithoutWaitingForTheTimeout() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            closedPort = socket.getLocalPort();
+        }
+        mailSender = newMailSender(closedPort, 2);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                assertThrows(MailSendException.class, () -> mailSender.send(message("user@example.com"))));
+    }
+
+    private PipeliningMailSender newMailSender(int port, int connections) {
+        MailNioProperties properties = new MailNioProperties();
+        properties.setConnections(connections);
+        properties.setSendTimeout(Duration.ofSeconds(30));
+
+        return new PipeliningMailSender(Session.getInstance(new Properties()),
+                InetAddress.getLoopbackAddress().getHostAddress(), port, null, null, "UTF-8", properties);
+    }
+
+    private static SimpleMailMessage message(String to) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("sender@example.com");
+        message.setTo(to);
+        message.setSubject("subject");
+        message.setText("body\n.starts with a dot");
+        return message;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.emails.mail;
+
+import com.example.emails.config.MailPoolProperties;
+import jakarta.mail.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.time.Duration;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PooledMailSenderSmtpITest {
+
+    private FakeSmtpServer smtpServer;
+    private PooledMailSender mailSender;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mailSender.destroy();
+        smtpServer.close();
+    }
+
+    @Test
+    void whenSendingOverRealSockets_thenMessagesShareOneConnection() throws Exception {
+        smtpServer = FakeSmtpServer.start(Duration.ZERO, 0.0, 4);
+        mailSender = newMailSender(2);
+
+        for (int i = 0; i < 5; i++) {
+            mailSender.send(message());
+        }
+
+        assertEquals(5, smtpServer.getAcceptedMessages());
+        assertEquals(1, smtpServer.getOpenedConnections());
+    }
+
+    @Test
+    void whenServerRejectsMessages_thenSendFails() throws Exception {
+        smtpServer = FakeSmtpServer.start(Duration.ZERO, 1.0, 4);
+        mailSender = newMailSender(2);
+
+        assertThrows(MailSendException.class, () -> mailSender.send(message()));
+        assertEquals(1, smtpServer.getRejectedMessages());
+    }
+
+    @Test
+    void whenConnectionLimitIsReached_thenExtraConnectionsAreRefused() throws Exception {
+        smtpServer = FakeSmtpServer.start(Duration.ofMillis(200), 0.0, 1);
+        mailSender = newMailSender(2);
+
+        Thread first = Thread.ofPlatform().start(() -> mailSender.send(message()));
+        Thread.sleep(50);
+
+        assertThrows(MailSendException.class, () -> mailSender.send(message()));
+        first.join();
+
+        assertEquals(1, smtpServer.getAcceptedMessages());
+        assertEquals(1, smtpServer.getRefusedConnections());
+    }
+
+    private PooledMailSender newMailSender(int size) {
+        MailPoolProperties properties = new MailPoolProperties();
+        properties.setSize(size);
+
+        return new PooledMailSender(Session.getInstance(new Properties()), "smtp", smtpServer.getHost(),
+                smtpServer.getPort(), null, null, "UTF-8", properties);
+    }
+
+    private static SimpleMailMessage message() {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("sender@example.com");
+        message.setTo("user@example.com");
+        message.setSubject("subject");
+        message.setText("body");
+        return message;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.emails.mail;
+
+import com.example.emails.config.MailPoolProperties;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class PooledMailSenderUTest {
+
+    private final List<Transport> openedTransports = new ArrayList<>();
+
+    @Test
+    void whenSendingTwice_thenReuseSameConnection() throws Exception {
+        PooledMailSender mailSender = newMailSender(new MailPoolProperties());
+
+        mailSender.send(message());
+        mailSender.send(message());
+
+        assertEquals(1, openedTransports.size());
+        verify(openedTransports.get(0), times(2)).sendMessage(any(Message.class), any(Address[].class));
+        assertEquals(1, mailSender.getIdleCount());
+    }
+
+    @Test
+    void whenSendFails_thenConnectionIsDiscarded() throws Exception {
+        PooledMailSender mailSender = newMailSender(new MailPoolProperties());
+
+        mailSender.send(message());
+        doThrow(new MessagingException("broken pipe"))
+                .when(openedTransports.get(0)).sendMessage(any(Message.class), any(Address[].class));
+
+        assertThrows(MailSendException.class, () -> mailSender.send(message()));
+        verify(openedTransports.get(0)).close();
+        assertEquals(0, mailSender.getIdleCount());
+
+        mailSender.send(message());
+        assertEquals(2, openedTransports.size());
+    }
+
+    @Test
+    void whenIdleConnectionFailsValidation_thenOpenNewConnection() throws Exception {
+        MailPoolProperties properties = new MailPoolProperties();
+        properties.setValidateAfter(Duration.ZERO);
+        PooledMailSender mailSender = newMailSender(properties);
+
+        mailSender.send(message());
+        when(openedTransports.get(0).isConnected()).thenReturn(false);
+        mailSender.send(message());
+
+        assertEquals(2, openedTransports.size());
+        verify(openedTransports.get(0)).close();
+    }
+
+    @Test
+    void whenConnectionIdleLongerThanTimeout_thenEvicted() throws Exception {
+        MailPoolProperties properties = new MailPoolProperties();
+        properties.setIdleTimeout(Duration.ZERO);
+        PooledMailSender mailSender = newMailSender(properties);
+
+        mailSender.send(message());
+
+        assertEquals(0, mailSender.getIdleCount());
+        verify(openedTransports.get(0)).close();
+    }
+
+    @Test
+    void whenRecipientRejectedInBatch_thenOtherMessagesStillSentOnSameConnection() throws Exception {
+        PooledMailSender mailSender = newMailSender(new MailPoolProperties());
+        mailSender.send(message());
+        Transport transport = openedTransports.get(0);
+
+        SimpleMailMessage rejected = message();
+        rejected.setTo("unknown@abv.bg");
+        doThrow(new SendFailedException("550 no such user"))
+                .doNothing()
+                .when(transport).sendMessage(any(Message.class), any(Address[].class));
+
+        MailSendException exception =
+                assertThrows(MailSendException.class, () -> mailSender.send(rejected, message()));
+
+        assertEquals(1, exception.getFailedMessages().size());
+        assertTrue(exception.getFailedMessages().containsKey(rejected));
+        assertEquals(1, openedTransports.size());
+        verify(transport, times(3)).sendMessage(any(Message.class), any(Address[].class));
+    }
+
+    private PooledMailSender newMailSender(MailPoolProperties properties) {
+        Session session = Session.getInstance(new Properties());
+
+        return new PooledMailSender(session, "smtp", "localhost", 25, "", "", "UTF-8", properties) {
+            @Override
+            protected Transport connect() {
+                Transport transport = mock(Transport.class);
+                openedTransports.add(transport);
+                return transport;
+            }
+        };
+    }
+
+    private SimpleMailMessage message() {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo("user@abv.bg");
+        message.setSubject("Subject");
+        message.setText("Body");
+        return message;
+    }
+}
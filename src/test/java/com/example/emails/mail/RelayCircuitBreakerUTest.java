@@ -0,0 +1,78 @@
+package com.example.emails.mail;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RelayCircuitBreakerUTest {
+
+    @Test
+    void whenFailureRateReachesThresholdAfterMinimumCalls_thenCircuitOpens() {
+        RelayCircuitBreaker circuit = new RelayCircuitBreaker(10, 4, 0.5, 1_000);
+
+        assertFalse(circuit.record(false, 0));
+        assertFalse(circuit.record(false, 0));
+        assertFalse(circuit.record(false, 0));
+        assertEquals(RelayCircuitBreaker.State.CLOSED, circuit.state());
+
+        assertTrue(circuit.record(true, 0));
+        assertEquals(RelayCircuitBreaker.State.OPEN, circuit.state());
+        assertFalse(circuit.isAvailable());
+    }
+
+    @Test
+    void whenOldFailuresLeaveTheWindow_thenTheyNoLongerCount() {
+        RelayCircuitBreaker circuit = new RelayCircuitBreaker(4, 4, 0.5, 1_000);
+
+        circuit.record(false, 0);
+        for (int i = 0; i < 10; i++) {
+            circuit.record(true, 0);
+        }
+        circuit.record(false, 0);
+
+        assertEquals(RelayCircuitBreaker.State.CLOSED, circuit.state());
+    }
+
+    @Test
+    void whenOpenCircuitPassesHealthCheckAfterOpenDuration_thenOneTrialDecides() {
+        RelayCircuitBreaker circuit = new RelayCircuitBreaker(2, 1, 0.5, 1_000);
+        circuit.record(false, 0);
+
+        circuit.probe(true, 999);
+        assertEquals(RelayCircuitBreaker.State.OPEN, circuit.state());
+
+        circuit.probe(true, 1_000);
+        assertEquals(RelayCircuitBreaker.State.HALF_OPEN, circuit.state());
+        assertTrue(circuit.isAvailable());
+
+        circuit.acquire();
+        assertFalse(circuit.isAvailable());
+
+        circuit.record(true, 1_001);
+        assertEquals(RelayCircuitBreaker.State.CLOSED, circuit.state());
+    }
+
+    @Test
+    void whenTrialFails_thenCircuitOpensAgain() {
+        RelayCircuitBreaker circuit = new RelayCircuitBreaker(2, 1, 0.5, 1_000);
+        circuit.record(false, 0);
+        circuit.probe(true, 1_000);
+        circuit.acquire();
+
+        assertTrue(circuit.record(false, 1_001));
+
+        assertEquals(RelayCircuitBreaker.State.OPEN, circuit.state());
+        circuit.probe(true, 1_500);
+        assertEquals(RelayCircuitBreaker.State.OPEN, circuit.state());
+    }
+
+    @Test
+    void whenHealthCheckFails_thenItCountsAsFailedSend() {
+        RelayCircuitBreaker circuit = new RelayCircuitBreaker(4, 2, 0.5, 1_000);
+
+        assertFalse(circuit.probe(false, 0));
+        assertTrue(circuit.probe(false, 0));
+
+        assertEquals(RelayCircuitBreaker.State.OPEN, circuit.state());
+    }
+}
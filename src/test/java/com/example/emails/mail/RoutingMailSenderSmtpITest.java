@@ -0,0 +1,87 @@
+package com.example.emails.mail;
+
+import com.example.emails.config.MailRoutingConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoutingMailSenderSmtpITest {
+
+    private FakeSmtpServer healthy;
+    private FakeSmtpServer failing;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        healthy.close();
+        if (failing != null) {
+            failing.close();
+        }
+    }
+
+    @Test
+    void whenOneRelayIsDown_thenEveryMessageIsDeliveredByTheOther() throws Exception {
+        healthy = FakeSmtpServer.start(Duration.ZERO, 0.0, 4);
+        FakeSmtpServer down = FakeSmtpServer.start(Duration.ZERO, 0.0, 4);
+        down.close();
+
+        contextRunner(down.getPort()).run(context -> {
+            RoutingMailSender mailSender = context.getBean(RoutingMailSender.class);
+
+            for (int i = 0; i < 40; i++) {
+                mailSender.send(message());
+            }
+
+            assertEquals(40, healthy.getAcceptedMessages());
+            assertEquals(RelayCircuitBreaker.State.OPEN, mailSender.circuitState("failing"));
+        });
+    }
+
+    @Test
+    void whenRelayRejectsTransiently_thenMessagesMoveToTheOther() throws Exception {
+        healthy = FakeSmtpServer.start(Duration.ZERO, 0.0, 4);
+        failing = FakeSmtpServer.start(Duration.ZERO, 1.0, 4);
+
+        contextRunner(failing.getPort()).run(context -> {
+            RoutingMailSender mailSender = context.getBean(RoutingMailSender.class);
+
+            for (int i = 0; i < 40; i++) {
+                mailSender.send(message());
+            }
+
+            assertEquals(40, healthy.getAcceptedMessages());
+            assertTrue(failing.getRejectedMessages() < 40);
+            assertEquals(RelayCircuitBreaker.State.OPEN, mailSender.circuitState("failing"));
+        });
+    }
+
+    private ApplicationContextRunner contextRunner(int failingPort) {
+        return new ApplicationContextRunner()
+                .withUserConfiguration(MailRoutingConfig.class)
+                .withBean(SimpleMeterRegistry.class)
+                .withPropertyValues(
+                        "spring.mail.properties.mail.smtp.auth=false",
+                        "spring.mail.routing.enabled=true",
+                        "spring.mail.routing.circuit.minimum-calls=4",
+                        "spring.mail.routing.relays[0].name=failing",
+                        "spring.mail.routing.relays[0].host=" + healthy.getHost(),
+                        "spring.mail.routing.relays[0].port=" + failingPort,
+                        "spring.mail.routing.relays[1].name=up",
+                        "spring.mail.routing.relays[1].host=" + healthy.getHost(),
+                        "spring.mail.routing.relays[1].port=" + healthy.getPort());
+    }
+
+    private static SimpleMailMessage message() {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("sender@example.com");
+        message.setTo("user@example.com");
+        message.setSubject("Subject");
+        message.setText("Body");
+        return message;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.emails.mail;
+
+import com.example.emails.config.MailRoutingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class RoutingMailSenderUTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MailSender primary = mock(MailSender.class);
+    private final MailSender secondary = mock(MailSender.class);
+    private RoutingMailSender mailSender;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mailSender.destroy();
+    }
+
+    @Test
+    void whenRelayCannotConnect_thenMessageFailsOverToNextRelay() {
+        mailSender = newMailSender(new MailRoutingProperties(), () -> {
+        });
+        doThrow(new MailSendException("Connection refused")).when(primary).send(any(SimpleMailMessage[].class));
+
+        // Equal weights alternate, so only the first send starts on the primary.
+        mailSender.send(message());
+        mailSender.send(message());
+
+        verify(primary).send(any(SimpleMailMessage[].class));
+        verify(secondary, times(2)).send(any(SimpleMailMessage[].class));
+        assertEquals(1, registry.get("email.relay.failover").tag("relay", "primary").counter().count());
+    }
+
+    @Test
+    void whenRelayRejectsRecipientPermanently_thenMessageIsNotRetried() {
+        mailSender = newMailSender(new MailRoutingProperties(), () -> {
+        });
+        SimpleMailMessage message = message();
+        MailSendException rejected = new MailSendException(Map.of(message,
+                new SmtpRejectedException("SMTP server rejected RCPT TO: 550 No such user", 550)));
+        doThrow(rejected).when(primary).send(any(SimpleMailMessage[].class));
+        doThrow(rejected).when(secondary).send(any(SimpleMailMessage[].class));
+
+        MailSendException thrown = assertThrows(MailSendException.class, () -> mailSender.send(message));
+
+        assertInstanceOf(SmtpRejectedException.class, thrown.getFailedMessages().get(message));
+        verify(primary, times(1)).send(any(SimpleMailMessage[].class));
+        verifyNoInteractions(secondary);
+        assertEquals(RelayCircuitBreaker.State.CLOSED, mailSender.circuitState("primary"));
+    }
+
+    @Test
+    void whenRelayKeepsFailing_thenCircuitOpensAndTrafficGoesElsewhere() {
+        MailRoutingProperties properties = new MailRoutingProperties();
+        properties.getCircuit().setMinimumCalls(2);
+        mailSender = newMailSender(properties, () -> {
+        });
+        doThrow(new MailSendException("Connection refused")).when(primary).send(any(SimpleMailMessage[].class));
+
+        for (int i = 0; i < 10; i++) {
+            mailSender.send(message());
+        }
+
+        assertEquals(RelayCircuitBreaker.State.OPEN, mailSender.circuitState("primary"));
+        verify(primary, times(2)).send(any(SimpleMailMessage[].class));
+        verify(secondary, times(10)).send(any(SimpleMailMessage[].class));
+        assertEquals(1, registry.get("email.relay.circuit.opened").tag("relay", "primary").counter().count());
+    }
+
+    @Test
+    void whenEveryCircuitIsOpen_thenSendFailsWithoutTryingRelays() {
+        MailRoutingProperties properties = new MailRoutingProperties();
+        properties.getCircuit().setMinimumCalls(1);
+        mailSender = newMailSender(properties, () -> {
+            throw new IllegalStateException("Connection refused");
+        });
+
+        mailSender.checkHealth();
+
+        MailSendException thrown = assertThrows(MailSendException.class, () -> mailSender.send(message()));
+        assertEquals("No SMTP relay is available.",
+                thrown.getFailedMessages().values().iterator().next().getMessage());
+        verifyNoInteractions(primary, secondary);
+    }
+
+    @Test
+    void whenOpenRelayPassesHealthCheck_thenTrialSendClosesCircuit() {
+        MailRoutingProperties properties = new MailRoutingProperties();
+        properties.getCircuit().setMinimumCalls(1);
+        properties.getCircuit().setOpenDuration(Duration.ZERO);
+        AtomicInteger failingChecks = new AtomicInteger(1);
+        mailSender = newMailSender(properties, () -> {
+            if (failingChecks.getAndDecrement() > 0) {
+                throw new IllegalStateException("Connection refused");
+            }
+        });
+
+        mailSender.checkHealth();
+        assertEquals(RelayCircuitBreaker.State.OPEN, mailSender.circuitState("primary"));
+
+        mailSender.checkHealth();
+        assertEquals(RelayCircuitBreaker.State.HALF_OPEN, mailSender.circuitState("primary"));
+
+        mailSender.send(message());
+        assertEquals(RelayCircuitBreaker.State.CLOSED, mailSender.circuitState("primary"));
+    }
+
+    @Test
+    void whenRelayIsSlower_thenItGetsLessTraffic() {
+        MailRoutingProperties properties = new MailRoutingProperties();
+        properties.setLatencySmoothing(1.0);
+        mailSender = newMailSender(properties, () -> {
+        });
+        doAnswer(invocation -> {
+            Thread.sleep(4);
+            return null;
+        }).when(primary).send(any(SimpleMailMessage[].class));
+
+        for (int i = 0; i < 60; i++) {
+            mailSender.send(message());
+        }
+
+        int slow = mockingDetails(primary).getInvocations().size();
+        int fast = mockingDetails(secondary).getInvocations().size();
+        assertTrue(slow * 3 < fast, "slow=%d fast=%d".formatted(slow, fast));
+    }
+
+    private RoutingMailSender newMailSender(MailRoutingProperties properties, MailRelay.HealthCheck healthCheck) {
+        properties.getHealthCheck().setInterval(Duration.ofHours(1));
+        return new RoutingMailSender(List.of(
+                new MailRelay("primary", primary, 1, healthCheck),
+                new MailRelay("secondary", secondary, 1, healthCheck)), properties, registry);
+    }
+
+    private static SimpleMailMessage message() {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("sender@example.com");
+        message.setTo("user@example.com");
+        message.setSubject("Subject");
+        message.setText("Body");
+        return message;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.emails.mail;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SmtpDataOutputStreamUTest {
+
+    @Test
+    void whenLinesEndInBareLfOrCr_thenTheyEndInCrLf() throws IOException {
+        assertEquals("a\r\nb\r\nc\r\nd\r\n.\r\n", encode("a\nb\rc\r\nd"));
+    }
+
+    @Test
+    void whenLineStartsWithDot_thenDotIsDoubled() throws IOException {
+        assertEquals("..hidden\r\nmid.dle\r\n..\r\n.\r\n", encode(".hidden\nmid.dle\n."));
+    }
+
+    @Test
+    void whenContentEndsWithLineBreak_thenNoEmptyLineIsAdded() throws IOException {
+        assertEquals("body\r\n.\r\n", encode("body\r\n"));
+    }
+
+    private static String encode(String content) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        try (SmtpDataOutputStream data = new SmtpDataOutputStream(encoded)) {
+            data.write(content.getBytes(StandardCharsets.US_ASCII));
+        }
+        return encoded.toString(StandardCharsets.US_ASCII);
+    }
+}
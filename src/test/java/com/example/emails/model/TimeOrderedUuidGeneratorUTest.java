@@ -0,0 +1,56 @@
+package com.example.emails.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeOrderedUuidGeneratorUTest {
+
+    @Test
+    void next_setsVersionVariantAndTimestamp() {
+
+        long now = System.currentTimeMillis();
+
+        UUID uuid = TimeOrderedUuidGenerator.next(now);
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertTrue(uuid.getMostSignificantBits() >>> 16 >= now);
+    }
+
+    @Test
+    void next_isStrictlyIncreasingAsBytes_withinTheSameMillisecond() {
+
+        long now = System.currentTimeMillis();
+        Set<UUID> seen = new HashSet<>();
+        byte[] previous = UuidBytes.toBytes(TimeOrderedUuidGenerator.next(now));
+
+        // Far more than the 4096 ids the counter holds per millisecond.
+        for (int i = 0; i < 10_000; i++) {
+            UUID uuid = TimeOrderedUuidGenerator.next(now);
+            byte[] current = UuidBytes.toBytes(uuid);
+
+            assertTrue(seen.add(uuid));
+            assertTrue(Arrays.compareUnsigned(previous, current) < 0);
+            assertEquals(7, uuid.version());
+            previous = current;
+        }
+    }
+
+    @Test
+    void next_isStrictlyIncreasing_whenTheClockStepsBack() {
+
+        long now = System.currentTimeMillis();
+
+        UUID later = TimeOrderedUuidGenerator.next(now + 1_000);
+        UUID afterStepBack = TimeOrderedUuidGenerator.next(now);
+
+        assertTrue(Arrays.compareUnsigned(UuidBytes.toBytes(later), UuidBytes.toBytes(afterStepBack)) < 0);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.emails.service;
+
+import com.example.emails.model.EmailStatus;
+import com.example.emails.repository.EmailDeliveryState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeliveryStateJournalUTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void whenRotated_thenClosedFileHoldsAppendedStates() throws Exception {
+        EmailDeliveryState succeeded = new EmailDeliveryState(UUID.randomUUID(), EmailStatus.SUCCEEDED, 1, null);
+        EmailDeliveryState failed = new EmailDeliveryState(
+                UUID.randomUUID(), EmailStatus.FAILED, 2, LocalDateTime.of(2030, 1, 1, 9, 30, 15, 123_000));
+
+        try (DeliveryStateJournal journal = new DeliveryStateJournal(directory, false)) {
+            journal.append(succeeded);
+            journal.append(failed);
+
+            Path closed = journal.rotate();
+
+            assertEquals(List.of(succeeded, failed), DeliveryStateJournal.read(closed));
+            assertEquals(List.of(closed), journal.abandonedFiles());
+        }
+    }
+
+    @Test
+    void whenLastLineIsTorn_thenItIsSkipped() throws Exception {
+        EmailDeliveryState state = new EmailDeliveryState(UUID.randomUUID(), EmailStatus.SUCCEEDED, 1, null);
+        Path closed;
+
+        try (DeliveryStateJournal journal = new DeliveryStateJournal(directory, false)) {
+            journal.append(state);
+            closed = journal.rotate();
+        }
+        Files.writeString(closed, UUID.randomUUID() + ",SUCC", StandardCharsets.US_ASCII, StandardOpenOption.APPEND);
+
+        assertEquals(List.of(state), DeliveryStateJournal.read(closed));
+    }
+
+    @Test
+    void whenJournalIsOpen_thenItsFileIsNotAbandoned() throws Exception {
+        try (DeliveryStateJournal first = new DeliveryStateJournal(directory, false);
+             DeliveryStateJournal second = new DeliveryStateJournal(directory, false)) {
+            first.append(new EmailDeliveryState(UUID.randomUUID(), EmailStatus.SUCCEEDED, 1, null));
+
+            assertTrue(second.abandonedFiles().isEmpty());
+        }
+    }
+
+    @Test
+    void whenClosedEmpty_thenFileIsDeleted() throws Exception {
+        new DeliveryStateJournal(directory, false).close();
+
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
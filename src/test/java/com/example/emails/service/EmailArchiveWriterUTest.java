@@ -0,0 +1,71 @@
+package com.example.emails.service;
+
+import com.example.emails.model.Email;
+import com.example.emails.model.EmailStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmailArchiveWriterUTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void whenBatchIsWritten_thenItCanBeReadBeforeTheArchiveIsClosed() throws Exception {
+        EmailArchiveWriter archive = new EmailArchiveWriter(directory, EmailStatus.SUCCEEDED, LocalDateTime.now(),
+                new ObjectMapper().findAndRegisterModules(), email -> "Body");
+        Email first = email();
+        Email second = email();
+
+        archive.write(List.of(first, second));
+
+        // As after a crash right after the batch was deleted: no gzip trailer yet.
+        Path file;
+        try (Stream<Path> files = Files.list(directory)) {
+            file = files.findFirst().orElseThrow();
+        }
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            byte[] buffer = new byte[256];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                content.write(buffer, 0, read);
+            }
+        } catch (EOFException e) {
+            // The missing trailer.
+        }
+
+        String[] lines = content.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains(first.getId().toString()));
+        assertTrue(lines[1].contains(second.getId().toString()));
+
+        archive.close();
+    }
+
+    private static Email email() {
+        return Email.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .subject("Subject")
+                .bodyHash("hash")
+                .createdOn(LocalDateTime.now())
+                .status(EmailStatus.SUCCEEDED)
+                .build();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.emails.service;
+
+import com.example.emails.config.EmailBodyStoreProperties;
+import com.example.emails.model.EmailBody;
+import com.example.emails.repository.EmailBodyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EmailBodyStoreUTest {
+
+    @Mock
+    private EmailBodyRepository emailBodyRepository;
+
+    private EmailBodyStore emailBodyStore;
+
+    @BeforeEach
+    void setUp() {
+        emailBodyStore = new EmailBodyStore(emailBodyRepository, new EmailBodyStoreProperties());
+    }
+
+    @Test
+    void store_sameBodyTwice_insertsOnce() {
+        String body = "Spring sale, everything 20% off!";
+
+        String first = emailBodyStore.store(body);
+        String second = emailBodyStore.store(body);
+
+        assertEquals(first, second);
+        verify(emailBodyRepository, times(1)).upsert(eq(first), any(), any());
+    }
+
+    @Test
+    void hash_matchesSha256Hex() {
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                EmailBodyStore.hash("abc".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void compress_repetitiveBody_roundTripsAndShrinks() {
+        String body = "Dear customer, thank you for your order. ".repeat(200) + "Ünïcødé ✓";
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        byte[] compressed = EmailBodyStore.compress(bytes);
+
+        assertTrue(compressed.length < bytes.length / 10);
+        // MySQL COMPRESS() layout: little-endian length, then a zlib header.
+        assertEquals(bytes.length & 0xff, compressed[0] & 0xff);
+        assertEquals(0x78, compressed[4] & 0xff);
+        assertEquals(body, EmailBodyStore.decompress(compressed));
+        assertEquals("", EmailBodyStore.decompress(EmailBodyStore.compress(new byte[0])));
+    }
+
+    @Test
+    void load_decompressesStoredBodyOnce() {
+        String body = "Your code is 42.";
+        String hash = EmailBodyStore.hash(body.getBytes(StandardCharsets.UTF_8));
+        when(emailBodyRepository.findById(hash)).thenReturn(Optional.of(EmailBody.builder()
+                .hash(hash)
+                .content(EmailBodyStore.compress(body.getBytes(StandardCharsets.UTF_8)))
+                .build()));
+
+        assertEquals(body, emailBodyStore.load(hash));
+        assertEquals(body, emailBodyStore.load(hash));
+        verify(emailBodyRepository, times(1)).findById(hash);
+    }
+
+    @Test
+    void load_unknownHash_throws() {
+        when(emailBodyRepository.findById("missing")).thenReturn(Optional.empty());
+
+        assertThrows(NullPointerException.class, () -> emailBodyStore.load("missing"));
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.emails.service;
+
+import com.example.emails.config.IdempotencyProperties;
+import com.example.emails.model.Email;
+import com.example.emails.repository.EmailRepository;
+import com.example.emails.web.dto.EmailRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EmailIdempotencyGuardUTest {
+
+    @Mock
+    private EmailRepository emailRepository;
+
+    private EmailIdempotencyGuard emailIdempotencyGuard;
+
+    private final UUID userId = UUID.randomUUID();
+
+    private EmailRequest emailRequest;
+
+    @BeforeEach
+    void setUp() {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setExpectedKeys(1_000);
+        emailIdempotencyGuard = new EmailIdempotencyGuard(emailRepository, properties);
+
+        emailRequest = new EmailRequest();
+        emailRequest.setUserId(userId);
+        emailRequest.setSubject("Subject");
+        emailRequest.setBody("Body");
+    }
+
+    @Test
+    void execute_newKey_sendsWithoutLookup() {
+        Email email = Email.builder().id(UUID.randomUUID()).build();
+
+        Email result = emailIdempotencyGuard.execute(emailRequest, "key-1", () -> email);
+
+        assertSame(email, result);
+        verify(emailRepository, never()).findByUserIdAndIdempotencyKey(any(), any());
+    }
+
+    @Test
+    void execute_repeatedKey_returnsOriginalWithoutSending() {
+        Email original = Email.builder().id(UUID.randomUUID()).idempotencyKey("key-1")
+                .requestHash(EmailIdempotencyGuard.requestHash(emailRequest)).build();
+        AtomicInteger sends = new AtomicInteger();
+
+        emailIdempotencyGuard.execute(emailRequest, "key-1", () -> {
+            sends.incrementAndGet();
+            return original;
+        });
+        when(emailRepository.findByUserIdAndIdempotencyKey(userId, "key-1")).thenReturn(Optional.of(original));
+
+        Email result = emailIdempotencyGuard.execute(emailRequest, "key-1", () -> {
+            sends.incrementAndGet();
+            return Email.builder().build();
+        });
+
+        assertSame(original, result);
+        assertEquals(1, sends.get());
+    }
+
+    @Test
+    void execute_keyUsedElsewhere_returnsOriginalAfterUniqueViolation() {
+        Email original = Email.builder().id(UUID.randomUUID()).idempotencyKey("key-1")
+                .requestHash(EmailIdempotencyGuard.requestHash(emailRequest)).build();
+        when(emailRepository.findByUserIdAndIdempotencyKey(userId, "key-1")).thenReturn(Optional.of(original));
+
+        Email result = emailIdempotencyGuard.execute(emailRequest, "key-1", () -> {
+            throw new DataIntegrityViolationException("uk_email_user_idempotency_key");
+        });
+
+        assertSame(original, result);
+    }
+
+    @Test
+    void execute_repeatedKeyWithDifferentRequest_throws() {
+        Email original = Email.builder().id(UUID.randomUUID()).idempotencyKey("key-1")
+                .requestHash(EmailIdempotencyGuard.requestHash(emailRequest)).build();
+        when(emailRepository.findByUserIdAndIdempotencyKey(userId, "key-1")).thenReturn(Optional.of(original));
+
+        emailRequest.setBody("Other body");
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> emailIdempotencyGuard.execute(emailRequest, "key-1",
+                () -> {
+                    throw new DataIntegrityViolationException("uk_email_user_idempotency_key");
+                }));
+    }
+
+    @Test
+    void requestHash_ignoresParamOrder() {
+        emailRequest.setParams(new LinkedHashMap<>(Map.of("a", "1")));
+        emailRequest.getParams().put("b", "2");
+        String hash = EmailIdempotencyGuard.requestHash(emailRequest);
+
+        LinkedHashMap<String, String> reordered = new LinkedHashMap<>();
+        reordered.put("b", "2");
+        reordered.put("a", "1");
+        emailRequest.setParams(reordered);
+
+        assertEquals(hash, EmailIdempotencyGuard.requestHash(emailRequest));
+    }
+
+    @Test
+    void execute_withoutKey_alwaysSends() {
+        AtomicInteger sends = new AtomicInteger();
+
+        emailIdempotencyGuard.execute(emailRequest, null, () -> Email.builder().id(UUID.randomUUID()).build());
+        emailIdempotencyGuard.execute(emailRequest, null, () -> {
+            sends.incrementAndGet();
+            return Email.builder().build();
+        });
+
+        assertEquals(1, sends.get());
+        verifyNoInteractions(emailRepository);
+    }
+
+    @Test
+    void execute_tooLongKey_throws() {
+        String key = "k".repeat(EmailIdempotencyGuard.MAX_KEY_LENGTH + 1);
+
+        assertThrows(IllegalArgumentException.class, () ->
+                emailIdempotencyGuard.execute(emailRequest, key, Email::new));
+    }
+
+    @Test
+    void filter_rotatesGenerationsWithoutForgettingRecentKeys() {
+        IdempotencyKeyFilter filter = new IdempotencyKeyFilter(100, 0.01);
+
+        for (int i = 0; i < 150; i++) {
+            filter.put("key-" + i);
+        }
+
+        for (int i = 0; i < 150; i++) {
+            assertTrue(filter.mightContain("key-" + i));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 1_000; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 50, "false positives: " + falsePositives);
+    }
+}
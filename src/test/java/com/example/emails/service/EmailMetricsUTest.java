@@ -0,0 +1,37 @@
+package com.example.emails.service;
+
+import com.example.emails.config.EmailMetricsProperties;
+import com.example.emails.model.EmailStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmailMetricsUTest {
+
+    @Test
+    void whenRecordingOutcome_thenUntrackedDomainsCollapseToOther() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        EmailMetrics emailMetrics = new EmailMetrics(registry, new EmailMetricsProperties());
+
+        emailMetrics.recordOutcome(EmailStatus.SUCCEEDED, "user@GMAIL.com");
+        emailMetrics.recordOutcome(EmailStatus.FAILED, "user@abv.bg");
+        emailMetrics.recordOutcome(EmailStatus.FAILED, "other@abv.bg");
+
+        assertEquals(1, registry.get("email.send.outcome")
+                .tags("status", "SUCCEEDED", "domain", "gmail.com").counter().count());
+        assertEquals(2, registry.get("email.send.outcome")
+                .tags("status", "FAILED", "domain", "other").counter().count());
+    }
+
+    @Test
+    void whenTimingStage_thenTimerTaggedWithStage() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        EmailMetrics emailMetrics = new EmailMetrics(registry, new EmailMetricsProperties());
+
+        String result = emailMetrics.time(EmailMetrics.Stage.SMTP, () -> "sent");
+
+        assertEquals("sent", result);
+        assertEquals(1, registry.get("email.send.stage").tag("stage", "smtp").timer().count());
+    }
+}
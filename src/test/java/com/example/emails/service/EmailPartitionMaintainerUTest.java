@@ -0,0 +1,49 @@
+package com.example.emails.service;
+
+import com.example.emails.config.RetentionProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EmailPartitionMaintainerUTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void maintainPartitions_createsMissingMonthsAndDropsOldEmptyPartitions() {
+        RetentionProperties properties = new RetentionProperties();
+        properties.getPartitioning().setMonthsAhead(1);
+        EmailPartitionMaintainer maintainer = new EmailPartitionMaintainer(jdbcTemplate, properties);
+
+        when(jdbcTemplate.queryForList(contains("information_schema.partitions"))).thenReturn(List.of(
+                partition("p202501", "'2025-02-01'"),
+                partition("p202510", "'2026-11-01 00:00:00'"),
+                partition(EmailPartitionMaintainer.FUTURE_PARTITION, "MAXVALUE")));
+        when(jdbcTemplate.queryForList(contains("partition (p202501)"))).thenReturn(List.of());
+
+        maintainer.maintainPartitions(LocalDateTime.of(2026, 10, 17, 12, 0));
+
+        verify(jdbcTemplate).execute(argThat((String sql) ->
+                sql.contains("partition p202611 values less than ('2026-12-01')")));
+        verify(jdbcTemplate).execute("alter table email drop partition p202501");
+        verify(jdbcTemplate, never()).execute(contains("drop partition p202510"));
+        verify(jdbcTemplate, times(2)).execute(anyString());
+    }
+
+    private static Map<String, Object> partition(String name, String description) {
+        return Map.of("partition_name", name, "partition_description", description);
+    }
+}
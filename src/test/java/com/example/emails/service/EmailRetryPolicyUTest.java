@@ -0,0 +1,88 @@
+package com.example.emails.service;
+
+import com.example.emails.config.EmailRetryProperties;
+import com.example.emails.model.Email;
+import com.example.emails.model.EmailStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmailRetryPolicyUTest {
+
+    @Test
+    void whenAttemptFails_thenScheduleNextAttempt() {
+        EmailRetryPolicy policy = new EmailRetryPolicy(new EmailRetryProperties());
+        Email email = new Email();
+
+        policy.recordAttempt(email, EmailStatus.FAILED);
+
+        assertEquals(EmailStatus.FAILED, email.getStatus());
+        assertEquals(1, email.getAttempts());
+        assertTrue(email.getNextAttemptAt().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    void whenAttemptSucceeds_thenClearNextAttempt() {
+        EmailRetryPolicy policy = new EmailRetryPolicy(new EmailRetryProperties());
+        Email email = Email.builder()
+                .attempts(1)
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+
+        policy.recordAttempt(email, EmailStatus.SUCCEEDED);
+
+        assertEquals(EmailStatus.SUCCEEDED, email.getStatus());
+        assertEquals(2, email.getAttempts());
+        assertNull(email.getNextAttemptAt());
+    }
+
+    @Test
+    void whenMaxAttemptsReached_thenDeadLetter() {
+        EmailRetryProperties properties = new EmailRetryProperties();
+        properties.setMaxAttempts(3);
+        EmailRetryPolicy policy = new EmailRetryPolicy(properties);
+        Email email = Email.builder()
+                .attempts(2)
+                .build();
+
+        policy.recordAttempt(email, EmailStatus.FAILED);
+
+        assertEquals(EmailStatus.DEAD_LETTER, email.getStatus());
+        assertNull(email.getNextAttemptAt());
+    }
+
+    @Test
+    void whenRequeued_thenAttemptIsNotCounted() {
+        EmailRetryProperties properties = new EmailRetryProperties();
+        properties.setMaxAttempts(3);
+        EmailRetryPolicy policy = new EmailRetryPolicy(properties);
+        Email email = Email.builder()
+                .status(EmailStatus.SENDING)
+                .attempts(2)
+                .build();
+
+        policy.requeue(email);
+
+        assertEquals(EmailStatus.QUEUED, email.getStatus());
+        assertEquals(2, email.getAttempts());
+        assertNotNull(email.getNextAttemptAt());
+    }
+
+    @Test
+    void backoffGrowsExponentiallyAndIsCapped() {
+        EmailRetryProperties properties = new EmailRetryProperties();
+        properties.setInitialBackoff(Duration.ofSeconds(10));
+        properties.setMultiplier(2.0);
+        properties.setMaxBackoff(Duration.ofSeconds(60));
+        properties.setJitter(0);
+        EmailRetryPolicy policy = new EmailRetryPolicy(properties);
+
+        assertEquals(Duration.ofSeconds(10), policy.backoff(1));
+        assertEquals(Duration.ofSeconds(20), policy.backoff(2));
+        assertEquals(Duration.ofSeconds(40), policy.backoff(3));
+        assertEquals(Duration.ofSeconds(60), policy.backoff(4));
+    }
+}
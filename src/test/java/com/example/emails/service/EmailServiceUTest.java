@@ -1,20 +1,39 @@
 package com.example.emails.service;
 
+import com.example.emails.config.EmailDispatchProperties;
+import com.example.emails.config.EmailMetricsProperties;
+import com.example.emails.config.EmailRetryProperties;
+import com.example.emails.config.PreferenceCacheProperties;
+import com.example.emails.config.RateLimitProperties;
 import com.example.emails.model.Email;
 import com.example.emails.model.EmailPreference;
+import com.example.emails.model.EmailPriority;
 import com.example.emails.model.EmailStatus;
+import com.example.emails.model.EmailTemplate;
 import com.example.emails.repository.EmailPreferenceRepository;
+import com.example.emails.model.OutboxEvent;
 import com.example.emails.repository.EmailRepository;
+import com.example.emails.repository.OutboxEventRepository;
+import com.example.emails.web.dto.BatchEmailRequest;
 import com.example.emails.web.dto.EmailRequest;
 import com.example.emails.web.dto.UpsertPreference;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.MailSender;
 import org.springframework.mail.SimpleMailMessage;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -33,6 +52,37 @@ public class EmailServiceUTest {
     @Mock
     private EmailRepository emailRepository;
 
+    @Spy
+    private PriorityLaneExecutor priorityLaneExecutor = new PriorityLaneExecutor(
+            new SyncTaskExecutor(), new SyncTaskExecutor(), new EmailDispatchProperties(), new SimpleMeterRegistry());
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private EmailTemplateService emailTemplateService;
+
+    @Mock
+    private EmailBodyStore emailBodyStore;
+
+    @Mock
+    private EmailDeliveryStateWriter emailDeliveryStateWriter;
+
+    @Spy
+    private EmailPreferenceCache emailPreferenceCache = new EmailPreferenceCache(new PreferenceCacheProperties());
+
+    @Spy
+    private EmailRetryPolicy emailRetryPolicy = new EmailRetryPolicy(new EmailRetryProperties());
+
+    @Spy
+    private SendRateLimiter sendRateLimiter = new SendRateLimiter(new RateLimitProperties());
+
+    @Spy
+    private EmailMetrics emailMetrics = new EmailMetrics(new SimpleMeterRegistry(), new EmailMetricsProperties());
+
+    @Spy
+    private EmailDispatchProperties emailDispatchProperties = new EmailDispatchProperties();
+
     @InjectMocks
     private EmailService emailService;
 
@@ -42,7 +92,8 @@ public class EmailServiceUTest {
         UUID userId = UUID.randomUUID();
         boolean isEnable = true;
 
-        when(emailPreferenceRepository.findByUserId(userId)).thenReturn(Optional.empty());
+        when(emailPreferenceRepository.updateEnabledByUserId(eq(userId), eq(isEnable), any(LocalDateTime.class)))
+                .thenReturn(0);
 
         NullPointerException exception =
                 assertThrows(NullPointerException.class, () ->
@@ -50,6 +101,7 @@ public class EmailServiceUTest {
 
         assertEquals("Email preference for user id [%s] was not found.".formatted(userId),
                 exception.getMessage());
+        verify(emailPreferenceRepository, never()).findDetachedByUserId(userId);
     }
 
     @Test
@@ -57,69 +109,49 @@ public class EmailServiceUTest {
         UUID userId = UUID.randomUUID();
         boolean isEnable = true;
         EmailPreference emailPreference = EmailPreference.builder()
-                .isEnabled(false)
+                .userId(userId)
+                .isEnabled(true)
                 .build();
 
-        when(emailPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(emailPreference));
+        when(emailPreferenceRepository.updateEnabledByUserId(eq(userId), eq(isEnable), any(LocalDateTime.class)))
+                .thenReturn(1);
+        when(emailPreferenceRepository.findDetachedByUserId(userId)).thenReturn(Optional.of(emailPreference));
 
-        emailService.changePreference(userId, isEnable);
+        EmailPreference changedPreference = emailService.changePreference(userId, isEnable);
 
-        assertTrue(emailPreference.isEnabled());
-        verify(emailPreferenceRepository, times(1)).save(emailPreference);
+        assertSame(emailPreference, changedPreference);
+        verify(emailPreferenceRepository, times(1))
+                .updateEnabledByUserId(eq(userId), eq(isEnable), any(LocalDateTime.class));
+        verify(emailPreferenceRepository, never()).findByUserId(userId);
+        verify(emailPreferenceRepository, never()).save(any(EmailPreference.class));
     }
 
     @Test
-    void whenUpsertPreference_preferenceExist_thenUpdatePreference() {
+    void whenUpsertPreference_thenUpsertsInOneStatementAndReturnsStoredPreference() {
         UUID userId = UUID.randomUUID();
         UpsertPreference upsertPreference = new UpsertPreference();
         upsertPreference.setContactEmail("new_email@abv.bg");
         upsertPreference.setEnabled(true);
         upsertPreference.setUserId(userId);
 
-        EmailPreference excitingPreference = EmailPreference.builder()
-                .userId(userId)
-                .contactEmail("old_email@abv.bg")
-                .isEnabled(false)
-                .build();
-
-        when(emailPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(excitingPreference));
-        when(emailPreferenceRepository.save(any(EmailPreference.class))).thenReturn(excitingPreference);
-
-        EmailPreference updatedPreference = emailService.upsertPreference(upsertPreference);
-
-        assertEquals("new_email@abv.bg", updatedPreference.getContactEmail());
-        assertTrue(updatedPreference.isEnabled());
-
-        verify(emailPreferenceRepository, times(1)).save(excitingPreference);
-    }
-
-    @Test
-    void whenUpsertPreference_preferenceDoesNotExist_thenInsertPreference() {
-        UUID userId = UUID.randomUUID();
-        String contactEmail = "new_email@abv.bg";
-        boolean isEnable = true;
-
-        UpsertPreference upsertPreference = new UpsertPreference();
-        upsertPreference.setUserId(userId);
-        upsertPreference.setContactEmail(contactEmail);
-        upsertPreference.setEnabled(isEnable);
-
-        when(emailPreferenceRepository.findByUserId(userId)).thenReturn(Optional.empty());
-
-        EmailPreference newPreference = EmailPreference.builder()
+        EmailPreference storedPreference = EmailPreference.builder()
                 .userId(userId)
-                .contactEmail(contactEmail)
-                .isEnabled(isEnable)
+                .contactEmail("new_email@abv.bg")
+                .isEnabled(true)
                 .build();
 
-        when(emailPreferenceRepository.save(any(EmailPreference.class))).thenReturn(newPreference);
+        when(emailPreferenceRepository.findDetachedByUserId(userId)).thenReturn(Optional.of(storedPreference));
 
-        EmailPreference createdPreference = emailService.upsertPreference(upsertPreference);
+        EmailPreference upsertedPreference = emailService.upsertPreference(upsertPreference);
 
-        assertEquals(contactEmail, createdPreference.getContactEmail());
-        assertEquals(isEnable, createdPreference.isEnabled());
+        assertEquals("new_email@abv.bg", upsertedPreference.getContactEmail());
+        assertTrue(upsertedPreference.isEnabled());
 
-        verify(emailPreferenceRepository, times(1)).save(any(EmailPreference.class));
+        verify(emailPreferenceRepository, times(1)).upsert(any(UUID.class), eq(userId), eq(true),
+                eq("new_email@abv.bg"), any(LocalDateTime.class));
+        verify(emailPreferenceCache).invalidate(userId);
+        verify(emailPreferenceRepository, never()).findByUserId(userId);
+        verify(emailPreferenceRepository, never()).save(any(EmailPreference.class));
     }
 
     @Test
@@ -210,5 +242,459 @@ public class EmailServiceUTest {
         verify(mailSender).send(simpleMailMessage);
         verify(emailRepository).save(any(Email.class));
     }
-}
 
+    @Test
+    void whenQueueEmail_thenPersistQueuedWithOutboxEntry() {
+        UUID userId = UUID.randomUUID();
+        UUID emailId = UUID.randomUUID();
+        EmailPreference userPreference = new EmailPreference();
+        userPreference.setUserId(userId);
+        userPreference.setContactEmail("user@abv.bg");
+        userPreference.setEnabled(true);
+
+        when(emailPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(userPreference));
+        when(emailRepository.save(any(Email.class))).thenAnswer(invocation -> {
+            Email email = invocation.getArgument(0);
+            email.setId(emailId);
+            return email;
+        });
+
+        EmailRequest emailRequest = new EmailRequest();
+        emailRequest.setUserId(userId);
+        emailRequest.setSubject("Subject");
+        emailRequest.setBody("Body");
+
+        Email result = emailService.queueEmail(emailRequest);
+
+        assertEquals(EmailStatus.QUEUED, result.getStatus());
+        assertEquals(emailId, result.getId());
+        verify(outboxEventRepository).save(argThat((OutboxEvent event) -> emailId.equals(event.getEmailId())
+                && event.getPriority() == EmailPriority.NORMAL));
+        verifyNoInteractions(priorityLaneExecutor);
+        verifyNoInteractions(mailSender);
+    }
+
+    @Test
+    void whenDeliverQueuedEmail_alreadyClaimed_thenDoNothing() {
+        UUID emailId = UUID.randomUUID();
+
+        when(emailRepository.claimForSending(eq(emailId), any(LocalDateTime.class))).thenReturn(0);
+
+        emailService.deliverQueuedEmail(emailId);
+
+        verify(emailRepository, never()).findById(emailId);
+        verifyNoInteractions(mailSender);
+    }
+
+    @Test
+    void whenDeliverQueuedEmail_claimed_thenSendAndMarkSucceeded() {
+        UUID userId = UUID.randomUUID();
+        UUID emailId = UUID.randomUUID();
+        EmailPreference userPreference = new EmailPreference();
+        userPreference.setUserId(userId);
+        userPreference.setContactEmail("user@abv.bg");
+        userPreference.setEnabled(true);
+
+        Email email = Email.builder()
+                .id(emailId)
+                .userId(userId)
+                .subject("Subject")
+                .body("Body")
+                .status(EmailStatus.QUEUED)
+                .build();
+
+        when(emailRepository.claimForSending(eq(emailId), any(LocalDateTime.class))).thenReturn(1);
+        when(emailRepository.findById(emailId)).thenReturn(Optional.of(email));
+        when(emailPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(userPreference));
+
+        emailService.deliverQueuedEmail(emailId);
+
+        assertEquals(EmailStatus.SUCCEEDED, email.getStatus());
+        verify(mailSender).send(any(SimpleMailMessage.class));
+        verify(emailDeliveryStateWriter).write(emailId, EmailStatus.SUCCEEDED, 1, null);
+    }
+
+    @Test
+    void whenDispatch_thenRatePermitIsAcquiredBeforeLaneSlot() {
+        UUID userId = UUID.randomUUID();
+        UUID emailId = UUID.randomUUID();
+        EmailPreference userPreference = new EmailPreference();
+        userPreference.setUserId(userId);
+        userPreference.setContactEmail("user@abv.bg");
+        userPreference.setEnabled(true);
+
+        Email email = Email.builder()
+                .id(emailId)
+                .userId(userId)
+                .subject("Subject")
+                .body("Body")
+                .status(EmailStatus.QUEUED)
+                .build();
+
+        when(emailRepository.claimForSending(eq(emailId), any(LocalDateTime.class))).thenReturn(1);
+        when(emailRepository.findById(emailId)).thenReturn(Optional.of(email));
+        when(emailPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(userPreference));
+        doAnswer(invocation -> {
+            assertEquals(0, priorityLaneExecutor.active(EmailPriority.NORMAL));
+            return true;
+        }).when(sendRateLimiter).acquire("user@abv.bg");
+
+        emailService.dispatch(emailId, EmailPriority.NORMAL);
+
+        assertEquals(EmailStatus.SUCCEEDED, email.getStatus());
+        verify(mailSender).send(any(SimpleMailMessage.class));
+        verify(emailDeliveryStateWriter).write(emailId, EmailStatus.SUCCEEDED, 1, null);
+    }
+
+    @Test
+    void whenDeliverQueuedEmail_preferenceIsGone_thenRecordFailedAttempt() {
+        UUID userId = UUID.randomUUID();
+        UUID emailId = UUID.randomUUID();
+
+        Email email = Email.builder()
+                .id(emailId)
+                .userId(userId)
+                .subject("Subject")
+                .body("Body")
+                .status(EmailStatus.QUEUED)
+                .build();
+
+        when(emailRepository.claimForSending(eq(emailId), any(LocalDateTime.class))).thenReturn(1);
+        when(emailRepository.findById(emailId)).thenReturn(Optional.of(email));
+        when(emailPreferenceRepository.findByUserId(userId)).thenReturn(Optional.empty());
+
+        emailService.deliverQueuedEmail(emailId);
+
+        assertEquals(EmailStatus.FAILED, email.getStatus());
+        verifyNoInteractions(mailSender);
+        verify(emailDeliveryStateWriter).write(eq(emailId), eq(EmailStatus.FAILED), eq(1), any(LocalDateTime.class));
+    }
+
+    @Test
+    void whenRecoverAbandoned_stillSending_thenRecordFailedAttempt() {
+        UUID emailId = UUID.randomUUID();
+
+        Email email = Email.builder()
+                .id(emailId)
+                .status(EmailStatus.SENDING)
+                .attempts(1)
+                .build();
+
+        when(emailRepository.findById(emailId)).thenReturn(Optional.of(email));
+
+        emailService.recoverAbandoned(emailId);
+
+        verify(emailRepository).updateDeliveryStateIfSending(
+                eq(emailId), eq(EmailStatus.FAILED), eq(2), any(LocalDateTime.class));
+    }
+
+    @Test
+    void whenRecoverAbandoned_alreadyFinished_thenDoNothing() {
+        UUID emailId = UUID.randomUUID();
+
+        when(emailRepository.findById(emailId)).thenReturn(Optional.of(Email.builder()
+                .id(emailId)
+                .status(EmailStatus.SUCCEEDED)
+                .build()));
+
+        emailService.recoverAbandoned(emailId);
+
+        verify(emailRepository, never()).updateDeliveryStateIfSending(any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void whenSendBatch_thenReportPerRecipientStatus() {
+        UUID enabledUser = UUID.randomUUID();
+        UUID failingUser = UUID.randomUUID();
+        UUID disabledUser = UUID.randomUUID();
+        UUID unknownUser = UUID.randomUUID();
+
+        EmailPreference enabledPreference = EmailPreference.builder()
+                .userId(enabledUser).contactEmail("ok@abv.bg").isEnabled(true).build();
+        EmailPreference failingPreference = EmailPreference.builder()
+                .userId(failingUser).contactEmail("bounce@abv.bg").isEnabled(true).build();
+        EmailPreference disabledPreference = EmailPreference.builder()
+                .userId(disabledUser).contactEmail("off@abv.bg").isEnabled(false).build();
+
+        when(emailPreferenceRepository.findByUserIdIn(anyCollection()))
+                .thenReturn(List.of(enabledPreference, failingPreference, disabledPreference));
+
+        doAnswer(invocation -> {
+            SimpleMailMessage message = invocation.getArgument(0);
+            if ("bounce@abv.bg".equals(message.getTo()[0])) {
+                throw new MailSendException("550 mailbox unavailable");
+            }
+            return null;
+        }).when(mailSender).send(any(SimpleMailMessage.class));
+
+        BatchEmailRequest batchEmailRequest = new BatchEmailRequest();
+        batchEmailRequest.setUserIds(List.of(enabledUser, failingUser, disabledUser, unknownUser));
+        batchEmailRequest.setSubject("Subject");
+        batchEmailRequest.setBody("Body");
+
+        List<BatchSendResult> results = emailService.sendBatch(batchEmailRequest);
+
+        assertEquals(4, results.size());
+        assertEquals(EmailStatus.SUCCEEDED, results.get(0).email().getStatus());
+        assertEquals(EmailStatus.FAILED, results.get(1).email().getStatus());
+        assertNull(results.get(2).email());
+        assertNotNull(results.get(2).error());
+        assertNull(results.get(3).email());
+        assertNotNull(results.get(3).error());
+
+        verify(emailPreferenceRepository, never()).findByUserId(any());
+        verify(mailSender, times(2)).send(any(SimpleMailMessage.class));
+        verify(emailRepository).saveAll(argThat(emails -> ((List<Email>) emails).size() == 2));
+        verify(emailRepository).markAttempted(anyCollection(), eq(EmailStatus.SUCCEEDED));
+        verify(emailDeliveryStateWriter, times(1)).write(any(), eq(EmailStatus.FAILED), eq(1), any());
+    }
+
+    @Test
+    void whenSendBatchLosesLeaseOfUnsentEmail_thenItIsSkippedAndNotMarkedSucceeded() {
+        UUID firstUser = UUID.randomUUID();
+        UUID secondUser = UUID.randomUUID();
+        UUID firstEmailId = UUID.randomUUID();
+        UUID secondEmailId = UUID.randomUUID();
+
+        // Renews before every email.
+        emailDispatchProperties.setSendingLease(Duration.ZERO);
+
+        when(emailPreferenceRepository.findByUserIdIn(anyCollection())).thenReturn(List.of(
+                EmailPreference.builder().userId(firstUser).contactEmail("first@abv.bg").isEnabled(true).build(),
+                EmailPreference.builder().userId(secondUser).contactEmail("second@abv.bg").isEnabled(true).build()));
+        doAnswer(invocation -> {
+            List<Email> emails = invocation.getArgument(0);
+            emails.get(0).setId(firstEmailId);
+            emails.get(1).setId(secondEmailId);
+            return emails;
+        }).when(emailRepository).saveAll(anyList());
+        when(emailRepository.renewLease(anyCollection(), any(LocalDateTime.class))).thenReturn(2, 0);
+        when(emailRepository.findAllById(List.of(secondEmailId))).thenReturn(List.of(Email.builder()
+                .id(secondEmailId)
+                .status(EmailStatus.FAILED)
+                .attempts(1)
+                .build()));
+
+        BatchEmailRequest batchEmailRequest = new BatchEmailRequest();
+        batchEmailRequest.setUserIds(List.of(firstUser, secondUser));
+        batchEmailRequest.setSubject("Subject");
+        batchEmailRequest.setBody("Body");
+
+        List<BatchSendResult> results = emailService.sendBatch(batchEmailRequest);
+
+        assertEquals(EmailStatus.SUCCEEDED, results.get(0).email().getStatus());
+        assertEquals(EmailStatus.FAILED, results.get(1).email().getStatus());
+        assertEquals(1, results.get(1).email().getAttempts());
+        verify(mailSender, times(1)).send(any(SimpleMailMessage.class));
+        verify(emailRepository).markAttempted(List.of(firstEmailId), EmailStatus.SUCCEEDED);
+        verify(emailDeliveryStateWriter, never()).write(eq(secondEmailId), any(), anyInt(), any());
+    }
+
+    @Test
+    void whenGetPreferenceTwice_thenRepositoryQueriedOnce() {
+        UUID userId = UUID.randomUUID();
+        EmailPreference emailPreference = EmailPreference.builder()
+                .userId(userId)
+                .contactEmail("user@abv.bg")
+                .isEnabled(true)
+                .build();
+
+        when(emailPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(emailPreference));
+
+        emailService.getPreferenceByUserId(userId);
+        EmailPreference cachedPreference = emailService.getPreferenceByUserId(userId);
+
+        assertSame(emailPreference, cachedPreference);
+        verify(emailPreferenceRepository, times(1)).findByUserId(userId);
+    }
+
+    @Test
+    void whenChangePreference_thenCachedPreferenceIsInvalidated() {
+        UUID userId = UUID.randomUUID();
+        EmailPreference emailPreference = EmailPreference.builder()
+                .userId(userId)
+                .contactEmail("user@abv.bg")
+                .isEnabled(true)
+                .build();
+
+        when(emailPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(emailPreference));
+        when(emailPreferenceRepository.updateEnabledByUserId(eq(userId), eq(false), any(LocalDateTime.class)))
+                .thenReturn(1);
+        when(emailPreferenceRepository.findDetachedByUserId(userId)).thenReturn(Optional.of(emailPreference));
+
+        emailService.getPreferenceByUserId(userId);
+        emailService.changePreference(userId, false);
+        emailService.getPreferenceByUserId(userId);
+
+        verify(emailPreferenceCache).invalidate(userId);
+        verify(emailPreferenceRepository, times(2)).findByUserId(userId);
+    }
+
+    @Test
+    void whenRateLimiterRejects_thenEmailIsRequeuedWithoutCountingAnAttempt() {
+        UUID userId = UUID.randomUUID();
+        EmailPreference userPreference = new EmailPreference();
+        userPreference.setUserId(userId);
+        userPreference.setContactEmail("user@abv.bg");
+        userPreference.setEnabled(true);
+
+        when(emailPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(userPreference));
+        doReturn(false).when(sendRateLimiter).acquire("user@abv.bg");
+        when(emailRepository.save(any(Email.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        EmailRequest emailRequest = new EmailRequest();
+        emailRequest.setUserId(userId);
+        emailRequest.setSubject("Subject");
+        emailRequest.setBody("Body");
+
+        Email result = emailService.sendEmail(emailRequest);
+
+        assertEquals(EmailStatus.QUEUED, result.getStatus());
+        assertEquals(0, result.getAttempts());
+        assertNotNull(result.getNextAttemptAt());
+        verifyNoInteractions(mailSender);
+        verify(priorityLaneExecutor, never()).executeAndWait(any(), any());
+        verify(emailDeliveryStateWriter).write(any(), eq(EmailStatus.QUEUED), eq(0), any(LocalDateTime.class));
+    }
+
+    @Test
+    void whenSendEmail_thenRecordOutcomeAndStageTimings() {
+        UUID userId = UUID.randomUUID();
+        EmailPreference userPreference = new EmailPreference();
+        userPreference.setUserId(userId);
+        userPreference.setContactEmail("user@gmail.com");
+        userPreference.setEnabled(true);
+
+        when(emailPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(userPreference));
+        when(emailRepository.save(any(Email.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        EmailRequest emailRequest = new EmailRequest();
+        emailRequest.setUserId(userId);
+        emailRequest.setSubject("Subject");
+        emailRequest.setBody("Body");
+
+        emailService.sendEmail(emailRequest);
+
+        verify(emailMetrics).recordOutcome(EmailStatus.SUCCEEDED, "user@gmail.com");
+        verify(emailMetrics).time(eq(EmailMetrics.Stage.SMTP), any());
+        verify(emailMetrics, times(2)).time(eq(EmailMetrics.Stage.PERSIST), any());
+    }
+
+    @Test
+    void whenSendEmail_thenPersistBeforeSendingAndUpdateStatusAfter() {
+        UUID userId = UUID.randomUUID();
+        UUID emailId = UUID.randomUUID();
+        EmailPreference userPreference = new EmailPreference();
+        userPreference.setUserId(userId);
+        userPreference.setContactEmail("user@abv.bg");
+        userPreference.setEnabled(true);
+
+        when(emailPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(userPreference));
+        when(emailRepository.save(any(Email.class))).thenAnswer(invocation -> {
+            Email email = invocation.getArgument(0);
+            assertEquals(EmailStatus.SENDING, email.getStatus());
+            email.setId(emailId);
+            return email;
+        });
+
+        EmailRequest emailRequest = new EmailRequest();
+        emailRequest.setUserId(userId);
+        emailRequest.setSubject("Subject");
+        emailRequest.setBody("Body");
+
+        Email result = emailService.sendEmail(emailRequest);
+
+        assertEquals(EmailStatus.SUCCEEDED, result.getStatus());
+        var inOrder = inOrder(emailRepository, mailSender, emailDeliveryStateWriter);
+        inOrder.verify(emailRepository).save(any(Email.class));
+        inOrder.verify(mailSender).send(any(SimpleMailMessage.class));
+        inOrder.verify(emailDeliveryStateWriter).write(emailId, EmailStatus.SUCCEEDED, 1, null);
+    }
+
+    @Test
+    void whenSendEmail_laneIsFull_thenFailWithoutSendingAndScheduleRetry() {
+        UUID userId = UUID.randomUUID();
+        UUID emailId = UUID.randomUUID();
+        EmailPreference userPreference = new EmailPreference();
+        userPreference.setUserId(userId);
+        userPreference.setContactEmail("user@abv.bg");
+        userPreference.setEnabled(true);
+
+        when(emailPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(userPreference));
+        when(emailRepository.save(any(Email.class))).thenAnswer(invocation -> {
+            Email email = invocation.getArgument(0);
+            email.setId(emailId);
+            return email;
+        });
+        doThrow(new TaskRejectedException("full"))
+                .when(priorityLaneExecutor).executeAndWait(eq(EmailPriority.HIGH), any(Runnable.class));
+
+        EmailRequest emailRequest = new EmailRequest();
+        emailRequest.setUserId(userId);
+        emailRequest.setSubject("Subject");
+        emailRequest.setBody("Body");
+        emailRequest.setPriority(EmailPriority.HIGH);
+
+        Email result = emailService.sendEmail(emailRequest);
+
+        assertEquals(EmailStatus.FAILED, result.getStatus());
+        assertEquals(EmailPriority.HIGH, result.getPriority());
+        assertNotNull(result.getNextAttemptAt());
+        verifyNoInteractions(mailSender);
+    }
+
+    @Test
+    void whenSendTemplatedEmail_thenStoreTemplateReferenceAndSendRenderedBody() {
+        UUID userId = UUID.randomUUID();
+        EmailPreference userPreference = new EmailPreference();
+        userPreference.setUserId(userId);
+        userPreference.setContactEmail("user@abv.bg");
+        userPreference.setEnabled(true);
+
+        when(emailPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(userPreference));
+        CompiledEmailTemplate template = CompiledEmailTemplate.compile(EmailTemplate.builder()
+                .name("welcome")
+                .version(3)
+                .subject("Welcome, {{name}}")
+                .body("Your code is {{code}}.")
+                .build());
+        when(emailTemplateService.resolve("welcome", null)).thenReturn(template);
+        when(emailTemplateService.resolve("welcome", 3)).thenReturn(template);
+        when(emailRepository.save(any(Email.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        EmailRequest emailRequest = new EmailRequest();
+        emailRequest.setUserId(userId);
+        emailRequest.setTemplateId("welcome");
+        emailRequest.setParams(Map.of("name", "Ana", "code", "42"));
+
+        Email result = emailService.sendEmail(emailRequest);
+
+        assertEquals("Welcome, Ana", result.getSubject());
+        assertNull(result.getBody());
+        assertEquals(3, result.getTemplateVersion());
+
+        SimpleMailMessage expectedMessage = new SimpleMailMessage();
+        expectedMessage.setTo("user@abv.bg");
+        expectedMessage.setSubject("Welcome, Ana");
+        expectedMessage.setText("Your code is 42.");
+        verify(mailSender).send(expectedMessage);
+    }
+
+    @Test
+    void whenSendEmail_withoutTemplateOrBody_thenThrowsBeforePersisting() {
+        UUID userId = UUID.randomUUID();
+        EmailPreference userPreference = new EmailPreference();
+        userPreference.setUserId(userId);
+        userPreference.setContactEmail("user@abv.bg");
+        userPreference.setEnabled(true);
+
+        when(emailPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(userPreference));
+
+        EmailRequest emailRequest = new EmailRequest();
+        emailRequest.setUserId(userId);
+        emailRequest.setSubject("Subject");
+
+        assertThrows(IllegalArgumentException.class, () -> emailService.sendEmail(emailRequest));
+        verify(emailRepository, never()).save(any(Email.class));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.emails.service;
+
+import com.example.emails.config.EmailTemplateProperties;
+import com.example.emails.model.EmailTemplate;
+import com.example.emails.repository.EmailTemplateRepository;
+import com.example.emails.web.dto.TemplateRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EmailTemplateServiceUTest {
+
+    @Mock
+    private EmailTemplateRepository emailTemplateRepository;
+
+    private EmailTemplateService emailTemplateService;
+
+    @BeforeEach
+    void setUp() {
+        emailTemplateService = new EmailTemplateService(emailTemplateRepository, new EmailTemplateProperties());
+    }
+
+    @Test
+    void createTemplate_existingName_storesNextVersion() {
+        when(emailTemplateRepository.findFirstByNameOrderByVersionDesc("welcome"))
+                .thenReturn(Optional.of(template("welcome", 2, "Hi", "Hello")));
+        when(emailTemplateRepository.save(any(EmailTemplate.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        EmailTemplate created = emailTemplateService.createTemplate(request("welcome", "Hi {{name}}", "Hello"));
+
+        assertEquals(3, created.getVersion());
+        assertEquals(3, emailTemplateService.resolve("welcome", null).version());
+    }
+
+    @Test
+    void createTemplate_unclosedPlaceholder_throws() {
+        TemplateRequest templateRequest = request("broken", "Hi {{name", "Hello");
+
+        assertThrows(IllegalArgumentException.class, () -> emailTemplateService.createTemplate(templateRequest));
+        verify(emailTemplateRepository, never()).save(any());
+    }
+
+    @Test
+    void resolve_compilesOncePerVersion() {
+        when(emailTemplateRepository.findByNameAndVersion("welcome", 1))
+                .thenReturn(Optional.of(template("welcome", 1, "Hi {{ name }}", "Your code is {{code}}.")));
+
+        CompiledEmailTemplate first = emailTemplateService.resolve("welcome", 1);
+        CompiledEmailTemplate second = emailTemplateService.resolve("welcome", 1);
+
+        assertSame(first, second);
+        assertEquals("Hi Ana", first.renderSubject(Map.of("name", "Ana")));
+        assertEquals("Your code is 42.", first.renderBody(Map.of("code", "42")));
+        verify(emailTemplateRepository, times(1)).findByNameAndVersion("welcome", 1);
+    }
+
+    @Test
+    void resolve_unknownTemplate_throws() {
+        when(emailTemplateRepository.findFirstByNameOrderByVersionDesc("missing")).thenReturn(Optional.empty());
+
+        assertThrows(NullPointerException.class, () -> emailTemplateService.resolve("missing", null));
+    }
+
+    @Test
+    void checkParams_missingParameter_throws() {
+        when(emailTemplateRepository.findByNameAndVersion("welcome", 1))
+                .thenReturn(Optional.of(template("welcome", 1, "Hi {{name}}", "{{code}}")));
+
+        CompiledEmailTemplate template = emailTemplateService.resolve("welcome", 1);
+
+        IllegalArgumentException exception =
+                assertThrows(IllegalArgumentException.class, () -> template.checkParams(Map.of("name", "Ana")));
+        assertTrue(exception.getMessage().contains("code"));
+    }
+
+    private static EmailTemplate template(String name, int version, String subject, String body) {
+        return EmailTemplate.builder()
+                .name(name)
+                .version(version)
+                .subject(subject)
+                .body(body)
+                .build();
+    }
+
+    private static TemplateRequest request(String name, String subject, String body) {
+        TemplateRequest templateRequest = new TemplateRequest();
+        templateRequest.setName(name);
+        templateRequest.setSubject(subject);
+        templateRequest.setBody(body);
+        return templateRequest;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.emails.service;
+
+import com.example.emails.config.OutboxProperties;
+import com.example.emails.model.Email;
+import com.example.emails.model.EmailPriority;
+import com.example.emails.model.OutboxEvent;
+import com.example.emails.repository.EmailRepository;
+import com.example.emails.repository.OutboxEventRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OutboxRelayUTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private EmailRepository emailRepository;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private ObjectProvider<KafkaTemplate<String, String>> kafkaTemplateProvider;
+
+    @Mock
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    private final OutboxProperties properties = new OutboxProperties();
+
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+        outboxRelay = new OutboxRelay(outboxEventRepository, emailRepository, emailService, properties,
+                transactionTemplate, kafkaTemplateProvider, objectMapper);
+    }
+
+    @Test
+    void whenOutboxHasEvents_thenDeleteAndDispatch() {
+        UUID emailId = UUID.randomUUID();
+        OutboxEvent event = OutboxEvent.builder()
+                .id(UUID.randomUUID())
+                .emailId(emailId)
+                .createdOn(LocalDateTime.now())
+                .build();
+
+        when(outboxEventRepository.findBatchForUpdateSkipLocked(any())).thenReturn(List.of(event));
+
+        outboxRelay.relay();
+
+        verify(outboxEventRepository).deleteAllInBatch(List.of(event));
+        verify(emailService).dispatch(emailId, EmailPriority.NORMAL);
+        verifyNoInteractions(kafkaTemplateProvider);
+    }
+
+    @Test
+    void whenPublishingToKafka_thenPublishBeforeDeleting() {
+        properties.setPublishToKafka(true);
+        UUID emailId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        OutboxEvent event = OutboxEvent.builder()
+                .id(UUID.randomUUID())
+                .emailId(emailId)
+                .createdOn(LocalDateTime.now())
+                .build();
+        Email email = Email.builder()
+                .id(emailId)
+                .userId(userId)
+                .subject("Subject")
+                .createdOn(LocalDateTime.now())
+                .build();
+
+        when(outboxEventRepository.findBatchForUpdateSkipLocked(any())).thenReturn(List.of(event));
+        when(emailRepository.findAllById(List.of(emailId))).thenReturn(List.of(email));
+        when(kafkaTemplateProvider.getObject()).thenReturn(kafkaTemplate);
+        when(kafkaTemplate.send(eq("email.events"), eq(userId.toString()), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        outboxRelay.relay();
+
+        var inOrder = inOrder(kafkaTemplate, outboxEventRepository, emailService);
+        inOrder.verify(kafkaTemplate).send(eq("email.events"), eq(userId.toString()), contains(emailId.toString()));
+        inOrder.verify(outboxEventRepository).deleteAllInBatch(List.of(event));
+        inOrder.verify(emailService).dispatch(emailId, EmailPriority.NORMAL);
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.emails.service;
+
+import com.example.emails.config.EmailDispatchProperties;
+import com.example.emails.model.EmailPriority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PriorityLaneExecutorUTest {
+
+    /**
+     * Collects submitted tasks so the test decides when each one runs.
+     */
+    private final List<Runnable> submitted = new ArrayList<>();
+
+    @Test
+    void whenLanesCompete_thenSlotsFollowWeights() {
+        PriorityLaneExecutor executor = newExecutor(1, Map.of(
+                EmailPriority.HIGH, new EmailDispatchProperties.Lane(3, 1, 100),
+                EmailPriority.NORMAL, new EmailDispatchProperties.Lane(1, 1, 100),
+                EmailPriority.LOW, new EmailDispatchProperties.Lane(1, 1, 100)));
+        List<String> ran = new ArrayList<>();
+
+        executor.execute(EmailPriority.LOW, () -> ran.add("blocker"));
+        for (int i = 0; i < 4; i++) {
+            executor.execute(EmailPriority.LOW, () -> ran.add("low"));
+            executor.execute(EmailPriority.HIGH, () -> ran.add("high"));
+        }
+
+        runAll();
+
+        assertEquals(List.of("blocker", "high", "high", "low", "high", "high", "low", "low", "low"), ran);
+    }
+
+    @Test
+    void whenLaneReachesMaxConcurrency_thenOtherLanesStillRun() {
+        PriorityLaneExecutor executor = newExecutor(4, Map.of(
+                EmailPriority.HIGH, new EmailDispatchProperties.Lane(1, 4, 100),
+                EmailPriority.NORMAL, new EmailDispatchProperties.Lane(1, 4, 100),
+                EmailPriority.LOW, new EmailDispatchProperties.Lane(1, 1, 100)));
+
+        for (int i = 0; i < 3; i++) {
+            executor.execute(EmailPriority.LOW, () -> {
+            });
+        }
+        executor.execute(EmailPriority.HIGH, () -> {
+        });
+
+        assertEquals(2, submitted.size());
+        assertEquals(1, executor.active(EmailPriority.LOW));
+        assertEquals(2, executor.queued(EmailPriority.LOW));
+        assertEquals(1, executor.active(EmailPriority.HIGH));
+    }
+
+    @Test
+    void whenLaneIsFull_thenReject() {
+        PriorityLaneExecutor executor = newExecutor(1, Map.of(
+                EmailPriority.HIGH, new EmailDispatchProperties.Lane(1, 1, 1),
+                EmailPriority.NORMAL, new EmailDispatchProperties.Lane(1, 1, 1),
+                EmailPriority.LOW, new EmailDispatchProperties.Lane(1, 1, 1)));
+
+        executor.execute(EmailPriority.NORMAL, () -> {
+        });
+        executor.execute(EmailPriority.NORMAL, () -> {
+        });
+
+        assertThrows(TaskRejectedException.class, () -> executor.execute(EmailPriority.NORMAL, () -> {
+        }));
+    }
+
+    @Test
+    void whenExecuteAndWait_thenRethrowTaskFailure() {
+        PriorityLaneExecutor executor = new PriorityLaneExecutor(new SyncTaskExecutor(), new SyncTaskExecutor(),
+                new EmailDispatchProperties(), new SimpleMeterRegistry());
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+                executor.executeAndWait(EmailPriority.HIGH, () -> {
+                    throw new IllegalStateException("boom");
+                }));
+
+        assertEquals("boom", exception.getMessage());
+        assertEquals(0, executor.active(EmailPriority.HIGH));
+    }
+
+    @Test
+    void whenTaskWaitsBeforeSlot_thenSlotStaysFreeForOthers() {
+        PriorityLaneExecutor executor = newExecutor(1, Map.of(
+                EmailPriority.HIGH, new EmailDispatchProperties.Lane(1, 1, 100),
+                EmailPriority.NORMAL, new EmailDispatchProperties.Lane(1, 1, 2),
+                EmailPriority.LOW, new EmailDispatchProperties.Lane(1, 1, 100)));
+        List<String> ran = new ArrayList<>();
+
+        executor.executeWhenReady(EmailPriority.NORMAL, () -> () -> ran.add("normal"));
+        executor.execute(EmailPriority.HIGH, () -> ran.add("high"));
+
+        assertEquals(1, executor.active(EmailPriority.HIGH));
+        assertEquals(0, executor.queued(EmailPriority.NORMAL));
+
+        executor.execute(EmailPriority.NORMAL, () -> ran.add("normal"));
+        assertThrows(TaskRejectedException.class, () -> executor.execute(EmailPriority.NORMAL, () -> {
+        }));
+
+        runAll();
+
+        assertEquals(List.of("high", "normal", "normal"), ran);
+    }
+
+    @Test
+    void whenTaskWaitsBeforeSlot_thenItWaitsOnPrepareExecutor() {
+        List<Runnable> prepared = new ArrayList<>();
+        PriorityLaneExecutor executor = new PriorityLaneExecutor(
+                submitted::add, prepared::add, new EmailDispatchProperties(), new SimpleMeterRegistry());
+        List<String> ran = new ArrayList<>();
+
+        executor.executeWhenReady(EmailPriority.LOW, () -> () -> ran.add("low"));
+
+        assertEquals(1, prepared.size());
+        assertTrue(submitted.isEmpty());
+
+        prepared.get(0).run();
+        runAll();
+
+        assertEquals(List.of("low"), ran);
+    }
+
+    @Test
+    void whenDispatchExecutorRejects_thenTaskIsRetriedOnTimer() throws InterruptedException {
+        EmailDispatchProperties properties = new EmailDispatchProperties();
+        properties.setRejectedRetryDelay(Duration.ofMillis(10));
+        AtomicBoolean rejected = new AtomicBoolean();
+        TaskExecutor rejectingOnce = task -> {
+            if (rejected.compareAndSet(false, true)) {
+                throw new TaskRejectedException("Pool is full.");
+            }
+            task.run();
+        };
+        PriorityLaneExecutor executor =
+                new PriorityLaneExecutor(rejectingOnce, submitted::add, properties, new SimpleMeterRegistry());
+        CountDownLatch ran = new CountDownLatch(1);
+
+        executor.execute(EmailPriority.HIGH, ran::countDown);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        executor.destroy();
+    }
+
+    @Test
+    void whenSlotIsNotFreedInTime_thenExecuteAndWaitGivesUp() {
+        EmailDispatchProperties properties = new EmailDispatchProperties();
+        properties.setMaxInFlight(1);
+        properties.setLaneWaitTimeout(Duration.ofMillis(10));
+        PriorityLaneExecutor executor =
+                new PriorityLaneExecutor(submitted::add, submitted::add, properties, new SimpleMeterRegistry());
+        List<String> ran = new ArrayList<>();
+
+        executor.execute(EmailPriority.HIGH, () -> ran.add("blocker"));
+
+        assertThrows(TaskRejectedException.class, () ->
+                executor.executeAndWait(EmailPriority.HIGH, () -> ran.add("waiting")));
+
+        runAll();
+
+        assertEquals(List.of("blocker"), ran);
+        assertEquals(0, executor.active(EmailPriority.HIGH));
+    }
+
+    private PriorityLaneExecutor newExecutor(int maxInFlight, Map<EmailPriority, EmailDispatchProperties.Lane> lanes) {
+        EmailDispatchProperties properties = new EmailDispatchProperties();
+        properties.setMaxInFlight(maxInFlight);
+        properties.setLanes(lanes);
+        return new PriorityLaneExecutor(submitted::add, submitted::add, properties, new SimpleMeterRegistry());
+    }
+
+    private void runAll() {
+        for (int i = 0; i < submitted.size(); i++) {
+            submitted.get(i).run();
+        }
+    }
+}
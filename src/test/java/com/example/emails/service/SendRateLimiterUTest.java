@@ -0,0 +1,73 @@
+package com.example.emails.service;
+
+import com.example.emails.config.RateLimitProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SendRateLimiterUTest {
+
+    @Test
+    void tokenBucket_allowsBurstThenPacesAtRate() {
+        long now = 0;
+        TokenBucket bucket = new TokenBucket(10, 2, now);
+        long maxWait = TimeUnit.SECONDS.toNanos(1);
+
+        assertEquals(0, bucket.reserve(now, maxWait));
+        assertEquals(0, bucket.reserve(now, maxWait));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), bucket.reserve(now, maxWait));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), bucket.reserve(now, maxWait));
+    }
+
+    @Test
+    void tokenBucket_rejectsWithoutReservingWhenWaitTooLong() {
+        long now = 0;
+        TokenBucket bucket = new TokenBucket(1, 1, now);
+
+        assertEquals(0, bucket.reserve(now, 0));
+        assertEquals(-1, bucket.reserve(now, 0));
+        assertEquals(TimeUnit.SECONDS.toNanos(1), bucket.reserve(now, TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    @Test
+    void whenDomainLimitExhausted_thenOtherDomainsStillAllowed() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setMaxWait(Duration.ZERO);
+        properties.getDomains().put("gmail.com", new RateLimitProperties.Limit(1, 1));
+        SendRateLimiter limiter = new SendRateLimiter(properties);
+
+        assertTrue(limiter.acquire("first@gmail.com"));
+        assertFalse(limiter.acquire("second@GMAIL.com"));
+        assertTrue(limiter.acquire("user@abv.bg"));
+    }
+
+    @Test
+    void whenGlobalLimitExhausted_thenAllDomainsRejected() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setMaxWait(Duration.ZERO);
+        properties.setGlobal(new RateLimitProperties.Limit(1, 1));
+        SendRateLimiter limiter = new SendRateLimiter(properties);
+
+        assertTrue(limiter.acquire("user@abv.bg"));
+        assertFalse(limiter.acquire("user@gmail.com"));
+    }
+
+    @Test
+    void whenGlobalLimitRejects_thenDomainPermitIsGivenBack() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setMaxWait(Duration.ZERO);
+        properties.setGlobal(new RateLimitProperties.Limit(1, 1));
+        properties.getDomains().put("gmail.com", new RateLimitProperties.Limit(0.5, 1));
+        SendRateLimiter limiter = new SendRateLimiter(properties);
+        long now = System.nanoTime();
+
+        assertEquals(0, limiter.reserve("user@abv.bg", now));
+        assertEquals(-1, limiter.reserve("user@gmail.com", now));
+
+        // The global bucket has refilled, and the gmail.com token was never spent.
+        assertEquals(0, limiter.reserve("user@gmail.com", now + TimeUnit.SECONDS.toNanos(1)));
+    }
+}
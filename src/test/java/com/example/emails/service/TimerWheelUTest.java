@@ -0,0 +1,73 @@
+package com.example.emails.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimerWheelUTest {
+
+    private static final long START = 1_000_000;
+
+    @Test
+    void advance_firesEntriesInDeadlineOrderWithinOneTick() {
+        TimerWheel<String> timerWheel = new TimerWheel<>(100, 8, START);
+        timerWheel.add(START + 350, "b");
+        timerWheel.add(START + 120, "a");
+        timerWheel.add(START + 790, "c");
+
+        List<String> fired = new ArrayList<>();
+
+        timerWheel.advance(START + 300, fired::add);
+        assertEquals(List.of("a"), fired);
+
+        timerWheel.advance(START + 400, fired::add);
+        assertEquals(List.of("a", "b"), fired);
+
+        timerWheel.advance(START + 900, fired::add);
+        assertEquals(List.of("a", "b", "c"), fired);
+        assertEquals(0, timerWheel.size());
+    }
+
+    @Test
+    void advance_farDeadlines_cascadeDownAndNeverFireEarly() {
+        TimerWheel<Long> timerWheel = new TimerWheel<>(100, 8, START);
+        List<Long> deadlines = List.of(START + 850, START + 6_399, START + 6_400, START + 51_234, START + 800_000);
+        deadlines.forEach(deadline -> assertTrue(timerWheel.add(deadline, deadline)));
+
+        List<long[]> fired = new ArrayList<>();
+
+        for (long now = START; now <= START + 801_000; now += 100) {
+            long firedAt = now;
+            timerWheel.advance(now, deadline -> fired.add(new long[]{deadline, firedAt}));
+        }
+
+        assertEquals(deadlines.size(), fired.size());
+        for (long[] entry : fired) {
+            assertTrue(entry[1] >= entry[0], "fired before its deadline");
+            assertTrue(entry[1] - entry[0] <= 100, "fired more than one tick late");
+        }
+    }
+
+    @Test
+    void add_pastDeadline_isRejected() {
+        TimerWheel<String> timerWheel = new TimerWheel<>(100, 8, START);
+        timerWheel.advance(START + 500, item -> fail());
+
+        assertFalse(timerWheel.add(START + 100, "late"));
+        assertEquals(0, timerWheel.size());
+    }
+
+    @Test
+    void drain_returnsAndRemovesAllPendingEntries() {
+        TimerWheel<String> timerWheel = new TimerWheel<>(100, 8, START);
+        timerWheel.add(START + 200, "near");
+        timerWheel.add(START + 90_000, "far");
+
+        assertEquals(Set.of("near", "far"), Set.copyOf(timerWheel.drain()));
+        assertEquals(0, timerWheel.size());
+    }
+}
@@ -3,27 +3,51 @@ package com.example.emails.web;
 import com.example.emails.model.Email;
 import com.example.emails.model.EmailPreference;
 import com.example.emails.model.EmailStatus;
+import com.example.emails.model.EmailTemplate;
 import com.example.emails.repository.EmailPreferenceRepository;
+import com.example.emails.service.BatchSendResult;
+import com.example.emails.service.EmailHistoryPage;
+import com.example.emails.service.EmailHistoryService;
+import com.example.emails.service.EmailIdempotencyGuard;
+import com.example.emails.service.IdempotencyKeyReusedException;
 import com.example.emails.service.EmailService;
+import com.example.emails.service.EmailTemplateService;
+import com.example.emails.service.PreferenceBulkService;
+import com.example.emails.service.PreferenceImportFormat;
+import com.example.emails.web.dto.BatchEmailRequest;
 import com.example.emails.web.dto.EmailRequest;
 import com.example.emails.web.dto.EmailResponse;
 import com.example.emails.web.dto.PreferenceResponse;
+import com.example.emails.web.dto.TemplateRequest;
 import com.example.emails.web.dto.UpsertPreference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
-
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(EmailController.class)
@@ -32,6 +56,18 @@ public class EmailControllerApiTest {
     @MockitoBean
     private EmailService emailService;
 
+    @MockitoBean
+    private EmailHistoryService emailHistoryService;
+
+    @MockitoBean
+    private EmailIdempotencyGuard emailIdempotencyGuard;
+
+    @MockitoBean
+    private PreferenceBulkService preferenceBulkService;
+
+    @MockitoBean
+    private EmailTemplateService emailTemplateService;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -40,6 +76,12 @@ public class EmailControllerApiTest {
     @Autowired
     private ObjectMapper jacksonObjectMapper;
 
+    @BeforeEach
+    void runThroughIdempotencyGuard() {
+        when(emailIdempotencyGuard.execute(any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<Email>>getArgument(2).get());
+    }
+
     @Test
     void getUserPreference_happyPath() throws Exception {
         UUID userId = UUID.randomUUID();
@@ -131,7 +173,7 @@ public class EmailControllerApiTest {
                 .createdOn(email.getCreatedOn())
                 .build();
 
-        when(emailService.sendEmail(emailRequest)).thenReturn(email);
+        when(emailService.sendEmail(emailRequest, null)).thenReturn(email);
 
         MockHttpServletRequestBuilder request = post("/api/v1/emails")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -180,11 +222,257 @@ public class EmailControllerApiTest {
                 .andExpect(jsonPath("$.enabled").value(preferenceResponse.isEnabled()))
                 .andExpect(jsonPath("$.contactEmail").value(preferenceResponse.getContactEmail()));
     }
-}
 
+    @Test
+    void postSendEmail_preferRespondAsync_returns202() throws Exception {
+        UUID userId = UUID.randomUUID();
+        EmailRequest emailRequest = new EmailRequest();
+        emailRequest.setUserId(userId);
+        emailRequest.setBody("test");
+        emailRequest.setSubject("test");
+
+        Email email = Email.builder()
+                .body("test")
+                .subject("test")
+                .userId(userId)
+                .id(UUID.randomUUID())
+                .status(EmailStatus.QUEUED)
+                .createdOn(LocalDateTime.now())
+                .build();
+
+        when(emailService.queueEmail(emailRequest, null)).thenReturn(email);
+
+        MockHttpServletRequestBuilder request = post("/api/v1/emails")
+                .header("Prefer", "respond-async")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jacksonObjectMapper.writeValueAsString(emailRequest));
+
+        mockMvc.perform(request)
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value(email.getId().toString()))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+    }
+
+    @Test
+    void postSendEmail_withSendAt_queuesAndReturns202() throws Exception {
+        UUID userId = UUID.randomUUID();
+        LocalDateTime sendAt = LocalDateTime.of(2030, 1, 1, 9, 0);
+        EmailRequest emailRequest = new EmailRequest();
+        emailRequest.setUserId(userId);
+        emailRequest.setBody("test");
+        emailRequest.setSubject("test");
+        emailRequest.setSendAt(sendAt);
+
+        Email email = Email.builder()
+                .body("test")
+                .subject("test")
+                .userId(userId)
+                .id(UUID.randomUUID())
+                .status(EmailStatus.SCHEDULED)
+                .sendAt(sendAt)
+                .createdOn(LocalDateTime.now())
+                .build();
+
+        when(emailService.queueEmail(emailRequest, null)).thenReturn(email);
 
+        MockHttpServletRequestBuilder request = post("/api/v1/emails")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jacksonObjectMapper.writeValueAsString(emailRequest));
+
+        mockMvc.perform(request)
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("SCHEDULED"))
+                .andExpect(jsonPath("$.sendAt").value("2030-01-01T09:00:00"));
+    }
+
+    @Test
+    void postSendBatch_returnsPerItemStatus() throws Exception {
+        UUID sentUser = UUID.randomUUID();
+        UUID disabledUser = UUID.randomUUID();
+        BatchEmailRequest batchEmailRequest = new BatchEmailRequest();
+        batchEmailRequest.setUserIds(List.of(sentUser, disabledUser));
+        batchEmailRequest.setSubject("test");
+        batchEmailRequest.setBody("test");
+
+        Email email = Email.builder()
+                .id(UUID.randomUUID())
+                .userId(sentUser)
+                .subject("test")
+                .body("test")
+                .status(EmailStatus.SUCCEEDED)
+                .createdOn(LocalDateTime.now())
+                .build();
 
+        when(emailService.sendBatch(batchEmailRequest)).thenReturn(List.of(
+                new BatchSendResult(sentUser, email, null),
+                new BatchSendResult(disabledUser, null, "User does not allow receive emails.")));
 
+        MockHttpServletRequestBuilder request = post("/api/v1/emails/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jacksonObjectMapper.writeValueAsString(batchEmailRequest));
 
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.items[0].emailId").value(email.getId().toString()))
+                .andExpect(jsonPath("$.items[1].status").value("FAILED"))
+                .andExpect(jsonPath("$.items[1].error").isNotEmpty());
+    }
 
+    @Test
+    void getEmails_returnsPageWithNextCursor() throws Exception {
+        UUID userId = UUID.randomUUID();
 
+        Email email = Email.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .subject("test")
+                .body("test")
+                .status(EmailStatus.SUCCEEDED)
+                .createdOn(LocalDateTime.now())
+                .build();
+
+        when(emailHistoryService.findHistory(userId, EmailStatus.SUCCEEDED, null, null, null, 1))
+                .thenReturn(new EmailHistoryPage(List.of(email), "next"));
+
+        MockHttpServletRequestBuilder request = get("/api/v1/emails")
+                .param("userId", userId.toString())
+                .param("status", "SUCCEEDED")
+                .param("limit", "1");
+
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(email.getId().toString()))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    void postSendEmail_withIdempotencyKey_passesKeyThrough() throws Exception {
+        UUID userId = UUID.randomUUID();
+        EmailRequest emailRequest = new EmailRequest();
+        emailRequest.setUserId(userId);
+        emailRequest.setBody("test");
+        emailRequest.setSubject("test");
+
+        Email email = Email.builder()
+                .body("test")
+                .subject("test")
+                .userId(userId)
+                .id(UUID.randomUUID())
+                .status(EmailStatus.SUCCEEDED)
+                .createdOn(LocalDateTime.now())
+                .idempotencyKey("order-42")
+                .build();
+
+        when(emailService.sendEmail(emailRequest, "order-42")).thenReturn(email);
+
+        MockHttpServletRequestBuilder request = post("/api/v1/emails")
+                .header("Idempotency-Key", "order-42")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jacksonObjectMapper.writeValueAsString(emailRequest));
+
+        mockMvc.perform(request)
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(email.getId().toString()));
+
+        verify(emailIdempotencyGuard).execute(eq(emailRequest), eq("order-42"), any());
+    }
+
+    @Test
+    void postSendEmail_keyReusedForDifferentRequest_returns422() throws Exception {
+        EmailRequest emailRequest = new EmailRequest();
+        emailRequest.setUserId(UUID.randomUUID());
+        emailRequest.setBody("test");
+        emailRequest.setSubject("test");
+
+        doThrow(new IdempotencyKeyReusedException("reused"))
+                .when(emailIdempotencyGuard).execute(eq(emailRequest), eq("order-42"), any());
+
+        MockHttpServletRequestBuilder request = post("/api/v1/emails")
+                .header("Idempotency-Key", "order-42")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jacksonObjectMapper.writeValueAsString(emailRequest));
+
+        mockMvc.perform(request)
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void postImportPreferences_csv_returnsImportedCount() throws Exception {
+        when(preferenceBulkService.importPreferences(any(), eq(PreferenceImportFormat.CSV))).thenReturn(2L);
+
+        MockHttpServletRequestBuilder request = post("/api/v1/emails/preferences/import")
+                .contentType("text/csv")
+                .content("userId,contactEmail,enabled\n");
+
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2));
+    }
+
+    @Test
+    void getExportPreferences_streamsNdjson() throws Exception {
+        EmailPreference first = EmailPreference.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .contactEmail("first@example.com")
+                .isEnabled(true)
+                .build();
+        EmailPreference second = EmailPreference.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .contactEmail("second@example.com")
+                .isEnabled(false)
+                .build();
+
+        doAnswer(invocation -> {
+            invocation.<Consumer<List<EmailPreference>>>getArgument(0).accept(List.of(first, second));
+            return null;
+        }).when(preferenceBulkService).exportPreferences(any());
+
+        MvcResult result = mockMvc.perform(get("/api/v1/emails/preferences/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("second@example.com",
+                jacksonObjectMapper.readTree(lines[1]).get("contactEmail").asText());
+    }
+
+    @Test
+    void postCreateTemplate_returns201WithVersion() throws Exception {
+        TemplateRequest templateRequest = new TemplateRequest();
+        templateRequest.setName("welcome");
+        templateRequest.setSubject("Welcome, {{name}}");
+        templateRequest.setBody("Hello {{name}}");
+
+        EmailTemplate emailTemplate = EmailTemplate.builder()
+                .id(UUID.randomUUID())
+                .name("welcome")
+                .version(2)
+                .subject(templateRequest.getSubject())
+                .body(templateRequest.getBody())
+                .createdOn(LocalDateTime.now())
+                .build();
+
+        when(emailTemplateService.createTemplate(templateRequest)).thenReturn(emailTemplate);
+
+        MockHttpServletRequestBuilder request = post("/api/v1/emails/templates")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jacksonObjectMapper.writeValueAsString(templateRequest));
+
+        mockMvc.perform(request)
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.name").value("welcome"))
+                .andExpect(jsonPath("$.version").value(2));
+    }
+}